@@ -0,0 +1,400 @@
+package benchmark;
+
+import codegeneration.CodeGeneration;
+import compiler.CompilerMain;
+import parser.Parser;
+import parser.ProfilingParser;
+import scanner.MappedSourceReader;
+import scanner.MyScanner;
+import scanner.NamePool;
+import scanner.TokenBuffer;
+import scanner.TokenType;
+import symboltable.FrozenSymbolTable;
+import symboltable.Kind;
+import symboltable.SymbolTable;
+import syntaxtree.ProgramNode;
+
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * This is the main for the compiler benchmarks. Each phase is timed on its own: MyScanner.nextToken(),
+ * Parser.program() with a new Parser, with one Parser reset for every run and over a TokenBuffer with and
+ * without a pool for subprogram bodies, with the bodies left unparsed and through a ProfilingParser,
+ * Parser.reset() on its own, Parser.reparse() after a one character edit, SymbolTable adds and lookups, by name,
+ * by id, in nested scopes and from parallel threads through a FrozenSymbolTable, CodeGeneration.writeCode(), and
+ * a whole compilation through CompilerMain.compile(). The "sources" benchmarks scan a file through each of the
+ * ways MyScanner can read one: an InputStreamReader, a MappedSourceReader and a ReadableByteChannel. Every
+ * benchmark runs over each input shape and size it is given.
+ * Arguments, all optional:
+ * --sizes 100,1000         the number of statements (names for the symbol table)
+ * --shapes assignments,... the input shapes, see Inputs
+ * --only parser,...        the benchmarks to run
+ * --warmup 3 --iterations 5 --time 200   the iteration counts and the minimum length of an iteration in ms
+ * --out results.tsv        saves the results
+ * --baseline results.tsv   compares against saved results, flagging anything slower or allocating more than
+ * --threshold 10           percent
+ * The benchmarks run on a thread with a large stack because the Parser recurses once per statement. System.out is
+ * silenced for the whole run because the Parser prints its minor errors there, the report goes to the original stream.
+ * @author Gabriel Bergstrom
+ */
+public class CompilerBenchmarks
+{
+    private static final String[] BENCHMARKS = {"scanner", "sources", "parser", "symboltable", "codegeneration",
+            "compile"};
+
+    private Map<String, String> options = new HashMap<>();
+    private PrintStream report = System.out;
+
+    public static void main(String[] args) throws Throwable {
+        CompilerBenchmarks benchmarks = new CompilerBenchmarks(args);
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                benchmarks.run();
+            } catch (Throwable t) {
+                failure[0] = t;
+            }
+        }, "benchmark", 1L << 30);
+        thread.start();
+        thread.join();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    private CompilerBenchmarks(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option but found: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private void run() throws Exception {
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+        try {
+            runAll();
+        } finally {
+            System.setOut(report);
+        }
+    }
+
+    private void runAll() throws Exception {
+        Harness harness = new Harness(Integer.parseInt(option("warmup", "3")),
+                Integer.parseInt(option("iterations", "5")), Long.parseLong(option("time", "200")));
+        List<String> only = Arrays.asList(option("only", String.join(",", BENCHMARKS)).split(","));
+        String[] shapes = option("shapes", String.join(",", Inputs.SHAPES)).split(",");
+        List<Harness.Measurement> results = new ArrayList<>();
+
+        report.println(Harness.Measurement.header());
+        for (String size : option("sizes", "100,1000").split(",")) {
+            int n = Integer.parseInt(size);
+            if (only.contains("symboltable")) {
+                results.add(report(harness.measure("symboltable.name", "names", n, symbolTableByName(n))));
+                results.add(report(harness.measure("symboltable.id", "names", n, symbolTableById(n))));
+                results.add(report(harness.measure("symboltable.scopes", "nested", n, symbolTableScopes(n))));
+                results.add(report(harness.measure("symboltable.frozen", "names", n, symbolTableFrozen(n))));
+            }
+            for (String shape : shapes) {
+                String text = Inputs.program(shape, n);
+                if (only.contains("scanner")) {
+                    results.add(report(harness.measure("scanner.nextToken", shape, n, () -> scan(text))));
+                }
+                if (only.contains("sources")) {
+                    Path file = Files.createTempFile("benchmark", ".pas");
+                    try {
+                        Files.write(file, text.getBytes(StandardCharsets.US_ASCII));
+                        results.add(report(harness.measure("source.inputStreamReader", shape, n,
+                                () -> scan(new MyScanner(new InputStreamReader(new FileInputStream(file.toFile()),
+                                        StandardCharsets.UTF_8))))));
+                        results.add(report(harness.measure("source.mapped", shape, n,
+                                () -> scan(new MyScanner(new MappedSourceReader(file))))));
+                        results.add(report(harness.measure("source.channel", shape, n,
+                                () -> scan(new MyScanner(FileChannel.open(file, StandardOpenOption.READ))))));
+                    } finally {
+                        Files.delete(file);
+                    }
+                }
+                if (only.contains("parser")) {
+                    results.add(report(harness.measure("parser.program", shape, n, () -> {
+                        new Parser(text, false).program();
+                        return n;
+                    })));
+                    TokenBuffer tokens = TokenBuffer.lex(text);
+                    results.add(report(harness.measure("parser.tokenBuffer", shape, n, () -> {
+                        new Parser(tokens).program();
+                        return n;
+                    })));
+                    results.add(report(harness.measure("parser.profiled", shape, n, () -> {
+                        new ProfilingParser(tokens).program();
+                        return n;
+                    })));
+                    results.add(report(harness.measure("parser.lazyBodies", shape, n, () -> {
+                        Parser parser = new Parser(tokens);
+                        parser.setLazyBodies(true);
+                        parser.program();
+                        return n;
+                    })));
+                    results.add(report(harness.measure("parser.subprogramPool", shape, n, () -> {
+                        Parser parser = new Parser(tokens);
+                        parser.setSubprogramPool(ForkJoinPool.commonPool());
+                        parser.program();
+                        return n;
+                    })));
+                    results.add(report(harness.measure("parser.reparse", shape, n, reparse(text))));
+                    Parser reused = new Parser();
+                    results.add(report(harness.measure("parser.reset", shape, n, () -> {
+                        reused.reset(new StringReader(text));
+                        reused.program();
+                        return n;
+                    })));
+                    //A warmed up reset should allocate nothing, the B/op of this one
+                    StringReader empty = new StringReader("");
+                    results.add(report(harness.measure("parser.resetOnly", shape, n, () -> {
+                        reused.reset(empty);
+                        return 1;
+                    })));
+                }
+                if (only.contains("codegeneration")) {
+                    results.add(report(harness.measure("codegeneration.writeCode", shape, n, writeCode(text))));
+                }
+                if (only.contains("compile")) {
+                    results.add(report(harness.measure("compile", shape, n,
+                            () -> CompilerMain.compile(text, false)[2].length())));
+                }
+            }
+        }
+
+        if (options.containsKey("baseline")) {
+            compare(results, Paths.get(option("baseline", null)), Double.parseDouble(option("threshold", "10")));
+        }
+        if (options.containsKey("out")) {
+            List<String> lines = new ArrayList<>();
+            for (Harness.Measurement result : results) {
+                lines.add(result.getKey() + "\t" + result.getNanosPerOp() + "\t" + result.getBytesPerOp());
+            }
+            Files.write(Paths.get(option("out", null)), lines, StandardCharsets.UTF_8);
+        }
+    }
+
+    private Harness.Measurement report(Harness.Measurement measurement) {
+        report.println(measurement);
+        return measurement;
+    }
+
+    /**
+     * Scans the whole text one Token at a time.
+     *
+     * @return The number of tokens
+     */
+    private static long scan(String text) throws Exception {
+        return scan(new MyScanner(new StringReader(text)));
+    }
+
+    /**
+     * Scans all of a scanner's input one Token at a time, then closes it.
+     *
+     * @return The number of tokens
+     */
+    private static long scan(MyScanner scanner) throws Exception {
+        long tokens = 0;
+        while (scanner.nextToken() != null) {
+            tokens++;
+        }
+        scanner.yyclose();
+        return tokens;
+    }
+
+    /**
+     * Fills a new SymbolTable with n variables and looks every one of them up, by name.
+     */
+    private static Workload symbolTableByName(int n) {
+        String[] names = new String[n];
+        String[] lookups = new String[n];
+        for (int i = 0; i < n; i++) {
+            names[i] = "v" + i;
+            lookups[i] = new String(names[i].toCharArray());//An equal String, as a parser would see it
+        }
+        return () -> {
+            SymbolTable table = new SymbolTable();
+            for (String name : names) {
+                table.addVariable(name, TokenType.INTEGER);
+            }
+            long found = 0;
+            for (String name : lookups) {
+                if (table.isVariable(name)) {
+                    found++;
+                }
+            }
+            return found;
+        };
+    }
+
+    /**
+     * Fills a new SymbolTable with n variables and looks every one of them up, by NamePool id.
+     */
+    private static Workload symbolTableById(int n) {
+        NamePool pool = new NamePool();
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = pool.intern("v" + i);
+        }
+        return () -> {
+            SymbolTable table = new SymbolTable(pool);
+            for (int id : ids) {
+                table.addVariable(id, TokenType.INTEGER);
+            }
+            long found = 0;
+            for (int id : ids) {
+                if (table.isVariable(id)) {
+                    found++;
+                }
+            }
+            return found;
+        };
+    }
+
+    /**
+     * Types a space at the start of a line in the middle of the program and deletes it again, reparsing after each
+     * edit. For the "subprograms" shape that line is in one procedure, for the others it is in the main body.
+     *
+     * @return A workload that counts the reparses
+     */
+    private static Workload reparse(String text) {
+        Parser parser = new Parser(TokenBuffer.lex(text));
+        ProgramNode[] tree = {parser.program()};
+        int middle = text.indexOf('\n', text.length() / 2) + 1;
+        return () -> {
+            tree[0] = parser.reparse(tree[0], middle, 0, " ");
+            tree[0] = parser.reparse(tree[0], middle, 1, "");
+            return 2;
+        };
+    }
+
+    /**
+     * Declares n variables ten to a scope, each scope nested in the one before, from a thousand names so that every
+     * name is hidden by the next scopes that declare it again. Every declaration is followed by a lookup of the name
+     * and of a name only the global scope declares, then every scope is exited.
+     */
+    private static Workload symbolTableScopes(int n) {
+        NamePool pool = new NamePool();
+        int[] ids = new int[Math.min(n, 1000)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = pool.intern("v" + i);
+        }
+        int global = pool.intern("g");
+        return () -> {
+            SymbolTable table = new SymbolTable(pool);
+            table.addVariable(global, TokenType.INTEGER);
+            long found = 0;
+            for (int i = 0; i < n; i++) {
+                if (i % 10 == 0) {
+                    table.enterScope();
+                }
+                int id = ids[i % ids.length];
+                table.addVariable(id, TokenType.INTEGER);
+                if (table.get(id) != null && table.get(global) != null) {
+                    found++;
+                }
+            }
+            while (table.getDepth() > 0) {
+                table.exitScope();
+            }
+            return found;
+        };
+    }
+
+    /**
+     * Freezes a SymbolTable of n variables once, then looks every one of them up by NamePool id from the threads of
+     * a parallel stream, none of them taking a lock.
+     */
+    private static Workload symbolTableFrozen(int n) {
+        NamePool pool = new NamePool();
+        SymbolTable table = new SymbolTable(pool);
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = pool.intern("v" + i);
+            table.addVariable(ids[i], TokenType.INTEGER);
+        }
+        FrozenSymbolTable frozen = table.freeze();
+        return () -> IntStream.range(0, n).parallel()
+                .filter(i -> frozen.getKind(frozen.find(ids[i])) == Kind.VARIABLE).count();
+    }
+
+    /**
+     * Parses the text once, then generates code for it on every operation.
+     */
+    private static Workload writeCode(String text) {
+        Parser parser = new Parser(text, false);
+        ProgramNode tree = parser.program();
+        return () -> new CodeGeneration(tree, parser.getSymbolTable()).writeCode().length();
+    }
+
+    /**
+     * Prints how each result changed from a saved run.
+     *
+     * @param results   The results of this run
+     * @param baseline  A file written by an earlier run with --out
+     * @param threshold The percentage increase that counts as a regression
+     */
+    private void compare(List<Harness.Measurement> results, Path baseline, double threshold) throws Exception {
+        Map<String, double[]> saved = new HashMap<>();
+        for (String line : Files.readAllLines(baseline, StandardCharsets.UTF_8)) {
+            String[] fields = line.split("\t");
+            saved.put(fields[0] + "\t" + fields[1] + "\t" + fields[2],
+                    new double[] {Double.parseDouble(fields[3]), Double.parseDouble(fields[4])});
+        }
+        report.println();
+        report.println(String.format("%-52s %10s %10s", "compared to " + baseline, "time", "alloc"));
+        int regressions = 0;
+        for (Harness.Measurement result : results) {
+            double[] before = saved.get(result.getKey());
+            if (before == null) {
+                continue;
+            }
+            double time = change(before[0], result.getNanosPerOp());
+            double alloc = change(before[1], result.getBytesPerOp());
+            boolean regression = time > threshold || alloc > threshold;
+            if (regression) {
+                regressions++;
+            }
+            report.println(String.format("%-52s %+9.1f%% %+9.1f%%%s", result.getKey().replace('\t', ' '),
+                    time, alloc, regression ? "  REGRESSION" : ""));
+        }
+        report.println(regressions + " regression(s) over " + threshold + "%");
+    }
+
+    private static double change(double before, double after) {
+        return before <= 0 ? 0 : (after - before) / before * 100;
+    }
+}
@@ -0,0 +1,182 @@
+package benchmark;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * This class times Workloads the way a JMH run with the GC profiler would, without needing JMH on the class path.
+ * Each workload runs for a number of warmup iterations that are thrown away and then for a number of measured
+ * iterations. An iteration repeats the operation until a minimum time has passed. The Harness reports the average
+ * time per operation, the bytes allocated per operation by the running thread, and how many collections happened
+ * and how long they took while it was measuring.
+ * @author Gabriel Bergstrom
+ */
+public class Harness
+{
+    private int warmupIterations;
+    private int measuredIterations;
+    private long iterationNanos;
+    private long sink;
+
+    /**
+     * @param warmupIterations   The number of iterations run before measuring
+     * @param measuredIterations The number of iterations measured
+     * @param iterationMillis    The minimum length of one iteration
+     */
+    public Harness(int warmupIterations, int measuredIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measuredIterations = measuredIterations;
+        this.iterationNanos = iterationMillis * 1000000L;
+    }
+
+    /**
+     * The averages of the measured iterations of one workload.
+     */
+    public static class Measurement
+    {
+        private String name;
+        private String shape;
+        private int size;
+        private double nanosPerOp;
+        private double bytesPerOp;
+        private double unitsPerOp;
+        private double allocationRate;
+        private long gcCount;
+        private long gcMillis;
+
+        private Measurement(String name, String shape, int size) {
+            this.name = name;
+            this.shape = shape;
+            this.size = size;
+        }
+
+        /**
+         * @return A key naming the benchmark and its parameters
+         */
+        public String getKey() {
+            return name + "\t" + shape + "\t" + size;
+        }
+
+        /**
+         * @return The average time of one operation in nanoseconds
+         */
+        public double getNanosPerOp() {
+            return nanosPerOp;
+        }
+
+        /**
+         * @return The bytes allocated by one operation, or -1 if the JVM cannot count them
+         */
+        public double getBytesPerOp() {
+            return bytesPerOp;
+        }
+
+        /**
+         * @return A row for the report
+         */
+        @Override
+        public String toString() {
+            return String.format("%-24s %-12s %8d %14.0f %10.1f %14.0f %10.1f %6d %8d", name, shape, size,
+                    nanosPerOp, nanosPerOp / Math.max(unitsPerOp, 1), bytesPerOp, allocationRate, gcCount, gcMillis);
+        }
+
+        /**
+         * @return The header of the report
+         */
+        public static String header() {
+            return String.format("%-24s %-12s %8s %14s %10s %14s %10s %6s %8s", "benchmark", "shape", "size",
+                    "ns/op", "ns/unit", "B/op", "MB/s alloc", "gc", "gc ms");
+        }
+    }
+
+    /**
+     * Warms up and measures a workload.
+     *
+     * @param name     The name of the benchmark
+     * @param shape    The shape of the input
+     * @param size     The size of the input
+     * @param workload The operation to time
+     * @return The averages of the measured iterations
+     * @throws Exception if the workload fails
+     */
+    public Measurement measure(String name, String shape, int size, Workload workload) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            iteration(workload, new long[3]);
+        }
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long[] totals = new long[3];
+        long operations = 0;
+        for (int i = 0; i < measuredIterations; i++) {
+            operations += iteration(workload, totals);
+        }
+        Measurement measurement = new Measurement(name, shape, size);
+        measurement.nanosPerOp = totals[0] / (double) operations;
+        measurement.bytesPerOp = totals[1] < 0 ? -1 : totals[1] / (double) operations;
+        measurement.unitsPerOp = totals[2] / (double) operations;
+        measurement.allocationRate = totals[1] < 0 ? -1 : totals[1] / 1e6 / (totals[0] / 1e9);
+        measurement.gcCount = gcCount() - gcCount;
+        measurement.gcMillis = gcMillis() - gcMillis;
+        return measurement;
+    }
+
+    /**
+     * Runs the workload until the iteration time has passed.
+     *
+     * @param workload The operation to time
+     * @param totals   The elapsed nanoseconds, allocated bytes and units, which this iteration adds to
+     * @return The number of operations run
+     */
+    private long iteration(Workload workload, long[] totals) throws Exception {
+        long operations = 0;
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            long units = workload.run();
+            sink += units;
+            totals[2] += units;
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < iterationNanos);
+        long allocated = allocatedBytes();
+        totals[0] += elapsed;
+        totals[1] = bytes < 0 || totals[1] < 0 ? -1 : totals[1] + allocated - bytes;
+        return operations;
+    }
+
+    /**
+     * @return The bytes allocated so far by the current thread, or -1 if the JVM cannot tell
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(gc.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(gc.getCollectionTime(), 0);
+        }
+        return millis;
+    }
+
+    /**
+     * @return The sum of every unit count returned by the workloads, only there so the results are used
+     */
+    public long getSink() {
+        return sink;
+    }
+}
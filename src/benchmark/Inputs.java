@@ -0,0 +1,101 @@
+package benchmark;
+
+/**
+ * This class builds Mini-Pascal programs of a given size and shape for the benchmarks. Every program is one the
+ * Parser accepts and CodeGeneration can translate.
+ * "assignments" is a flat list of short assignments, "expressions" has fewer statements with long expressions and
+ * "control" is made of while loops holding if statements. "lists" declares as many variables as statements in one
+ * identifier list, declares a function with as many parameters and passes every variable to one procedure call, so
+ * every list in the program grows with the size, and running it at two sizes shows whether the time per item stays
+ * the same.
+ * "subprograms" declares one procedure per statement, each with a short body, and the main body calls them all.
+ * There are no begin/end blocks inside the main body, so the programs stay the same as when CodeGeneration could not
+ * translate them.
+ * @author Gabriel Bergstrom
+ */
+public class Inputs
+{
+    /** The shapes programs can be built in */
+    public static final String[] SHAPES = {"assignments", "expressions", "control", "lists",
+            "subprograms"};
+
+    private static final int VARIABLES = 64;
+    private static final int EXPRESSION_TERMS = 32;
+
+    private Inputs() {
+    }
+
+    /**
+     * Builds a program.
+     *
+     * @param shape      One of SHAPES
+     * @param statements The number of statements in the main body
+     * @return The text of the program
+     */
+    public static String program(String shape, int statements) {
+        StringBuilder text = new StringBuilder("program bench;\nvar\n    ");
+        int variables = shape.equals("lists") ? Math.max(statements, 2) : VARIABLES;
+        for (int i = 0; i < variables; i++) {
+            text.append(i == 0 ? "" : ", ").append('v').append(i);
+        }
+        text.append(": integer;\n\n");
+        if (shape.equals("lists")) {
+            text.append("procedure p;\nbegin\nend;\n\nfunction f(");
+            for (int i = 0; i < variables; i++) {
+                text.append(i == 0 ? "a" : "; a").append(i).append(" : integer");
+            }
+            text.append(") : integer;\nbegin\nend;\n\n");
+        }
+        if (shape.equals("subprograms")) {
+            for (int i = 0; i < statements; i++) {
+                int v = i % VARIABLES;
+                text.append("procedure p").append(i).append(";\nbegin\n    v").append(v).append(" := v")
+                        .append((v + 1) % VARIABLES).append(" + ").append(i).append(";\n    while v").append(v)
+                        .append(" > v").append((v + 2) % VARIABLES).append(" do v").append(v).append(" := v")
+                        .append(v).append(" - 1\nend;\n\n");
+            }
+        }
+        text.append("begin\n");
+        for (int i = 0; i < statements; i++) {
+            text.append(i == 0 ? "    " : ";\n    ");
+            int v = i % variables;
+            switch (shape) {
+                case "assignments":
+                    text.append('v').append(v).append(" := v").append((v + 1) % VARIABLES)
+                            .append(" + v").append((v + 2) % VARIABLES).append(" * ").append(i);
+                    break;
+                case "expressions":
+                    text.append('v').append(v).append(" := ");
+                    for (int t = 0; t < EXPRESSION_TERMS; t++) {
+                        text.append(t == 0 ? "" : t % 3 == 0 ? " - " : t % 3 == 1 ? " + " : " * ");
+                        text.append(t % 4 == 0 ? "(v" + ((v + t) % VARIABLES) + " + " + t + ")" : "v" + ((v + t) % VARIABLES));
+                    }
+                    break;
+                case "control":
+                    text.append("while v").append(v).append(" < ").append(i).append(" do\n")
+                            .append("        if v").append(v).append(" > v").append((v + 1) % VARIABLES)
+                            .append(" then v").append(v).append(" := v").append(v).append(" - 1")
+                            .append(" else v").append((v + 1) % VARIABLES).append(" := v").append(v).append(" + 1");
+                    break;
+                case "lists":
+                    if (i == 0) {
+                        text.append("p(");
+                        for (int a = 0; a < variables; a++) {
+                            text.append(a == 0 ? "v" : ", v").append(a);
+                        }
+                        text.append(')');
+                    } else {
+                        text.append('v').append(v).append(" := v").append((v + 1) % variables);
+                    }
+                    break;
+                case "subprograms":
+                    text.append('p').append(i);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown shape: " + shape);
+            }
+        }
+        text.append("\nend\n.\n");
+        return text.toString();
+    }
+}
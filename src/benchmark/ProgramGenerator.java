@@ -0,0 +1,318 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class writes random Mini-Pascal programs for scaling tests. The same seed and settings always give the same
+ * program. The programs use the grammar the Parser accepts: variable and array declarations of both standard types,
+ * functions with parameter lists, procedures, subprograms nested inside subprograms, assignments to variables and to
+ * array elements, procedure calls with and without arguments, compound statements, if/then/else, while/do, every
+ * operator, signs, not, parentheses and integer, real and exponent numbers.
+ * Every program is also one CodeGeneration can translate, so the generator leaves out what the later phases cannot
+ * handle yet: the left side of a relational operator is always a single variable or number, expressions never read
+ * arrays or call functions, and compound statements only appear inside subprograms, which CodeGeneration skips.
+ * Every name is unique, so the programs do not depend on scoping, which the SymbolTable does not do.
+ * @author Gabriel Bergstrom
+ */
+public class ProgramGenerator
+{
+    private static final String[] ADDOPS = {"+", "-", "or"};
+    private static final String[] MULOPS = {"*", "/", "div", "mod", "and"};
+    private static final String[] RELOPS = {"=", "<>", "<", "<=", ">", ">="};
+
+    private Random random;
+    private int declarations = 10;
+    private int statements = 100;
+    private int subprograms = 0;
+    private int subprogramStatements = 5;
+    private int expressionDepth = 3;
+    private int nesting = 2;
+
+    private StringBuilder text;
+    private int names;
+    private int subprogramsLeft;
+
+    /**
+     * @param seed The seed of the random choices
+     */
+    public ProgramGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    /**
+     * @param declarations The number of variables declared by the program, at least one
+     */
+    public void setDeclarations(int declarations) {
+        this.declarations = Math.max(declarations, 1);
+    }
+
+    /**
+     * @param statements The number of statements in the main body, not counting the statements nested in them
+     */
+    public void setStatements(int statements) {
+        this.statements = statements;
+    }
+
+    /**
+     * @param subprograms The number of functions and procedures, nested ones included
+     */
+    public void setSubprograms(int subprograms) {
+        this.subprograms = subprograms;
+    }
+
+    /**
+     * @param subprogramStatements The number of statements in the body of each subprogram
+     */
+    public void setSubprogramStatements(int subprogramStatements) {
+        this.subprogramStatements = subprogramStatements;
+    }
+
+    /**
+     * @param expressionDepth How deeply parentheses and not may nest inside an expression
+     */
+    public void setExpressionDepth(int expressionDepth) {
+        this.expressionDepth = expressionDepth;
+    }
+
+    /**
+     * @param nesting How deeply if and while statements may nest inside each other
+     */
+    public void setNesting(int nesting) {
+        this.nesting = nesting;
+    }
+
+    /**
+     * Writes a program with the current settings.
+     *
+     * @return The text of the program
+     */
+    public String generate() {
+        text = new StringBuilder();
+        names = 0;
+        subprogramsLeft = subprograms;
+        text.append("program ").append(name("prog")).append(";\n");
+        Scope globals = new Scope(null);
+        declarations(globals, declarations, "");
+        while (subprogramsLeft > 0) {
+            subprogram(globals, "");
+        }
+        text.append("begin\n");
+        statements(globals, statements, "    ", false);
+        text.append("\nend\n.\n");
+        return text.toString();
+    }
+
+    /**
+     * The variables, arrays and procedures a body may use: its own and those of the scopes around it.
+     */
+    private static class Scope
+    {
+        private List<String> variables = new ArrayList<>();
+        private List<String> arrays = new ArrayList<>();
+        private List<String> procedures = new ArrayList<>();
+
+        private Scope(Scope outer) {
+            if (outer != null) {
+                variables.addAll(outer.variables);
+                arrays.addAll(outer.arrays);
+                procedures.addAll(outer.procedures);
+            }
+        }
+    }
+
+    private String name(String prefix) {
+        return prefix + names++;
+    }
+
+    private <T> T pick(List<T> list) {
+        return list.get(random.nextInt(list.size()));
+    }
+
+    private String pick(String[] array) {
+        return array[random.nextInt(array.length)];
+    }
+
+    /**
+     * Declares the given number of variables, in groups that share a type. Roughly one group in eight is an array.
+     */
+    private void declarations(Scope scope, int count, String indent) {
+        while (count > 0) {
+            int group = Math.min(count, 1 + random.nextInt(4));
+            boolean array = random.nextInt(8) == 0;
+            text.append(indent).append("var ");
+            for (int i = 0; i < group; i++) {
+                String name = name(array ? "arr" : "v");
+                (array ? scope.arrays : scope.variables).add(name);
+                text.append(i == 0 ? "" : ", ").append(name);
+            }
+            text.append(": ");
+            if (array) {
+                text.append("array [1:").append(1 + random.nextInt(100)).append("] of ");
+            }
+            text.append(random.nextInt(4) == 0 ? "real" : "integer").append(";\n");
+            count -= group;
+        }
+    }
+
+    /**
+     * Writes one function or procedure, with a nested subprogram now and then.
+     */
+    private void subprogram(Scope outer, String indent) {
+        subprogramsLeft--;
+        Scope scope = new Scope(outer);
+        boolean function = random.nextBoolean();
+        String name = name(function ? "f" : "p");
+        if (function) {
+            text.append(indent).append("function ").append(name).append('(');
+            int groups = 1 + random.nextInt(2);
+            for (int g = 0; g < groups; g++) {
+                int count = 1 + random.nextInt(3);
+                for (int i = 0; i < count; i++) {
+                    String argument = name("a");
+                    scope.variables.add(argument);
+                    text.append(i == 0 ? (g == 0 ? "" : "; ") : ", ").append(argument);
+                }
+                text.append(": ").append(random.nextBoolean() ? "integer" : "real");
+            }
+            text.append("): ").append(random.nextBoolean() ? "integer" : "real").append(";\n");
+        } else {
+            text.append(indent).append("procedure ").append(name).append(";\n");
+            outer.procedures.add(name);
+        }
+        declarations(scope, 1 + random.nextInt(3), indent + "    ");
+        if (subprogramsLeft > 0 && indent.length() < 8 && random.nextInt(5) == 0) {
+            subprogram(scope, indent + "    ");
+        }
+        text.append(indent).append("begin\n");
+        statements(scope, subprogramStatements, indent + "    ", true);
+        text.append('\n').append(indent).append("end;\n");
+        if (!function) {
+            //A procedure may call itself
+            scope.procedures.add(name);
+        }
+    }
+
+    private void statements(Scope scope, int count, String indent, boolean blocks) {
+        for (int i = 0; i < count; i++) {
+            text.append(i == 0 ? "" : ";\n").append(indent);
+            statement(scope, indent, nesting, blocks);
+        }
+    }
+
+    /**
+     * Writes one statement. If and while statements are only chosen while the nesting allows it.
+     */
+    private void statement(Scope scope, String indent, int depth, boolean blocks) {
+        int choice = random.nextInt(depth > 0 ? 10 : 7);
+        if (choice < 4) {
+            text.append(pick(scope.variables)).append(" := ");
+            expression(scope, expressionDepth);
+        } else if (choice == 4 && !scope.arrays.isEmpty()) {
+            text.append(pick(scope.arrays)).append('[');
+            simpleExpression(scope, expressionDepth);
+            text.append("] := ");
+            expression(scope, expressionDepth);
+        } else if (choice == 5 && !scope.procedures.isEmpty()) {
+            text.append(pick(scope.procedures));
+            if (random.nextBoolean()) {
+                text.append('(');
+                int count = 1 + random.nextInt(3);
+                for (int i = 0; i < count; i++) {
+                    text.append(i == 0 ? "" : ", ");
+                    expression(scope, expressionDepth);
+                }
+                text.append(')');
+            }
+        } else if (choice == 6 && blocks) {
+            text.append("begin\n");
+            statements(scope, 1 + random.nextInt(3), indent + "    ", true);
+            text.append('\n').append(indent).append("end");
+        } else if (choice == 7 || choice == 8) {
+            text.append("if ");
+            relation(scope);
+            text.append("\n").append(indent).append("then ");
+            statement(scope, indent + "    ", depth - 1, blocks);
+            text.append("\n").append(indent).append("else ");
+            statement(scope, indent + "    ", depth - 1, blocks);
+        } else if (choice == 9) {
+            text.append("while ");
+            relation(scope);
+            text.append(" do\n").append(indent).append("    ");
+            statement(scope, indent + "    ", depth - 1, blocks);
+        } else {
+            text.append(pick(scope.variables)).append(" := ");
+            expression(scope, expressionDepth);
+        }
+    }
+
+    /**
+     * Writes a relational expression whose left side is a single variable or number.
+     */
+    private void relation(Scope scope) {
+        if (random.nextBoolean()) {
+            text.append(pick(scope.variables));
+        } else {
+            number();
+        }
+        text.append(' ').append(pick(RELOPS)).append(' ');
+        simpleExpression(scope, expressionDepth);
+    }
+
+    private void expression(Scope scope, int depth) {
+        if (random.nextInt(8) == 0) {
+            relation(scope);
+        } else {
+            simpleExpression(scope, depth);
+        }
+    }
+
+    private void simpleExpression(Scope scope, int depth) {
+        int sign = random.nextInt(8);
+        text.append(sign == 0 ? "- " : sign == 1 ? "+ " : "");
+        int terms = 1 + random.nextInt(3);
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                text.append(' ').append(pick(ADDOPS)).append(' ');
+            }
+            term(scope, depth);
+        }
+    }
+
+    private void term(Scope scope, int depth) {
+        int factors = 1 + random.nextInt(3);
+        for (int i = 0; i < factors; i++) {
+            if (i > 0) {
+                text.append(' ').append(pick(MULOPS)).append(' ');
+            }
+            factor(scope, depth);
+        }
+    }
+
+    private void factor(Scope scope, int depth) {
+        int choice = random.nextInt(10);
+        if (depth > 0 && choice < 2) {
+            text.append('(');
+            expression(scope, depth - 1);
+            text.append(')');
+        } else if (depth > 0 && choice == 2) {
+            text.append("not ");
+            factor(scope, depth - 1);
+        } else if (choice < 7) {
+            text.append(pick(scope.variables));
+        } else {
+            number();
+        }
+    }
+
+    private void number() {
+        int kind = random.nextInt(6);
+        text.append(random.nextInt(1000));
+        if (kind == 4) {
+            text.append('.').append(random.nextInt(100));
+        } else if (kind == 5) {
+            text.append("E").append(random.nextBoolean() ? "+" : "-").append(1 + random.nextInt(9));
+        }
+    }
+}
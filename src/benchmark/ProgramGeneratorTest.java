@@ -0,0 +1,50 @@
+package benchmark;
+
+import compiler.CompilerMain;
+import org.junit.Test;
+import parser.Parser;
+import syntaxtree.ProgramNode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class uses the JUnit testing library to test the ProgramGenerator class.
+ * @author Gabriel Bergstrom
+ */
+public class ProgramGeneratorTest
+{
+    private static ProgramGenerator generator(long seed) {
+        ProgramGenerator generator = new ProgramGenerator(seed);
+        generator.setDeclarations(12);
+        generator.setStatements(25);
+        generator.setSubprograms(6);
+        generator.setSubprogramStatements(4);
+        generator.setExpressionDepth(3);
+        generator.setNesting(3);
+        return generator;
+    }
+
+    /**
+     * Tests that a seed always gives the same program and that different seeds give different ones
+     */
+    @Test
+    public void testSeed() {
+        assertEquals(generator(7).generate(), generator(7).generate());
+        assertNotEquals(generator(7).generate(), generator(8).generate());
+    }
+
+    /**
+     * Tests that the generated programs parse, have the requested number of statements and compile
+     */
+    @Test
+    public void testGenerate() {
+        for (long seed = 0; seed < 20; seed++) {
+            String program = generator(seed).generate();
+            ProgramNode tree = new Parser(program, false).program();
+            assertEquals(program, 25, tree.getMain().getStatement().size());
+            assertTrue(program, CompilerMain.compile(program, false)[2].length() > 0);
+        }
+    }
+}
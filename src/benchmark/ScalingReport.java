@@ -0,0 +1,199 @@
+package benchmark;
+
+import codegeneration.CodeGeneration;
+import compiler.CompilerMain;
+import parser.Parser;
+import scanner.MyScanner;
+import syntaxtree.ProgramNode;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is the main for the scaling report. It generates programs with the ProgramGenerator at doubling sizes, times
+ * each phase of the compiler on them with the Harness, and fits how the time and the allocated bytes of every phase
+ * grow with the size. The growth is the slope of a least squares line through log(size) and log(cost): 1 is linear,
+ * 2 is quadratic. A phase whose slope is above the limit is flagged as superlinear.
+ * Arguments, all optional:
+ * --from 250 --steps 5     the first size, in main body statements, and the number of doublings
+ * --seed 1                 the seed of the generator
+ * --depth 3 --nesting 2    the expression depth and the if/while nesting of the programs
+ * --limit 1.2              the slope above which a phase is flagged
+ * --warmup 2 --iterations 3 --time 100   as for CompilerBenchmarks
+ * The programs also get one declared variable per ten statements and one subprogram per twenty, so every part of
+ * them grows at the same rate.
+ * @author Gabriel Bergstrom
+ */
+public class ScalingReport
+{
+    private static final String[] PHASES = {"scanner.nextToken", "parser.program", "syntaxtree.print",
+            "codegeneration.writeCode", "compile"};
+
+    private Map<String, String> options = new HashMap<>();
+    private PrintStream report = System.out;
+
+    public static void main(String[] args) throws Throwable {
+        ScalingReport scaling = new ScalingReport(args);
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                scaling.run();
+            } catch (Throwable t) {
+                failure[0] = t;
+            }
+        }, "scaling", 1L << 30);
+        thread.start();
+        thread.join();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    private ScalingReport(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option but found: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private void run() throws Exception {
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+        try {
+            runAll();
+        } finally {
+            System.setOut(report);
+        }
+    }
+
+    private void runAll() throws Exception {
+        Harness harness = new Harness(Integer.parseInt(option("warmup", "2")),
+                Integer.parseInt(option("iterations", "3")), Long.parseLong(option("time", "100")));
+        int from = Integer.parseInt(option("from", "250"));
+        int steps = Integer.parseInt(option("steps", "5"));
+        double limit = Double.parseDouble(option("limit", "1.2"));
+
+        Map<String, List<Harness.Measurement>> results = new LinkedHashMap<>();
+        for (String phase : PHASES) {
+            results.put(phase, new ArrayList<>());
+        }
+        int[] sizes = new int[steps];
+        report.println(Harness.Measurement.header());
+        for (int step = 0; step < steps; step++) {
+            int n = from << step;
+            sizes[step] = n;
+            String text = program(n);
+            results.get(PHASES[0]).add(report(harness.measure(PHASES[0], "generated", n, () -> scan(text))));
+            results.get(PHASES[1]).add(report(harness.measure(PHASES[1], "generated", n, () -> {
+                new Parser(text, false).program();
+                return n;
+            })));
+            Parser parser = new Parser(text, false);
+            ProgramNode tree = parser.program();
+            results.get(PHASES[2]).add(report(harness.measure(PHASES[2], "generated", n,
+                    () -> tree.indentedToString(0).length())));
+            results.get(PHASES[3]).add(report(harness.measure(PHASES[3], "generated", n,
+                    () -> new CodeGeneration(tree, parser.getSymbolTable()).writeCode().length())));
+            results.get(PHASES[4]).add(report(harness.measure(PHASES[4], "generated", n,
+                    () -> CompilerMain.compile(text, false)[2].length())));
+        }
+
+        report.println();
+        report.println(String.format("%-28s %10s %10s", "growth from " + sizes[0] + " to " + sizes[steps - 1],
+                "time", "alloc"));
+        for (Map.Entry<String, List<Harness.Measurement>> phase : results.entrySet()) {
+            double[] time = new double[steps];
+            double[] alloc = new double[steps];
+            for (int i = 0; i < steps; i++) {
+                time[i] = phase.getValue().get(i).getNanosPerOp();
+                alloc[i] = phase.getValue().get(i).getBytesPerOp();
+            }
+            double timeSlope = slope(sizes, time);
+            double allocSlope = slope(sizes, alloc);
+            report.println(String.format("%-28s %10.2f %10.2f%s", phase.getKey(), timeSlope, allocSlope,
+                    timeSlope > limit || allocSlope > limit ? "  SUPERLINEAR" : ""));
+        }
+    }
+
+    private Harness.Measurement report(Harness.Measurement measurement) {
+        report.println(measurement);
+        return measurement;
+    }
+
+    /**
+     * Generates the program of the given size.
+     *
+     * @param n The number of statements in the main body
+     * @return The text of the program
+     */
+    private String program(int n) {
+        ProgramGenerator generator = new ProgramGenerator(Long.parseLong(option("seed", "1")));
+        generator.setStatements(n);
+        generator.setDeclarations(Math.max(n / 10, 8));
+        generator.setSubprograms(n / 20);
+        generator.setExpressionDepth(Integer.parseInt(option("depth", "3")));
+        generator.setNesting(Integer.parseInt(option("nesting", "2")));
+        return generator.generate();
+    }
+
+    /**
+     * Scans the whole text one Token at a time.
+     *
+     * @return The number of tokens
+     */
+    private static long scan(String text) throws Exception {
+        MyScanner scanner = new MyScanner(new StringReader(text));
+        long tokens = 0;
+        while (scanner.nextToken() != null) {
+            tokens++;
+        }
+        return tokens;
+    }
+
+    /**
+     * Fits a least squares line through the logarithms of the sizes and the costs.
+     *
+     * @param sizes The sizes measured
+     * @param costs The cost at each size
+     * @return The slope of the line, or 0 if a cost is unknown
+     */
+    static double slope(int[] sizes, double[] costs) {
+        int n = sizes.length;
+        double sumX = 0;
+        double sumY = 0;
+        double sumXY = 0;
+        double sumXX = 0;
+        for (int i = 0; i < n; i++) {
+            if (costs[i] <= 0) {
+                return 0;
+            }
+            double x = Math.log(sizes[i]);
+            double y = Math.log(costs[i]);
+            sumX += x;
+            sumY += y;
+            sumXY += x * y;
+            sumXX += x * x;
+        }
+        double denominator = n * sumXX - sumX * sumX;
+        return denominator == 0 ? 0 : (n * sumXY - sumX * sumY) / denominator;
+    }
+}
@@ -0,0 +1,120 @@
+package benchmark;
+
+import parser.Parser;
+import syntaxtree.FlatTree;
+import syntaxtree.ProgramNode;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This is the main for the syntax tree memory comparison. It generates a program with the ProgramGenerator, parses
+ * it, and measures how much heap the ProgramNode tree keeps alive and how much the FlatTree converted from it does.
+ * Each is measured as the heap in use after a full collection with only that tree reachable, minus the heap in use
+ * before it was built, so the source text and the generator are not counted.
+ * Arguments, all optional:
+ * --statements 1000000     the number of main body statements
+ * --seed 1                 the seed of the generator
+ * --depth 3 --nesting 2    the expression depth and the if/while nesting of the program
+ * Like ScalingReport, the program also gets one declared variable per ten statements and one subprogram per twenty.
+ * A million statements needs a heap of about 4 GB, for example -Xmx4g.
+ * @author Gabriel Bergstrom
+ */
+public class TreeFootprint
+{
+    private Map<String, String> options = new HashMap<>();
+    private PrintStream report = System.out;
+    private MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws Throwable {
+        TreeFootprint footprint = new TreeFootprint(args);
+        Throwable[] failure = new Throwable[1];
+        //The parser recurses on nested statements and expressions
+        Thread thread = new Thread(null, () -> {
+            try {
+                footprint.run();
+            } catch (Throwable t) {
+                failure[0] = t;
+            }
+        }, "footprint", 1L << 30);
+        thread.start();
+        thread.join();
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+    }
+
+    private TreeFootprint(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Expected an option but found: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private void run() {
+        int n = Integer.parseInt(option("statements", "1000000"));
+        ProgramGenerator generator = new ProgramGenerator(Long.parseLong(option("seed", "1")));
+        generator.setStatements(n);
+        generator.setDeclarations(Math.max(n / 10, 8));
+        generator.setSubprograms(n / 20);
+        generator.setExpressionDepth(Integer.parseInt(option("depth", "3")));
+        generator.setNesting(Integer.parseInt(option("nesting", "2")));
+        String text = generator.generate();
+
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+        long baseline;
+        ProgramNode program;
+        try {
+            baseline = usedAfterCollection();
+            program = new Parser(text, false).program();
+        } finally {
+            System.setOut(report);
+        }
+        long objects = usedAfterCollection() - baseline;
+        FlatTree flat = FlatTree.of(program);
+        program = null;
+        long arrays = usedAfterCollection() - baseline;
+
+        report.println(String.format("%-12s %12s %14s %12s", "tree", "nodes", "bytes", "bytes/node"));
+        report.println(String.format("%-12s %12d %14d %12.1f", "ProgramNode", flat.size(), objects,
+                objects / (double) flat.size()));
+        report.println(String.format("%-12s %12d %14d %12.1f", "FlatTree", flat.size(), arrays,
+                arrays / (double) flat.size()));
+        report.println(String.format("%d statements, %d characters of source, FlatTree is %.1f%% of ProgramNode", n,
+                text.length(), 100.0 * arrays / objects));
+    }
+
+    /**
+     * @return The bytes of heap in use once collections stop freeing anything
+     */
+    private long usedAfterCollection() {
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long now = memory.getHeapMemoryUsage().getUsed();
+            if (now >= used) {
+                return now;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,17 @@
+package benchmark;
+
+/**
+ * One operation to be timed by the Harness, the equivalent of a JMH benchmark method.
+ * @author Gabriel Bergstrom
+ */
+public interface Workload
+{
+    /**
+     * Runs the operation once.
+     *
+     * @return The number of units the operation processed, such as tokens or statements. The Harness adds the
+     * results up so that the JIT cannot drop the work as dead code.
+     * @throws Exception if the operation fails, which stops the benchmark
+     */
+    long run() throws Exception;
+}
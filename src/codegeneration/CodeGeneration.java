@@ -1,30 +1,55 @@
 package codegeneration;
 
 import scanner.TokenType;
+import semanticanalysis.NameResolver;
 import symboltable.SymbolTable;
 import syntaxtree.*;
 
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 /**
  * @author Gabriel Bergstrom
  * This class will take in the program node generated from the Parser and will be converting it into MIPS assembly code.
  * The returned String will be a fully functioning MIPS assembly program that can be ran in the QTSPIM Simulator.
+ * The code is written from a FlatTree, and a ProgramNode is converted to one first.
+ * Variables are found through the Symbol NameResolver bound them to, so writing the code never looks a name up.
+ * The program's variables are .globl so another program can use them, and the imported variables it uses, which
+ * another program declares, are .extern instead of being given a word of their own.
  */
 public class CodeGeneration {
 
-    private ProgramNode programNode;
-    private SymbolTable symbolTable;
+    private FlatTree tree;
     private int currentRegister;
     private int ifNumber;
     private int looper;
+    private Set<SymbolTable.Symbol> externs = new LinkedHashSet<>();//The imported variables used, in order
 
+    /**
+     * Resolves the names of the program and converts it to a FlatTree.
+     * @param program The tree built by the Parser.
+     * @param symbolTbl The symbol table the Parser filled.
+     */
     public CodeGeneration(ProgramNode program, SymbolTable symbolTbl){
-        programNode = program;
-        symbolTable = symbolTbl;
+        this(resolve(program, symbolTbl));
+    }
+
+    /**
+     * @param program A tree converted from a ProgramNode after NameResolver bound every name to its Symbol.
+     */
+    public CodeGeneration(FlatTree program){
+        tree = program;
         currentRegister = 0;
         ifNumber = 0;
         looper = 0;
     }
 
+    private static FlatTree resolve(ProgramNode program, SymbolTable symbolTbl) {
+        new NameResolver(symbolTbl).resolve(program);
+        return FlatTree.of(program);
+    }
+
     /**
      * Starts the code from the root node by writing the outline of the
      * assembly code, and telling the root node to write its answer into $s0.
@@ -33,19 +58,44 @@ public class CodeGeneration {
     public String writeCode(){
         StringBuilder code = new StringBuilder();
         code.append( ".data\n");
-        for(VariableNode var: programNode.getVariables().getVariables()){
-            code.append(var.getName()).append("\t:.word\t0\n");
-            symbolTable.get(var.getName()).setMemoryAddress(var.getName());
+        int root = tree.getRoot();
+        Set<String> labels = new HashSet<>();
+        for (int var = tree.getFirstChild(tree.getChild(root, 0)); var != FlatTree.NONE; var = tree.getNextSibling(var)) {
+            labels.add(tree.getText(var));
+            code.append(".globl\t").append(tree.getText(var)).append("\n");
+            code.append(tree.getText(var)).append("\t:.word\t0\n");
+            tree.getSymbol(var).setMemoryAddress(tree.getText(var));
         }
-        code.append( ".text\n");
-        code.append( "main:\n");
-        code.append(pushToStack());
-        for (StatementNode state : programNode.getMain().getStatement()) {
-            code.append(writeStatement(state, "$s" + currentRegister));
+        externs.clear();
+        StringBuilder text = new StringBuilder();
+        text.append( ".text\n");
+        text.append( "main:\n");
+        text.append(pushToStack());
+        for (int state = tree.getFirstChild(tree.getChild(root, 2)); state != FlatTree.NONE; state = tree.getNextSibling(state)) {
+            text.append(writeStatement(state, "$s" + currentRegister));
+        }
+        text.append(popFromStack());
+        //A label the program defines is never declared .extern as well, which would not assemble
+        for (SymbolTable.Symbol symbol : externs) {
+            if (!labels.contains(address(symbol))) {
+                code.append(".extern\t").append(address(symbol)).append("\t4\n");
+            }
         }
-        code.append(popFromStack());
 
-        return code.toString();
+        return code.append(text).toString();
+    }
+
+    /**
+     * @param symbol A variable
+     * @return The label of its word, noting the variable if it is imported so that writeCode declares it .extern
+     */
+    private String address(SymbolTable.Symbol symbol) {
+        if (!symbol.isImported()) {
+            return symbol.getMemoryAddress();
+        }
+        externs.add(symbol);
+        //A table written before its program's code was generated has no addresses, and the label is the name
+        return symbol.getMemoryAddress() != null ? symbol.getMemoryAddress() : symbol.getId();
     }
 
     /**
@@ -57,16 +107,16 @@ public class CodeGeneration {
      * @param resultRegister The register in which to put the result.
      * @return The code which executes this operation.
      */
-    private String writeOperation(OperationNode opNode, String resultRegister)
+    private String writeOperation(int opNode, String resultRegister)
     {
         StringBuilder code = new StringBuilder();
-        ExpressionNode left = opNode.getLeft();
+        int left = tree.getFirstChild(opNode);
         String leftRegister = "$t" + currentRegister++;
         code.append(writeExpression( left, leftRegister));
-        ExpressionNode right = opNode.getRight();
+        int right = tree.getNextSibling(left);
         String rightRegister = "$t" + currentRegister++;
         code.append(writeExpression( right, rightRegister));
-        TokenType kindOfOp = opNode.getOperation();
+        TokenType kindOfOp = tree.getOperator(opNode);
         if( kindOfOp == TokenType.PLUS)
         {
             code.append("add    " + resultRegister + ",   " + leftRegister +",   " + rightRegister + "\n");
@@ -119,15 +169,26 @@ public class CodeGeneration {
      * The code is written by executing an add immediate with the value
      * into the destination register.
      * Writes code that looks like  addi $reg, $zero, value
+     * An integer too large for the 16 bit immediate and a real are loaded with li instead.
      * @param valNode The node containing the value.
      * @param resultRegister The register in which to put the value.
      * @return The code which executes this value node.
      */
-    private String writeValue(ValueNode valNode, String resultRegister)
+    private String writeValue(int valNode, String resultRegister)
     {
         StringBuilder code = new StringBuilder();
-        String value = valNode.getAttribute();
-        code.append("addi   " + resultRegister + ",   $zero, " + value + "\n");
+        if (tree.getType(valNode) == TokenType.REAL) {
+            //There is no floating point code yet, so a real is loaded as its single precision bit pattern
+            int bits = Float.floatToIntBits((float) tree.getRealValue(valNode));
+            code.append("li     " + resultRegister + ",   " + bits + "\t# " + tree.getText(valNode) + "\n");
+        }
+        else if (tree.getType(valNode) == TokenType.INTEGER && tree.getIntegerValue(valNode) > Short.MAX_VALUE) {
+            //addi only takes a 16 bit immediate
+            code.append("li     " + resultRegister + ",   " + tree.getIntegerValue(valNode) + "\n");
+        }
+        else {
+            code.append("addi   " + resultRegister + ",   $zero, " + tree.getText(valNode) + "\n");
+        }
         return code.toString();
     }
 
@@ -137,22 +198,24 @@ public class CodeGeneration {
      * @param resultRegister The register in which to put the value.
      * @return The code which executes this expression node.
      */
-    private String writeExpression(ExpressionNode express, String resultRegister) {
+    private String writeExpression(int express, String resultRegister) {
         StringBuilder code = new StringBuilder();
         code.append("\n#Expression\n");
-        if(express instanceof ValueNode){
-            code.append(writeValue((ValueNode) express, resultRegister));
+        int kind = tree.getKind(express);
+        if(kind == FlatTree.VALUE){
+            code.append(writeValue(express, resultRegister));
         }
-        else if (express instanceof OperationNode){
-            code.append(writeOperation((OperationNode) express, resultRegister));
+        else if (kind == FlatTree.OPERATION){
+            code.append(writeOperation(express, resultRegister));
         }
-        else if (express instanceof VariableNode){
-            if(symbolTable.get(((VariableNode) express).getName()) != null){
-                String variable = symbolTable.get(((VariableNode) express).getName()).getMemoryAddress();
+        else if (kind == FlatTree.VARIABLE){
+            SymbolTable.Symbol symbol = tree.getSymbol(express);
+            if(symbol != null){
+                String variable = address(symbol);
                 code.append("lw\t").append(resultRegister).append(",\t").append(variable).append("\n");
             }
             else{
-                code.append("addi   " + resultRegister + ",   $zero, " + ((VariableNode) express).getName()+ "\n");
+                code.append("addi   " + resultRegister + ",   $zero, " + tree.getText(express)+ "\n");
             }
         }
         else {
@@ -167,19 +230,22 @@ public class CodeGeneration {
      * @param resultRegister The register in which to put the value.
      * @return The code which executes this statement node.
      */
-    private String writeStatement(StatementNode statementNode, String resultRegister){
+    private String writeStatement(int statementNode, String resultRegister){
         StringBuilder code = new StringBuilder();
-        if(statementNode instanceof AssignmentStatementNode){
-            code.append(writeAssignment((AssignmentStatementNode) statementNode, resultRegister ));
+        int kind = tree.getKind(statementNode);
+        if(kind == FlatTree.ASSIGNMENT){
+            code.append(writeAssignment(statementNode, resultRegister ));
         }
-        else if (statementNode instanceof IfStatementNode){
-            code.append(writeIfStatement((IfStatementNode)statementNode, resultRegister));
+        else if (kind == FlatTree.IF){
+            code.append(writeIfStatement(statementNode, resultRegister));
         }
-        else if (statementNode instanceof WhileStatementNode){
-            code.append(writeWhileStatement((WhileStatementNode)statementNode, resultRegister));
+        else if (kind == FlatTree.WHILE){
+            code.append(writeWhileStatement(statementNode, resultRegister));
         }
-        else if (statementNode instanceof CompoundStatementNode){
-            code.append(writeStatement((CompoundStatementNode)statementNode, resultRegister));
+        else if (kind == FlatTree.COMPOUND){
+            for (int state = tree.getFirstChild(statementNode); state != FlatTree.NONE; state = tree.getNextSibling(state)) {
+                code.append(writeStatement(state, resultRegister));
+            }
         }else{
             code.append("ERROR AT WRITE STATEMENT");
         }
@@ -192,20 +258,21 @@ public class CodeGeneration {
      * @param resultRegister The register in which to put the value.
      * @return The code which executes this if_statement node.
      */
-    private String writeIfStatement(IfStatementNode ifStatementNode, String resultRegister) {
+    private String writeIfStatement(int ifStatementNode, String resultRegister) {
         StringBuilder code = new StringBuilder();
         code.append("\n#if statement\n");
-        code.append(writeOperation((OperationNode) ifStatementNode.getTest(), resultRegister)).append("else").append(ifNumber).append("\n");
+        int test = tree.getFirstChild(ifStatementNode);
+        code.append(writeOperation(test, resultRegister)).append("else").append(ifNumber).append("\n");
 
         code.append("\n# then\n");
         resultRegister = "$s" + currentRegister++;
-        code.append(writeStatement(ifStatementNode.getThenStatement(), resultRegister));
+        code.append(writeStatement(tree.getNextSibling(test), resultRegister));
         code.append("\nj\tendIf").append(ifNumber).append("\n");
 
         code.append("\n# else\n");
         resultRegister = "$s" + currentRegister++;
         code.append("else").append(ifNumber).append(":\n");
-        code.append(writeStatement(ifStatementNode.getElseStatement(), resultRegister));
+        code.append(writeStatement(tree.getNextSibling(tree.getNextSibling(test)), resultRegister));
         code.append("\nendIf").append(ifNumber).append(":\n");
 
         currentRegister -= 2;
@@ -218,10 +285,11 @@ public class CodeGeneration {
      * @param resultRegister The register in which to put the value.
      * @return  The code which executes this assignment_statement node.
      */
-    private String writeAssignment(AssignmentStatementNode assignmentStatementNode, String resultRegister) {
+    private String writeAssignment(int assignmentStatementNode, String resultRegister) {
         StringBuilder code = new StringBuilder();
-        code.append("\n#Assignment\n").append(writeExpression(assignmentStatementNode.getExpression(), resultRegister))
-                .append("sw\t").append(resultRegister).append(",\t").append(symbolTable.get(assignmentStatementNode.getLvalue().getName()).getMemoryAddress());
+        int lvalue = tree.getFirstChild(assignmentStatementNode);
+        code.append("\n#Assignment\n").append(writeExpression(tree.getNextSibling(lvalue), resultRegister))
+                .append("sw\t").append(resultRegister).append(",\t").append(address(tree.getSymbol(lvalue)));
         return code.toString();
     }
 
@@ -231,16 +299,17 @@ public class CodeGeneration {
      * @param resultRegister The register in which to put the value.
      * @return  The code which executes this while_statement node.
      */
-    private String writeWhileStatement(WhileStatementNode whileStatementNode, String resultRegister) {
+    private String writeWhileStatement(int whileStatementNode, String resultRegister) {
         StringBuilder code = new StringBuilder();
         code.append("\n#While Loop\n");
         code.append("while").append(looper).append(":\n");
-        code.append(writeExpression(whileStatementNode.getTest(), resultRegister));
+        int test = tree.getFirstChild(whileStatementNode);
+        code.append(writeExpression(test, resultRegister));
         code.append("endWhile").append(looper).append(":\n");
 
         currentRegister++;
         resultRegister = "$s" + currentRegister;
-        code.append(writeStatement(whileStatementNode.getDoStatement(), resultRegister));
+        code.append(writeStatement(tree.getNextSibling(test), resultRegister));
 
         code.append("\tj while").append(looper).append(":\n");
         code.append("endWhile").append(looper).append(":\n");
@@ -2,8 +2,14 @@ package compiler;
 
 import codegeneration.CodeGeneration;
 import parser.Parser;
+import scanner.Diagnostics;
 import syntaxtree.ProgramNode;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -19,34 +25,116 @@ import java.util.Scanner;
  * A user will enter in the file path of the desired input:
  * If the file is a grammatically correct Pascal program and no errors occur then the Compile will state that it compiled successfully
  * and the newly created symbol table will be written to a file.
+ * The symbol table is also written to SymbolTable.sym, which a later compilation can read back by naming it after the
+ * input file, so that the symbols of a program compiled before are known without parsing that program again. The MIPS
+ * code declares the variables it uses from such a program .extern, to be assembled along with that program's code, and
+ * they are not written to this program's SymbolTable.sym. Declaring one of those names again is an error, since both
+ * programs would then define its label.
  * If the file is no good the Compiler will fail and it will state the failure with a semi helpful message of where the error occurred.
  * @author Gabriel Bergstrom
  */
 public class CompilerMain {
+    /** The number of syntax errors reported before the compiler gives up on a file */
+    public static final int MAX_ERRORS = 100;
+
     public static void main(String args[]){
         String input = args[0];
         Scanner scan = new Scanner(input);
+        Diagnostics diagnostics = new Diagnostics();
         try {
             Parser parser = new Parser(scan.next(), true);
-            ProgramNode tree = parser.program();
-            CodeGeneration generation = new CodeGeneration(tree, parser.getSymbolTable());
+            for (int i = 1; i < args.length; i++) {
+                try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(args[i])))) {
+                    parser.getSymbolTable().read(in);
+                }
+            }
+            String[] output = compile(parser, diagnostics, MAX_ERRORS);
+            System.out.print(diagnostics);
             System.out.print("Did it successfully compile: YES");
 
-            List<String> lines = Arrays.asList(tree.indentedToString(1));
+            List<String> lines = Arrays.asList(output[0]);
             Path file = Paths.get("Syntax-Tree.txt");
             Files.write(file, lines, Charset.forName("UTF-8"));
 
-            lines = Arrays.asList(parser.getSymbolTable().toString());
+            lines = Arrays.asList(output[1]);
             file = Paths.get("SymbolTable.txt");
             Files.write(file, lines, Charset.forName("UTF-8"));
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get("SymbolTable.sym")))) {
+                parser.getSymbolTable().write(out);
+            }
 
-            lines = Arrays.asList(generation.writeCode());
+            lines = Arrays.asList(output[2]);
             file = Paths.get("MIPS.asm");
             Files.write(file, lines, Charset.forName("UTF-8"));
         }
         catch (Exception e){
+            System.out.print(diagnostics);
             System.out.print("Did it successfully compile: NO" +"\n");
             System.err.print("Compiler failed: "+ e.getMessage());
         }
     }
+
+    /**
+     * Runs every phase of the compiler without writing any files.
+     * @param text The Pascal program, or the path of a file holding it
+     * @param isFilename true if text is a path
+     * @return The syntax tree, the symbol table and the MIPS code, in that order
+     */
+    public static String[] compile(String text, boolean isFilename){
+        return compile(text, isFilename, new Diagnostics());
+    }
+
+    /**
+     * Runs every phase of the compiler without writing any files, collecting the illegal characters the scanner finds.
+     * @param text The Pascal program, or the path of a file holding it
+     * @param isFilename true if text is a path
+     * @param diagnostics The sink the scanner's Diagnostics are moved to, even if the compilation fails
+     * @return The syntax tree, the symbol table and the MIPS code, in that order
+     */
+    public static String[] compile(String text, boolean isFilename, Diagnostics diagnostics){
+        return compile(text, isFilename, diagnostics, 1);
+    }
+
+    /**
+     * Runs every phase of the compiler without writing any files, recovering from syntax errors so that one run
+     * reports up to maxErrors of them.
+     * @param text The Pascal program, or the path of a file holding it
+     * @param isFilename true if text is a path
+     * @param diagnostics The sink the scanner's Diagnostics are moved to, even if the compilation fails
+     * @param maxErrors The number of syntax errors to stop at, 1 to stop at the first
+     * @return The syntax tree, the symbol table and the MIPS code, in that order
+     */
+    public static String[] compile(String text, boolean isFilename, Diagnostics diagnostics, int maxErrors){
+        return compile(new Parser(text, isFilename), diagnostics, maxErrors);
+    }
+
+    /**
+     * Runs every phase of the compiler on a file with a Parser that is reset to it instead of a new one, so that a
+     * worker thread compiling many files reuses one scanner buffer, token ring and symbol table for all of them.
+     * The file is memory mapped and decoded as UTF-8, see Parser.reset(Path).
+     * @param parser The worker's Parser, whose previous SymbolTable and Diagnostics are emptied
+     * @param file The file holding the Pascal program
+     * @param diagnostics The sink the scanner's Diagnostics are moved to, even if the compilation fails
+     * @param maxErrors The number of syntax errors to stop at, 1 to stop at the first
+     * @return The syntax tree, the symbol table and the MIPS code, in that order
+     * @throws IOException if the file cannot be opened
+     */
+    public static String[] compile(Parser parser, Path file, Diagnostics diagnostics, int maxErrors)
+            throws IOException {
+        parser.reset(file);
+        return compile(parser, diagnostics, maxErrors);
+    }
+
+    private static String[] compile(Parser parser, Diagnostics diagnostics, int maxErrors){
+        parser.setMaxErrors(maxErrors);
+        try {
+            ProgramNode tree = parser.program();
+            CodeGeneration generation = new CodeGeneration(tree, parser.getSymbolTable());
+            String syntaxTree = tree.indentedToString(1);
+            String symbolTable = parser.getSymbolTable().toString();
+            return new String[] {syntaxTree, symbolTable, generation.writeCode()};
+        } finally {
+            diagnostics.addAll(parser.getDiagnostics());
+        }
+    }
 }
@@ -0,0 +1,95 @@
+package parser;
+
+import syntaxtree.ProgramNode;
+
+import java.util.Arrays;
+
+/**
+ * This class records where the top level parts of a program parsed from a TokenBuffer are: the token span of every
+ * subprogram declaration, with the symbols it added, and the span of the main compound statement. Parser.reparse
+ * uses it to find the one part an edit falls in and to reuse everything else of the previous tree.
+ * Subprograms are kept in source order, procedures included even though the tree leaves them out, so that an edit
+ * to one is found like an edit to a function.
+ * @author Gabriel Bergstrom
+ */
+class Outline
+{
+    ProgramNode program;
+    String name;
+    int count;
+    int[] functionIndexes = new int[8];//The index in the SubProgramDeclarationsNode, -1 for procedures
+    int[] starts = new int[8];//The FUNCTION or PROCEDURE token
+    int[] ends = new int[8];//The token after the SEMI
+    int[] symbolStarts = new int[8];
+    int[] symbolEnds = new int[8];
+    boolean[] retyped = new boolean[8];//The function head changed the type of a symbol declared before it
+    int mainStart;
+    int mainEnd;//The token after the END
+    int symbols;//The number of symbols the main compound statement sees
+
+    /**
+     * Records a subprogram declaration.
+     *
+     * @param functionIndex The index of the node in the SubProgramDeclarationsNode, -1 for a procedure
+     * @param start         The first token of the declaration
+     * @param end           The token after its SEMI
+     * @param symbolStart   The number of symbols before the declaration
+     * @param symbolEnd     The number of symbols after it
+     * @param retyped       true if it changed the type of a symbol declared before it
+     */
+    void add(int functionIndex, int start, int end, int symbolStart, int symbolEnd,
+             boolean retyped) {
+        if (count == starts.length) {
+            int capacity = count * 2;
+            functionIndexes = Arrays.copyOf(functionIndexes, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            symbolStarts = Arrays.copyOf(symbolStarts, capacity);
+            symbolEnds = Arrays.copyOf(symbolEnds, capacity);
+            this.retyped = Arrays.copyOf(this.retyped, capacity);
+        }
+        functionIndexes[count] = functionIndex;
+        starts[count] = start;
+        ends[count] = end;
+        symbolStarts[count] = symbolStart;
+        symbolEnds[count] = symbolEnd;
+        this.retyped[count] = retyped;
+        count++;
+    }
+
+    /**
+     * Finds the subprogram declaration that holds a range of tokens.
+     *
+     * @param first The first token of the range
+     * @param last  The token after the range
+     * @return The index of the subprogram, or -1 if no one subprogram holds the whole range
+     */
+    int find(int first, int last) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ends[middle] <= first) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < count && starts[low] <= first && last <= ends[low] ? low : -1;
+    }
+
+    /**
+     * Moves every span that starts at or after a token, after an edit changed the number of tokens before it.
+     *
+     * @param from  The first subprogram to move
+     * @param delta The number of tokens added, negative if tokens were removed
+     */
+    void shift(int from, int delta) {
+        for (int i = from; i < count; i++) {
+            starts[i] += delta;
+            ends[i] += delta;
+        }
+        mainStart += delta;
+        mainEnd += delta;
+    }
+}
@@ -0,0 +1,218 @@
+package parser;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+import java.util.Arrays;
+
+/**
+ * This class holds what a ProfilingParser measured of its last parse: for each grammar method, how many times it was
+ * called, how long it ran not counting the grammar methods it called (its self time) and how many tokens its calls
+ * consumed. Tokens are counted from the call to its return, so a production that holds another counts the tokens of
+ * both.
+ * When a parse ends its numbers also go to Java Flight Recorder, as one parser.Parse event for the whole parse and
+ * one parser.Production event for each grammar method that was called, which a recording started with
+ * -XX:StartFlightRecording or jcmd picks up.
+ * @author Gabriel Bergstrom
+ */
+public class ParseProfile
+{
+    /**
+     * The grammar methods of the Parser that are measured.
+     */
+    public enum Production {
+        PROGRAM("program"), IDENTIFIER_LIST("identiferList"), DECLARATIONS("declarations"), TYPE("type"),
+        STANDARD_TYPE("standardType"), SUBPROGRAM_DECLARATIONS("subprogramDeclarations"),
+        SUBPROGRAM_DECLARATION("subprogramDeclaration"), SUBPROGRAM_HEAD("subprogramHead"),
+        ARGUMENTS("arguments"), PARAMETER_LIST("parameterList"), COMPOUND_STATEMENT("compoundStatement"),
+        OPTIONAL_STATEMENTS("optionalStatements"), STATEMENT_LIST("statementList"), STATEMENT("statement"),
+        VARIABLE("variable"), PROCEDURE_STATEMENT("procedureStatement"), EXPRESSION_LIST("expressionList"),
+        EXPRESSION("expression"), SIMPLE_EXPRESSION("simpleExpression"), TERM("term"), FACTOR("factor"),
+        SIGN("sign");
+
+        private final String method;
+
+        Production(String method) {
+            this.method = method;
+        }
+
+        /**
+         * @return The name of the Parser method
+         */
+        public String getMethod() {
+            return method;
+        }
+    }
+
+    @Name("parser.Parse")
+    @Label("Parse")
+    @Category({"Mini-Pascal", "Parser"})
+    @Description("One program parsed by a ProfilingParser")
+    static class ParseEvent extends Event {
+        @Label("Tokens")
+        long tokens;
+    }
+
+    @Name("parser.Production")
+    @Label("Production")
+    @Category({"Mini-Pascal", "Parser"})
+    @Description("The calls of one grammar method during a parse")
+    static class ProductionEvent extends Event {
+        @Label("Production")
+        String production;
+        @Label("Calls")
+        long calls;
+        @Label("Self Time")
+        @Timespan
+        long selfTime;
+        @Label("Tokens")
+        long tokens;
+    }
+
+    private static final Production[] PRODUCTIONS = Production.values();
+
+    private long[] calls = new long[PRODUCTIONS.length];
+    private long[] selfNanos = new long[PRODUCTIONS.length];
+    private long[] tokens = new long[PRODUCTIONS.length];
+
+    //The calls that have not returned yet, innermost last
+    private int depth;
+    private long[] started = new long[64];
+    private long[] childNanos = new long[64];
+    private int[] startTokens = new int[64];
+
+    private ParseEvent parse;
+    private int parseStart;
+
+    /**
+     * Starts measuring a new parse, forgetting the last one.
+     *
+     * @param position The tokens consumed before the parse
+     */
+    void begin(int position) {
+        Arrays.fill(calls, 0);
+        Arrays.fill(selfNanos, 0);
+        Arrays.fill(tokens, 0);
+        depth = 0;
+        parseStart = position;
+        parse = new ParseEvent();
+        parse.begin();
+    }
+
+    /**
+     * Ends the parse and sends its events to Flight Recorder, if a recording wants them.
+     *
+     * @param position The tokens consumed by the end of the parse
+     */
+    void end(int position) {
+        if (parse == null) {
+            return;
+        }
+        parse.end();
+        if (parse.shouldCommit()) {
+            parse.tokens = position - parseStart;
+            parse.commit();
+        }
+        parse = null;
+        for (Production production : PRODUCTIONS) {
+            int i = production.ordinal();
+            if (calls[i] == 0) {
+                continue;
+            }
+            ProductionEvent event = new ProductionEvent();
+            if (event.shouldCommit()) {
+                event.production = production.getMethod();
+                event.calls = calls[i];
+                event.selfTime = selfNanos[i];
+                event.tokens = tokens[i];
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Records that a grammar method was called.
+     *
+     * @param position The tokens consumed before the call
+     */
+    void enter(int position) {
+        if (depth == started.length) {
+            started = Arrays.copyOf(started, depth * 2);
+            childNanos = Arrays.copyOf(childNanos, depth * 2);
+            startTokens = Arrays.copyOf(startTokens, depth * 2);
+        }
+        childNanos[depth] = 0;
+        startTokens[depth] = position;
+        started[depth++] = System.nanoTime();
+    }
+
+    /**
+     * Records that the grammar method entered last returned, or threw.
+     *
+     * @param production The method
+     * @param position   The tokens consumed when it returned
+     */
+    void exit(Production production, int position) {
+        long elapsed = System.nanoTime() - started[--depth];
+        int i = production.ordinal();
+        calls[i]++;
+        selfNanos[i] += elapsed - childNanos[depth];
+        tokens[i] += position - startTokens[depth];
+        if (depth > 0) {
+            childNanos[depth - 1] += elapsed;
+        }
+    }
+
+    /**
+     * @param production A grammar method
+     * @return The number of times it was called
+     */
+    public long getCalls(Production production) {
+        return calls[production.ordinal()];
+    }
+
+    /**
+     * @param production A grammar method
+     * @return The nanoseconds spent in it, not counting the grammar methods it called
+     */
+    public long getSelfNanos(Production production) {
+        return selfNanos[production.ordinal()];
+    }
+
+    /**
+     * @param production A grammar method
+     * @return The tokens consumed during its calls
+     */
+    public long getTokens(Production production) {
+        return tokens[production.ordinal()];
+    }
+
+    /**
+     * The summary table: one row for each grammar method that was called, the slowest first by self time.
+     */
+    @Override
+    public String toString() {
+        long total = 0;
+        Production[] rows = PRODUCTIONS.clone();
+        for (Production production : rows) {
+            total += selfNanos[production.ordinal()];
+        }
+        Arrays.sort(rows, (a, b) -> Long.compare(selfNanos[b.ordinal()], selfNanos[a.ordinal()]));
+        StringBuilder answer = new StringBuilder(String.format("%-24s %12s %12s %7s %12s %11s%n", "production",
+                "calls", "self ms", "self %", "tokens", "tokens/call"));
+        for (Production production : rows) {
+            int i = production.ordinal();
+            if (calls[i] == 0) {
+                continue;
+            }
+            answer.append(String.format("%-24s %12d %12.3f %7.1f %12d %11.1f%n", production.getMethod(), calls[i],
+                    selfNanos[i] / 1e6, total == 0 ? 0.0 : 100.0 * selfNanos[i] / total, tokens[i],
+                    tokens[i] / (double) calls[i]));
+        }
+        return answer.toString();
+    }
+}
@@ -1,13 +1,25 @@
 package parser;
 
+import scanner.Diagnostics;
+import scanner.MappedSourceReader;
 import scanner.MyScanner;
-import scanner.Token;
+import scanner.NamePool;
+import scanner.TokenBuffer;
+import scanner.TokenRing;
 import scanner.TokenType;
 import symboltable.SymbolTable;
 import syntaxtree.*;
 
 import java.io.*;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
 
 /**
  * The parser is whats recognizes whether an input string of tokens from the
@@ -19,13 +31,123 @@ import java.util.ArrayList;
 public class Parser {
 
     //  Instance variables
-    private Token lookahead;
+    private TokenRing tokens;
+    private TokenType lookaheadType;
     private MyScanner myScanner;
+    private Reader input;
+    private MappedSourceReader source;//Kept for the next reset(Path)
+    private TokenBuffer tokenBuffer;
+    private int tokenIndex;
     private SymbolTable symbTable;
     private String lexeme;
+    private int nameId;
     private TokenType type;
+    private int maxErrors = 1;
+    private ArrayList<SyntaxError> syntaxErrors = new ArrayList<>();
+    private int recoveredAt = -1;//The token the last recovery stopped at
+    private ForkJoinPool subprogramPool;
+    private boolean lazyBodies;
+    private ArrayList<Body> bodies;//The subprogram bodies the skim has found, while it is running
+    private StringBuilder minorErrors;//Holds minor errors back from System.out until they can be printed in order
+    private Outline outline;//Where the parts of the last program parsed from a TokenBuffer are, for reparse
+    private Outline outlining;//The outline top level subprograms are recorded in, while they are parsed
+    private int partSymbols = -1;//The symbols before the top level subprogram being outlined or reparsed
+    private boolean partRetyped;//Set when that subprogram changes the type of a symbol declared before it
+    private ExpressionNode[] run = new ExpressionNode[16];//The operands and operators of the runs being collected
+    private int runSize;
+
+    //The tokens each recovery point skips to after an error, which end or follow what it was parsing
+    private static final EnumSet<TokenType> STATEMENT_FOLLOW = EnumSet.of(TokenType.SEMI, TokenType.END,
+            TokenType.ELSE, TokenType.PERIOD);
+    private static final EnumSet<TokenType> EXPRESSION_FOLLOW = EnumSet.of(TokenType.SEMI, TokenType.END,
+            TokenType.ELSE, TokenType.THEN, TokenType.DO, TokenType.RPAREN, TokenType.RBRACE, TokenType.COMMA,
+            TokenType.PERIOD);
+    private static final EnumSet<TokenType> DECLARATION_FOLLOW = EnumSet.of(TokenType.SEMI, TokenType.VAR,
+            TokenType.FUNCTION, TokenType.PROCEDURE, TokenType.BEGIN);
+    private static final EnumSet<TokenType> SUBPROGRAM_FOLLOW = EnumSet.of(TokenType.SEMI, TokenType.FUNCTION,
+            TokenType.PROCEDURE, TokenType.BEGIN);
+    private static final EnumSet<TokenType> COMPOUND_FOLLOW = EnumSet.of(TokenType.SEMI, TokenType.END,
+            TokenType.PERIOD, TokenType.ID, TokenType.BEGIN, TokenType.IF, TokenType.WHILE);
+
+    //The precedence of each operator, indexed by the ordinal of its TokenType, 0 for tokens that are not operators
+    private static final int RELATIONAL = 1;
+    private static final int ADDING = 2;
+    private static final int MULTIPLYING = 3;
+    private static final int[] PRECEDENCE = new int[TokenType.values().length];
+
+    static {
+        for (TokenType relop : new TokenType[] {TokenType.EQUAL, TokenType.NOTEQ, TokenType.LTHAN, TokenType.LTHANEQ,
+                TokenType.GTHANEQ, TokenType.GTHAN}) {
+            PRECEDENCE[relop.ordinal()] = RELATIONAL;
+        }
+        for (TokenType addop : new TokenType[] {TokenType.PLUS, TokenType.MINUS, TokenType.OR}) {
+            PRECEDENCE[addop.ordinal()] = ADDING;
+        }
+        for (TokenType mulop : new TokenType[] {TokenType.ASTERISK, TokenType.FSLASH, TokenType.DIV, TokenType.MOD,
+                TokenType.AND}) {
+            PRECEDENCE[mulop.ordinal()] = MULTIPLYING;
+        }
+    }
+
+    /**
+     * Unwinds the parser from an error it has recorded to the closest recovery point. It has no stack trace,
+     * because it is only ever caught by the parser itself.
+     */
+    private static class ParseError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        ParseError(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    /**
+     * A subprogram body that the skim found the extent of, parsed on its own by a Parser that sees the symbol table
+     * as it was when the body was reached.
+     */
+    private class Body extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private SubProgramNode subprogram;
+        private int start;
+        private int end;
+        private int symbols;
+        private String before;//The minor errors the skim held back before the body
+        private CompoundStatementNode main;
+        private String output;
+        private boolean failed;
+
+        Body(SubProgramNode subprogram, int start, int end, int symbols, String before) {
+            this.subprogram = subprogram;
+            this.start = start;
+            this.end = end;
+            this.symbols = symbols;
+            this.before = before;
+        }
+
+        @Override
+        protected void compute() {
+            Parser parser = new Parser(tokenBuffer, symbTable.asOf(symbols), start);
+            try {
+                main = parser.compoundStatement();
+                output = parser.minorErrors.toString();
+                failed = parser.tokenIndex != end;
+            } catch (RuntimeException | StackOverflowError e) {
+                //The body is parsed again in order, which reports the error
+                failed = true;
+            }
+        }
+    }
 
     //    Constructors
+
+    /**
+     * Creates a parser for a program, reading a file through an InputStreamReader in the platform charset. A file
+     * can instead be memory mapped and decoded as UTF-8 by reset(Path).
+     *
+     * @param text       The program, or the path of a file holding it
+     * @param isFilename true if text is a path
+     */
     public Parser(String text, boolean isFilename) {
         if (isFilename) {
             FileInputStream fis = null;
@@ -34,17 +156,109 @@ public class Parser {
             } catch (FileNotFoundException ex) {
                 errorHandling("File not found");
             }
-            InputStreamReader isr = new InputStreamReader(fis);
-            myScanner = new MyScanner(isr);
+            input = new InputStreamReader(fis);
         } else {
-            myScanner = new MyScanner(new StringReader(text));
+            input = new StringReader(text);
         }
+        myScanner = new MyScanner(input);
+        //The scanner and the symbol table share one pool so that they agree on the id of every name
+        NamePool names = new NamePool();
+        myScanner.setNamePool(names);
+        tokens = new TokenRing(myScanner);
         try {
-            lookahead = myScanner.nextToken();
-        } catch (IOException ex) {
+            lookaheadType = tokens.peek(0);
+        } catch (UncheckedIOException ex) {
             errorHandling("Scan error");
         }
-        symbTable = new SymbolTable();
+        symbTable = new SymbolTable(names);
+    }
+
+    /**
+     * Creates a parser that reads from an already lexed TokenBuffer instead of scanning through a TokenRing as it
+     * goes. Lexemes are only materialised for the identifiers and numbers the parser actually looks at.
+     *
+     * @param tokens The tokens of the whole program
+     */
+    public Parser(TokenBuffer tokens) {
+        tokenBuffer = tokens;
+        tokenIndex = 0;
+        lookaheadType = tokens.size() > 0 ? tokens.getType(0) : null;
+        symbTable = new SymbolTable(tokens.getNamePool());
+    }
+
+    /**
+     * Creates a parser for one subprogram body, which holds back its minor errors and stops at its first error.
+     */
+    private Parser(TokenBuffer tokens, SymbolTable symbols, int start) {
+        tokenBuffer = tokens;
+        tokenIndex = start;
+        lookaheadType = tokens.getType(start);
+        symbTable = symbols;
+        minorErrors = new StringBuilder();
+    }
+
+    /**
+     * Creates a parser with no input, for a worker that gives it one program after another with reset.
+     */
+    public Parser() {
+        this("", false);
+    }
+
+    /**
+     * Gives the parser a new program to parse. The MyScanner with its buffer, the TokenRing, the NamePool, the
+     * SymbolTable and the error list are all reused instead of built again, so a worker thread that compiles many
+     * programs with one Parser allocates nothing to set up each of them once the buffers have grown to fit.
+     * The previous input is closed, and the SymbolTable and Diagnostics of the previous parse are emptied, so
+     * anything that still needs them has to be done before the reset. The error cap is kept.
+     *
+     * @param reader The program to parse
+     */
+    public void reset(Reader reader) {
+        if (input != null && input != reader) {
+            try {
+                input.close();
+            } catch (IOException ex) {
+                //The previous program has already been parsed
+            }
+        }
+        input = reader;
+        if (myScanner == null) {
+            //A parser over a TokenBuffer has no scanner of its own yet
+            myScanner = new MyScanner(reader);
+            myScanner.setNamePool(new NamePool());
+            tokens = new TokenRing(myScanner);
+            symbTable = new SymbolTable(myScanner.getNamePool());
+            tokenBuffer = null;
+        } else {
+            myScanner.yyreset(reader);
+            myScanner.getNamePool().clear();
+            myScanner.getDiagnostics().clear();
+            tokens.reset();
+            symbTable.clear();
+        }
+        syntaxErrors.clear();
+        recoveredAt = -1;
+        try {
+            lookaheadType = tokens.peek(0);
+        } catch (UncheckedIOException ex) {
+            errorHandling("Scan error");
+        }
+    }
+
+    /**
+     * Gives the parser a program in a file to parse, as reset(Reader) does. Unlike the constructor, which reads a file
+     * in the platform charset, every file is mapped through the same MappedSourceReader and decoded as UTF-8.
+     *
+     * @param file The file holding the program
+     * @throws IOException if the file cannot be opened
+     */
+    public void reset(Path file) throws IOException {
+        if (source == null) {
+            source = new MappedSourceReader(file);
+        } else {
+            source.open(file);
+        }
+        reset(source);
     }
 
     /**
@@ -56,27 +270,87 @@ public class Parser {
         return symbTable;
     }
 
+    /**
+     * Get the illegal characters the scanner found
+     *
+     * @return The Diagnostics of the scanner, or of the TokenBuffer being parsed
+     */
+    public Diagnostics getDiagnostics() {
+        return tokenBuffer != null ? tokenBuffer.getDiagnostics() : myScanner.getDiagnostics();
+    }
+
+    /**
+     * Sets how many errors the parser records before it stops. With the default of 1 it stops at the first error,
+     * otherwise it recovers from each error by skipping to a token that can follow the statement, expression,
+     * declaration or subprogram it was parsing, and program() throws one exception listing every error.
+     *
+     * @param maxErrors The number of errors to stop at, at least 1
+     */
+    public void setMaxErrors(int maxErrors) {
+        if (maxErrors < 1) {
+            throw new IllegalArgumentException("The error cap must be at least 1: " + maxErrors);
+        }
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Sets the pool subprogram bodies are parsed on. With a pool, a parser over a TokenBuffer parses the
+     * subprogram_declarations in two phases: the heads and declarations in order while skimming over each body by
+     * matching its begin and end, then every body at once on the pool. The bodies are put back in source order, so
+     * the tree, the symbol table and the minor errors printed are the same as a parse without a pool. If anything
+     * goes wrong the subprograms are parsed again one after another, so errors are reported as they always are.
+     * A parser that scans as it goes through a TokenRing cannot look past a body and ignores the pool.
+     *
+     * @param pool The pool, or null to parse subprogram bodies in order
+     */
+    public void setSubprogramPool(ForkJoinPool pool) {
+        this.subprogramPool = pool;
+    }
+
+    /**
+     * Makes program() parse the head and declarations of every subprogram but leave its body as a range of tokens,
+     * parsed the first time SubProgramNode.getMain() is called, for tools that only need the signatures. A body is
+     * parsed against the symbol table as it was when the body was reached and stops at its first error, which
+     * getMain() throws, and its minor errors are printed when it is parsed. Bodies have to be parsed before the
+     * parser is reset, and reparse parses the whole program again while this is on, because a body left for later
+     * is read from the TokenBuffer. The pool is not used, since there are no bodies to give it.
+     * A parser that scans as it goes through a TokenRing cannot look past a body and parses every body at once.
+     *
+     * @param lazy true to parse subprogram bodies when they are first asked for
+     */
+    public void setLazyBodies(boolean lazy) {
+        this.lazyBodies = lazy;
+    }
+
+    /**
+     * Get the errors found by the parse
+     *
+     * @return The errors in the order they were found
+     */
+    public List<SyntaxError> getSyntaxErrors() {
+        return Collections.unmodifiableList(syntaxErrors);
+    }
+
     /**
      * Matches the expected token with the input.
      * If the current inputted token matches expected then the current token is consumed
-     * and the myScanner will move on to the next token.
+     * and the parser moves on to the next token, which the TokenRing has normally scanned already.
      * If they do not match then an error message appears and the parser is stopped
      *
      * @param expected
      */
     public void match(TokenType expected) {
-        if (this.lookahead.getType() == expected) {
-            try {
-                this.lookahead = this.myScanner.nextToken();
-                if (this.lookahead == null) {
-                    this.lookahead = new Token("End of File", null, null);
-                }
-            } catch (IOException e) {
-                errorHandling("MyScanner Exception");
+        if (this.lookaheadType == expected) {
+            if (this.tokenBuffer != null) {
+                this.tokenIndex++;
+                this.lookaheadType = this.tokenIndex < this.tokenBuffer.size() ? this.tokenBuffer.getType(this.tokenIndex) : null;
+                return;
             }
+            this.tokens.advance();
+            this.lookaheadType = this.tokens.peek(0);
         } else {
             errorHandling("Match expected: " + expected + "\t" +
-                    "Match found: " + this.lookahead.getType() + " ");
+                    "Match found: " + this.lookaheadType + " ");
         }
 
     }
@@ -87,7 +361,57 @@ public class Parser {
      * @param error The error message
      */
     public void errorHandling(String error) {
-        throw new RuntimeException(error + "occurred at line: " + myScanner.yylength() + "\n");
+        //An error at the token the parser recovered at is usually caused by the recovery, so it is not reported
+        if (tokenPosition() != this.recoveredAt) {
+            reportError(error);
+        }
+        throw new ParseError(error);
+    }
+
+    /**
+     * Records an error without unwinding the parser, for errors that leave the input well formed.
+     * Once the error cap is reached the parser is stopped.
+     *
+     * @param error The error message
+     */
+    private void reportError(String error) {
+        this.syntaxErrors.add(new SyntaxError(error, errorLine(), this.lookaheadType));
+        if (this.syntaxErrors.size() >= this.maxErrors) {
+            throw new RuntimeException(errorMessages());
+        }
+    }
+
+    /**
+     * @return Every error recorded so far, one per line
+     */
+    private String errorMessages() {
+        StringBuilder messages = new StringBuilder();
+        for (SyntaxError error : this.syntaxErrors) {
+            messages.append(error).append('\n');
+        }
+        return messages.toString();
+    }
+
+    /**
+     * Skips tokens until the current token is one of the given tokens or the input ends.
+     *
+     * @param follow The tokens to stop at, which are not consumed
+     */
+    private void skipTo(EnumSet<TokenType> follow) {
+        while (this.lookaheadType != null && !follow.contains(this.lookaheadType)) {
+            match(this.lookaheadType);
+        }
+        this.recoveredAt = tokenPosition();
+    }
+
+    /**
+     * @return The number of tokens consumed so far
+     */
+    int tokenPosition() {
+        if (this.tokenBuffer != null) {
+            return this.tokenIndex;
+        }
+        return this.tokens == null ? 0 : this.tokens.getPosition();
     }
     /**
     * Used for throwing errors that don't stop the proccess of the Compiler process.
@@ -95,46 +419,318 @@ public class Parser {
     * @param error The error message
     */
     public void minorErrorHandling(String error){
-      System.out.println("Error: "+error +" Occurred at line: " + myScanner.yylength());
+      String message = "Error: "+error +" Occurred at line: " + errorLine();
+      if (this.minorErrors != null) {
+          this.minorErrors.append(message).append(System.lineSeparator());
+      } else {
+          System.out.println(message);
+      }
+    }
+
+    /**
+     * Stops at a declaration of a name that the symbol table read in from another program, which is an error, not a
+     * minor one: the code generated for the declaration would define the label the other program defines.
+     *
+     * @param name A name the symbol table already declares
+     */
+    private void importedCheck(String name) {
+        SymbolTable.Symbol symbol = symbTable.get(name);
+        if (symbol != null && symbol.isImported()) {
+            errorHandling("Name: " + name + " is imported and cannot be declared again ");
+        }
+    }
+
+    /**
+     * Builds a ValueNode for the current NUMBER from the value the scanner already decoded.
+     *
+     * @return A node holding the text and the value of the number
+     */
+    private ValueNode lookaheadNumber() {
+        String number = lookaheadLexeme();
+        if (this.tokenBuffer != null) {
+            return this.tokenBuffer.isReal(this.tokenIndex) ? new ValueNode(number, this.tokenBuffer.getRealValue(this.tokenIndex))
+                    : new ValueNode(number, this.tokenBuffer.getIntegerValue(this.tokenIndex));
+        }
+        return this.tokens.isReal(0) ? new ValueNode(number, this.tokens.getRealValue(0))
+                : new ValueNode(number, this.tokens.getIntegerValue(0));
+    }
+
+    /**
+     * Gets the lexeme of the current token. In TokenBuffer mode this creates the String on demand.
+     *
+     * @return The lexeme of the current token
+     */
+    private String lookaheadLexeme() {
+        if (this.tokenBuffer != null) {
+            return this.tokenIndex < this.tokenBuffer.size() ? this.tokenBuffer.getLexeme(this.tokenIndex) : "End of File";
+        }
+        return this.tokens.getLexeme(0);
+    }
+
+    /**
+     * Gets the NamePool id of the current token.
+     *
+     * @return The id of the current identifier, or -1 if the current token is not an identifier
+     */
+    private int lookaheadNameId() {
+        if (this.tokenBuffer != null) {
+            return this.tokenIndex < this.tokenBuffer.size() ? this.tokenBuffer.getNameId(this.tokenIndex) : -1;
+        }
+        return this.tokens.getNameId(0);
+    }
+
+    /**
+     * Looks past the current token without consuming anything.
+     *
+     * @param k How many tokens past the current one to look, 0 for the current token
+     * @return The type of that token, or null past the end of the input
+     */
+    private TokenType peek(int k) {
+        if (this.tokenBuffer != null) {
+            return this.tokenIndex + k < this.tokenBuffer.size() ? this.tokenBuffer.getType(this.tokenIndex + k) : null;
+        }
+        return this.tokens.peek(k);
+    }
+
+    /**
+     * Gets the position reported in error messages. Tokens count lines from 0, as the scanner does, while messages
+     * count them from 1 like an editor.
+     *
+     * @return The line of the current token, or of the last token at the end of the input, counting from 1
+     */
+    private int errorLine() {
+        if (this.tokens == null && this.tokenBuffer == null) {
+            return 1;
+        }
+        if (this.tokenBuffer != null) {
+            if (this.tokenBuffer.size() == 0) {
+                return 1;
+            }
+            return this.tokenBuffer.getLine(Math.min(this.tokenIndex, this.tokenBuffer.size() - 1)) + 1;
+        }
+        return this.tokens.getLine(0) + 1;
     }
 
     /**
      * Uses the rule for the program non-terminal symbol in the expression grammar.
      */
     public ProgramNode program() {
-        match(TokenType.PROGRAM);
-        this.lexeme = this.lookahead.getLexeme();
-        match(TokenType.ID);
-        if(!symbTable.addProgram(lexeme)){
-          minorErrorHandling("Program name: "+ lexeme +" already exists");
+        ProgramNode program = null;
+        Outline parts = this.tokenBuffer == null || this.lazyBodies ? null : new Outline();
+        this.outline = null;
+        try {
+            match(TokenType.PROGRAM);
+            this.lexeme = lookaheadLexeme();
+            match(TokenType.ID);
+            if(!symbTable.addProgram(lexeme)){
+              importedCheck(lexeme);
+              minorErrorHandling("Program name: "+ lexeme +" already exists");
+            }
+            program = new ProgramNode(this.lexeme);
+            if (parts != null) {
+                parts.name = this.lexeme;
+            }
+            match(TokenType.SEMI);
+            program.setVariables(declarations());
+            this.outlining = parts;
+            try {
+                program.setFunctions(subprogramDeclarations());
+            } finally {
+                this.outlining = null;
+            }
+            if (parts != null) {
+                parts.mainStart = this.tokenIndex;
+                parts.symbols = this.symbTable.getSymbolCount();
+            }
+            program.setMain(compoundStatement());
+            if (parts != null) {
+                parts.mainEnd = this.tokenIndex;
+            }
+            match(TokenType.PERIOD);
+        } catch (ParseError e) {
+            /* Already recorded, and nothing follows a program to recover at */
+        }
+        if (!this.syntaxErrors.isEmpty()) {
+            throw new RuntimeException(errorMessages());
+        }
+        if (parts != null) {
+            parts.program = program;
+            this.outline = parts;
+        }
+        return program;
+    }
+
+    /**
+     * Applies an edit to the TokenBuffer being parsed and parses the program again, reusing the parts of the previous
+     * tree the edit did not touch. An edit that falls inside one top level subprogram declaration only reparses that
+     * declaration, and one inside the main compound statement only reparses the main compound statement, so the time it
+     * takes does not grow with the rest of the program. Everything else of the previous tree, the DeclarationsNode and
+     * every other SubProgramNode, is shared with the new tree.
+     * A subprogram is only reparsed on its own if it parses without errors, still ends where its old declaration ended
+     * and declares the same symbols with the same types as before, so the symbol table is left as it was, and if
+     * neither declaration changes the type of a symbol declared before it. Any other edit, or an edit to a different
+     * tree than the last one this parser returned, is parsed again from the start, exactly as program() would. Only the
+     * minor errors of the part that was parsed again are printed.
+     *
+     * @param previous The tree the last program() or reparse() of this parser returned
+     * @param offset   The offset of the first character removed or of the insertion point
+     * @param removed  The number of characters removed at offset
+     * @param inserted The text inserted at offset
+     * @return The tree of the edited program
+     * @throws IOException if the scanner fails on the edited text
+     */
+    public ProgramNode reparse(ProgramNode previous, int offset, int removed, String inserted) throws IOException {
+        if (this.tokenBuffer == null) {
+            throw new IllegalStateException("Only a parser over a TokenBuffer can reparse");
+        }
+        this.tokenBuffer.edit(offset, removed, inserted);
+        Outline parts = this.outline;
+        if (parts != null && parts.program == previous) {
+            int first = this.tokenBuffer.getEditStart();
+            int last = first + this.tokenBuffer.getEditRemoved();
+            int delta = this.tokenBuffer.getEditAdded() - this.tokenBuffer.getEditRemoved();
+            int index = parts.find(first, last);
+            if (index >= 0 && !parts.retyped[index] && reparseSubprogram(parts, index, delta)) {
+                return parts.program;
+            }
+            if (index < 0 && parts.mainStart <= first && last <= parts.mainEnd && reparseMain(parts, delta)) {
+                return parts.program;
+            }
         }
-        ProgramNode program = new ProgramNode(this.lexeme);
-        match(TokenType.SEMI);
-        program.setVariables(declarations());
-        program.setFunctions(subprogramDeclarations());
-        program.setMain(compoundStatement());
-        match(TokenType.PERIOD);
+        this.outline = null;
+        this.tokenIndex = 0;
+        this.lookaheadType = peek(0);
+        this.syntaxErrors.clear();
+        this.recoveredAt = -1;
+        this.symbTable.clear();
+        return program();
+    }
+
+    /**
+     * Parses one top level subprogram declaration again and puts it in a copy of the previous tree.
+     *
+     * @return false if the declaration has to be parsed with the rest of the program
+     */
+    private boolean reparseSubprogram(Outline parts, int index, int delta) {
+        int end = parts.ends[index] + delta;
+        SubProgramNode subprogram = (SubProgramNode) reparsePart(parts.starts[index], end, parts.symbolStarts[index],
+                parts.symbolEnds[index], true);
+        if (subprogram == null) {
+            return false;
+        }
+        ProgramNode program = parts.program;
+        SubProgramDeclarationsNode functions = program.getFunctions();
+        if (parts.functionIndexes[index] >= 0) {
+            functions = new SubProgramDeclarationsNode();
+            functions.addall(program.getFunctions().getProcs());
+            functions.getProcs().set(parts.functionIndexes[index], subprogram);
+        }
+        parts.program = copy(parts, program.getVariables(), functions, program.getMain());
+        parts.ends[index] = end;
+        parts.shift(index + 1, delta);
+        return true;
+    }
 
+    /**
+     * Parses the main compound statement again and puts it in a copy of the previous tree.
+     *
+     * @return false if the main compound statement has to be parsed with the rest of the program
+     */
+    private boolean reparseMain(Outline parts, int delta) {
+        int end = parts.mainEnd + delta;
+        CompoundStatementNode main = (CompoundStatementNode) reparsePart(parts.mainStart, end, parts.symbols,
+                parts.symbols, false);
+        if (main == null) {
+            return false;
+        }
+        ProgramNode program = parts.program;
+        parts.program = copy(parts, program.getVariables(), program.getFunctions(), main);
+        parts.mainEnd = end;
+        return true;
+    }
+
+    private static ProgramNode copy(Outline parts, DeclarationsNode variables, SubProgramDeclarationsNode functions,
+                                    CompoundStatementNode main) {
+        ProgramNode program = new ProgramNode(parts.name);
+        program.setVariables(variables);
+        program.setFunctions(functions);
+        program.setMain(main);
         return program;
     }
 
+    /**
+     * Parses a subprogram declaration and its SEMI, or a compound statement, against a view of the symbol table
+     * that sees the symbols before it and can only add the ones it added before. Minor errors are held back until
+     * the part is known to be good.
+     *
+     * @param start       The first token of the part
+     * @param end         The token the part has to end before
+     * @param symbolStart The number of symbols before the part
+     * @param symbolEnd   The number of symbols after it
+     * @param subprogram  true for a subprogram declaration, false for a compound statement
+     * @return The node of the part, or null if it has an error, ends somewhere else or declares other symbols
+     */
+    private SyntaxTreeNode reparsePart(int start, int end, int symbolStart, int symbolEnd, boolean subprogram) {
+        SymbolTable table = this.symbTable;
+        ForkJoinPool pool = this.subprogramPool;
+        int cap = this.maxErrors;
+        SymbolTable view = table.asOf(symbolStart);
+        this.symbTable = view;
+        this.subprogramPool = null;
+        this.maxErrors = 1;
+        this.minorErrors = new StringBuilder();
+        this.partSymbols = symbolStart;
+        this.partRetyped = false;
+        this.tokenIndex = start;
+        this.lookaheadType = peek(0);
+        SyntaxTreeNode node = null;
+        String output = null;
+        try {
+            if (subprogram) {
+                node = subprogramDeclaration();
+                match(TokenType.SEMI);
+            } else {
+                node = compoundStatement();
+            }
+            output = this.minorErrors.toString();
+        } catch (RuntimeException | StackOverflowError e) {
+            /* Parsed again with the rest of the program, which reports the error */
+        } finally {
+            this.symbTable = table;
+            this.subprogramPool = pool;
+            this.maxErrors = cap;
+            this.minorErrors = null;
+            this.partSymbols = -1;
+            this.syntaxErrors.clear();
+            this.recoveredAt = -1;
+        }
+        if (output == null || this.tokenIndex != end || view.getSymbolCount() != symbolEnd || !view.isReplay()
+                || this.partRetyped) {
+            return null;
+        }
+        System.out.print(output);
+        return node;
+    }
+
     /**
      * Uses the rule for the identifier_list non-terminal in the expression grammer.
      */
     public ArrayList<String> identiferList() {
         ArrayList<String> idList = new ArrayList<>();
-        this.lexeme = this.lookahead.getLexeme();
-        this.type = this.lookahead.getType();
-        idList.add(this.lexeme);
-        match(TokenType.ID);
-        if(!symbTable.addVariable(lexeme, type)){
-          minorErrorHandling("Variable name: "+lexeme+" already exists");
-        }
-        if (this.lookahead.getType() == TokenType.COMMA) {
+        while (true) {
+            this.lexeme = lookaheadLexeme();
+            this.type = this.lookaheadType;
+            idList.add(this.lexeme);
+            match(TokenType.ID);
+            if(!symbTable.addVariable(lexeme, type)){
+              importedCheck(lexeme);
+              minorErrorHandling("Variable name: "+lexeme+" already exists");
+            }
+            if (this.lookaheadType != TokenType.COMMA) {
+                return idList;
+            }
             match(TokenType.COMMA);
-            idList.addAll(identiferList());
         }
-        return idList;
     }
 
     /**
@@ -142,18 +738,22 @@ public class Parser {
      */
     public DeclarationsNode declarations() {
         DeclarationsNode declarations = new DeclarationsNode();
-        if (this.lookahead.getType() == TokenType.VAR) {
-            match(TokenType.VAR);
-            ArrayList<String> idList = identiferList();
-            match((TokenType.COLON));
-            TokenType t = type(idList);
-            for (String id : idList) {
-                declarations.addVariable(new VariableNode(id, t));
+        while (this.lookaheadType == TokenType.VAR) {
+            try {
+                match(TokenType.VAR);
+                ArrayList<String> idList = identiferList();
+                match((TokenType.COLON));
+                TokenType t = type(idList);
+                for (String id : idList) {
+                    declarations.addVariable(new VariableNode(id, t));
+                }
+                match(TokenType.SEMI);
+            } catch (ParseError e) {
+                skipTo(DECLARATION_FOLLOW);
+                if (this.lookaheadType == TokenType.SEMI) {
+                    match(TokenType.SEMI);
+                }
             }
-            match(TokenType.SEMI);
-            declarations.addAllVariables(declarations());
-        } else {
-            /* do nothing */
         }
         return declarations;
     }
@@ -163,7 +763,7 @@ public class Parser {
      */
     public TokenType type(ArrayList<String> idList) {
         TokenType t = null;
-        if (this.lookahead.getType() == TokenType.ARRAY) {
+        if (this.lookaheadType == TokenType.ARRAY) {
             match(TokenType.ARRAY);
             match(TokenType.LBRACE);
             match(TokenType.NUMBER);
@@ -172,10 +772,11 @@ public class Parser {
             match(TokenType.RBRACE);
             match(TokenType.OF);
             t = standardType();
-        } else if (this.lookahead.getType() == TokenType.REAL || this.lookahead.getType() == TokenType.INTEGER) {
+        } else if (this.lookaheadType == TokenType.REAL || this.lookaheadType == TokenType.INTEGER) {
             t = standardType();
             for (String anID : idList) {
               if(!symbTable.addVariable(anID, t)){
+                  importedCheck(anID);
                   minorErrorHandling("Variable name: "+ anID +" already exists");
               }
             }
@@ -188,10 +789,10 @@ public class Parser {
      */
     public TokenType standardType() {
         TokenType t = null;
-        if (this.lookahead.getType() == TokenType.INTEGER) {
+        if (this.lookaheadType == TokenType.INTEGER) {
             t = TokenType.INTEGER;
             match(TokenType.INTEGER);
-        } else if (this.lookahead.getType() == TokenType.REAL) {
+        } else if (this.lookaheadType == TokenType.REAL) {
             t = TokenType.REAL;
             match(TokenType.REAL);
         } else {
@@ -204,17 +805,107 @@ public class Parser {
      * Uses the rule for the subprogram_declarations non-terminal symbol in the expression grammar.
      */
     public SubProgramDeclarationsNode subprogramDeclarations() {
+        if (this.subprogramPool != null && this.tokenBuffer != null && this.bodies == null && !this.lazyBodies
+                && this.syntaxErrors.isEmpty()) {
+            return parallelSubprogramDeclarations();
+        }
+        return subprogramList();
+    }
+
+    /**
+     * Parses the subprogram_declarations with every body skimmed over, then parses the bodies on the pool.
+     * Errors are left to subprogramList: the skim stops at the first one, and so does the parser of each body.
+     */
+    private SubProgramDeclarationsNode parallelSubprogramDeclarations() {
+        int start = this.tokenIndex;
+        int symbols = this.symbTable.getSymbolCount();
+        int cap = this.maxErrors;
+        int outlined = this.outlining == null ? 0 : this.outlining.count;
+        ArrayList<Body> found = new ArrayList<>();
+        SubProgramDeclarationsNode subpDecs = null;
+        String after = null;
+        this.bodies = found;
+        this.minorErrors = new StringBuilder();
+        this.maxErrors = 1;
+        try {
+            subpDecs = subprogramList();
+            after = this.minorErrors.toString();
+        } catch (RuntimeException e) {
+            /* Parsed again below */
+        } finally {
+            this.bodies = null;
+            this.minorErrors = null;
+            this.maxErrors = cap;
+        }
+
+        if (subpDecs != null) {
+            //One task forks the rest inside the pool, so the caller only waits once
+            this.subprogramPool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(found);
+                }
+            });
+            boolean failed = false;
+            for (Body body : found) {
+                failed |= body.failed;
+            }
+            if (!failed) {
+                for (Body body : found) {
+                    System.out.print(body.before);
+                    System.out.print(body.output);
+                    body.subprogram.setMain(body.main);
+                }
+                System.out.print(after);
+                return subpDecs;
+            }
+        }
+        this.syntaxErrors.clear();
+        this.recoveredAt = -1;
+        this.symbTable.truncate(symbols);
+        if (this.outlining != null) {
+            this.outlining.count = outlined;
+        }
+        this.tokenIndex = start;
+        this.lookaheadType = peek(0);
+        return subprogramList();
+    }
+
+    /**
+     * Parses subprogram declarations one after another, or skims their bodies while the skim is running.
+     */
+    private SubProgramDeclarationsNode subprogramList() {
         SubProgramDeclarationsNode subpDecs = new SubProgramDeclarationsNode();
-        if (this.lookahead.getType() == TokenType.FUNCTION) {
-            subpDecs.addSubProgramDeclaration(subprogramDeclaration());
-            match(TokenType.SEMI);
-            subpDecs.addall(subprogramDeclarations().getProcs());
-        } else if (this.lookahead.getType() == TokenType.PROCEDURE) {
-            subprogramDeclaration();
-            match(TokenType.SEMI);
-            subpDecs.addall(subprogramDeclarations().getProcs());
-        } else {
-            /* do nothing */
+        Outline top = this.outlining;
+        this.outlining = null;//Nested subprograms are part of the one around them
+        try {
+            while (this.lookaheadType == TokenType.FUNCTION || this.lookaheadType == TokenType.PROCEDURE) {
+                int start = this.tokenIndex;
+                int symbols = this.symbTable.getSymbolCount();
+                int functionIndex = -1;
+                if (top != null) {
+                    this.partSymbols = symbols;
+                    this.partRetyped = false;
+                }
+                SubProgramNode subprogram;
+                if (this.lookaheadType == TokenType.FUNCTION) {
+                    subprogram = subprogramDeclaration();
+                    functionIndex = subpDecs.getProcs().size();
+                    subpDecs.addSubProgramDeclaration(subprogram);
+                } else {
+                    subprogram = subprogramDeclaration();
+                }
+                match(TokenType.SEMI);
+                if (top != null) {
+                    top.add(functionIndex, start, this.tokenIndex, symbols,
+                            this.symbTable.getSymbolCount(), this.partRetyped);
+                }
+            }
+        } finally {
+            this.outlining = top;
+            if (top != null) {
+                this.partSymbols = -1;
+            }
         }
         return subpDecs;
     }
@@ -223,26 +914,91 @@ public class Parser {
      * Uses the rule for the subprogram_declaration non-terminal symbol in the expression grammar.
      */
     public SubProgramNode subprogramDeclaration() {
-        SubProgramNode subP = subprogramHead();
-        subP.setVariables(declarations());
-        subP.setFunctions(subprogramDeclarations());
-        subP.setMain(compoundStatement());
+        SubProgramNode subP = new SubProgramNode("");//Stands in for a head with an error
+        try {
+            try {
+                subP = subprogramHead();
+            } catch (ParseError e) {
+                //Skip the rest of the head and parse the body
+                skipTo(DECLARATION_FOLLOW);
+                if (this.lookaheadType == TokenType.SEMI) {
+                    match(TokenType.SEMI);
+                }
+            }
+            subP.setVariables(declarations());
+            subP.setFunctions(subprogramDeclarations());
+            if (this.lookaheadType == TokenType.BEGIN
+                    && (this.bodies != null || this.lazyBodies && this.tokenBuffer != null)) {
+                skimBody(subP);
+            } else {
+                subP.setMain(compoundStatement());
+            }
+        } catch (ParseError e) {
+            skipTo(SUBPROGRAM_FOLLOW);
+        }
         return subP;
     }
 
+    /**
+     * Moves past a subprogram body by matching its begin with its end, and leaves it for the pool, or for getMain.
+     * A body without a matching end is parsed as usual, which reports the error.
+     *
+     * @param subprogram The subprogram the body belongs to
+     */
+    private void skimBody(SubProgramNode subprogram) {
+        int depth = 0;
+        for (int end = this.tokenIndex; end < this.tokenBuffer.size(); end++) {
+            TokenType t = this.tokenBuffer.getType(end);
+            if (t == TokenType.BEGIN) {
+                depth++;
+            } else if (t == TokenType.END && --depth == 0) {
+                if (this.bodies != null) {
+                    this.bodies.add(new Body(subprogram, this.tokenIndex, end + 1, this.symbTable.getSymbolCount(),
+                            this.minorErrors.toString()));
+                    this.minorErrors.setLength(0);
+                } else {
+                    subprogram.setMain(lazyBody(this.tokenIndex, this.symbTable.getSymbolCount()));
+                }
+                this.tokenIndex = end + 1;
+                this.lookaheadType = peek(0);
+                return;
+            }
+        }
+        subprogram.setMain(compoundStatement());
+    }
+
+    /**
+     * Makes the parse of a body that was skimmed over for getMain. The view of the symbol table is only made once
+     * the body is parsed, after the parse of the program has stopped changing the table.
+     *
+     * @param start   The BEGIN of the body
+     * @param symbols The number of symbols declared before the body
+     */
+    private Supplier<CompoundStatementNode> lazyBody(int start, int symbols) {
+        TokenBuffer buffer = this.tokenBuffer;
+        SymbolTable table = this.symbTable;
+        return () -> {
+            Parser parser = new Parser(buffer, table.asOf(symbols), start);
+            CompoundStatementNode main = parser.compoundStatement();
+            System.out.print(parser.minorErrors);
+            return main;
+        };
+    }
+
     /**
      * Uses the rule for the subprogram_head non-terminal symbol in the expression grammar.
      */
     public SubProgramNode subprogramHead() {
         SubProgramNode spNode = null;
-        if (this.lookahead.getType() == TokenType.FUNCTION) {
+        if (this.lookaheadType == TokenType.FUNCTION) {
             match(TokenType.FUNCTION);
-            spNode = new SubProgramNode(this.lookahead.getLexeme());
-            this.lexeme = this.lookahead.getLexeme();
-            this.type = this.lookahead.getType();
+            this.lexeme = lookaheadLexeme();
+            spNode = new SubProgramNode(this.lexeme);
+            this.type = this.lookaheadType;
             match(TokenType.ID);
             if(!symbTable.addFunction(lexeme, type)){
-              errorHandling("Function name: "+lexeme+" already exists");
+              importedCheck(lexeme);
+              reportError("Function name: "+lexeme+" already exists");
             }
             ArrayList<VariableNode> args = arguments();
             ArrayList<TokenType> argsTypes = new ArrayList<>();
@@ -256,17 +1012,23 @@ public class Parser {
             TokenType t = standardType();
             args.add(new VariableNode(this.lexeme, t));
             spNode.setArguments(args);
+            SymbolTable.Symbol typed = symbTable.get(this.lexeme);
+            if (typed != null && typed.getOrder() < this.partSymbols) {
+                this.partRetyped = true;
+            }
             symbTable.setType(this.lexeme, t);
             if(!symbTable.addVariable(this.lexeme, t)){
+                importedCheck(this.lexeme);
                 minorErrorHandling("Variable name: "+lexeme+" already exists");
             }
             match(TokenType.SEMI);
         } else {
             match(TokenType.PROCEDURE);
-            this.lexeme = this.lookahead.getLexeme();
+            this.lexeme = lookaheadLexeme();
             spNode = new SubProgramNode(this.lexeme);
             match(TokenType.ID);
             if(!symbTable.addProcedure(lexeme)){
+                importedCheck(lexeme);
                 minorErrorHandling("Procedure name: "+lexeme+" already exists");
             }
             match(TokenType.SEMI);
@@ -279,7 +1041,7 @@ public class Parser {
      */
     public ArrayList<VariableNode> arguments() {
         ArrayList<VariableNode> args = new ArrayList<>();
-        if (this.lookahead.getType() == TokenType.LPAREN) {
+        if (this.lookaheadType == TokenType.LPAREN) {
             match(TokenType.LPAREN);
             args = parameterList();
             match(TokenType.RPAREN);
@@ -293,18 +1055,19 @@ public class Parser {
      * Uses the rule for the parameter_list non-terminal symbol in the expression grammar.
      */
     public ArrayList<VariableNode> parameterList() {
-        ArrayList<String> idList = identiferList();
         ArrayList<VariableNode> args = new ArrayList<>();
-        match(TokenType.COLON);
-        TokenType t = type(idList);
-        for (String id : idList) {
-            args.add(new VariableNode(id, t));
-        }
-        if (this.lookahead.getType() == TokenType.SEMI) {
+        while (true) {
+            ArrayList<String> idList = identiferList();
+            match(TokenType.COLON);
+            TokenType t = type(idList);
+            for (String id : idList) {
+                args.add(new VariableNode(id, t));
+            }
+            if (this.lookaheadType != TokenType.SEMI) {
+                return args;
+            }
             match(TokenType.SEMI);
-            args.addAll(parameterList());
         }
-        return args;
     }
 
     /**
@@ -313,8 +1076,23 @@ public class Parser {
     public CompoundStatementNode compoundStatement() {
         match(TokenType.BEGIN);
         CompoundStatementNode compNode = optionalStatements();
-        match(TokenType.END);
-        return compNode;
+        while (true) {
+            try {
+                match(TokenType.END);
+                return compNode;
+            } catch (ParseError e) {
+                //Skip what cannot start a statement, and carry on as if a semicolon was missing
+                skipTo(COMPOUND_FOLLOW);
+                while (this.lookaheadType == TokenType.SEMI) {
+                    match(TokenType.SEMI);
+                }
+                if (isStatement()) {
+                    compNode.addAllStatements(statementList());
+                } else if (this.lookaheadType != TokenType.END) {
+                    throw e;
+                }
+            }
+        }
     }
 
     /**
@@ -336,9 +1114,9 @@ public class Parser {
     public ArrayList<StatementNode> statementList() {
         ArrayList<StatementNode> nodes = new ArrayList<>();
         nodes.add(statement());
-        if (this.lookahead.getType() == TokenType.SEMI) {
+        while (this.lookaheadType == TokenType.SEMI) {
             match(TokenType.SEMI);
-            nodes.addAll(statementList());
+            nodes.add(statement());
         }
         return nodes;
     }
@@ -348,62 +1126,73 @@ public class Parser {
      */
     public StatementNode statement() {
         StatementNode statement = null;
-        this.lexeme = this.lookahead.getLexeme();
-        if (this.lookahead.getType() == TokenType.ID) {
-            if (symbTable.isVariable(this.lexeme)) {
-                AssignmentStatementNode assign = new AssignmentStatementNode();
-                VariableNode variableNode = variable();
-                assign.setLvalue(variableNode);
-                match(TokenType.ASSIGN);
-                ExpressionNode expressNode = expression();
-                assign.setExpression(expressNode);
-                if(!variableNode.getType().equals(expressNode.getType())){
-                    minorErrorHandling("Type mismatch has occurred for: "+ variableNode.getName() + " ");
+        try {
+            if (this.lookaheadType == TokenType.ID) {
+                this.nameId = lookaheadNameId();
+                //The token after the name tells an assignment from a procedure call, the symbol table only checks the kind
+                TokenType next = peek(1);
+                boolean assignment = next == TokenType.ASSIGN || next == TokenType.LBRACE;
+                if (assignment && symbTable.isVariable(this.nameId)) {
+                    AssignmentStatementNode assign = new AssignmentStatementNode();
+                    VariableNode variableNode = variable();
+                    assign.setLvalue(variableNode);
+                    match(TokenType.ASSIGN);
+                    int errors = this.syntaxErrors.size();
+                    ExpressionNode expressNode = expression();
+                    assign.setExpression(expressNode);
+                    if(errors == this.syntaxErrors.size() && !variableNode.getType().equals(expressNode.getType())){
+                        minorErrorHandling("Type mismatch has occurred for: "+ variableNode.getName() + " ");
+                    }
+                    return assign;
+                } else if (!assignment && symbTable.isProcedure(this.nameId)) {
+                    return procedureStatement();
+                } else {
+                    errorHandling("Statement Error: ID is not kind VARIABLE or PROCEDURE ");
                 }
-                return assign;
-            } else if (symbTable.isProcedure(this.lexeme)) {
-                return procedureStatement();
+            } else if (this.lookaheadType == TokenType.BEGIN) {
+                statement = compoundStatement();
+            } else if (this.lookaheadType == TokenType.IF) {
+                IfStatementNode ifStateNode = new IfStatementNode();
+                match(TokenType.IF);
+                ifStateNode.setTest(expression());
+                match(TokenType.THEN);
+                ifStateNode.setThenStatement(statement());
+                match(TokenType.ELSE);
+                ifStateNode.setElseStatement(statement());
+                return ifStateNode;
+            } else if (this.lookaheadType == TokenType.WHILE) {
+                WhileStatementNode whileState = new WhileStatementNode();
+                match(TokenType.WHILE);
+                whileState.setTest(expression());
+                match(TokenType.DO);
+                whileState.setDoStatement(statement());
+                return whileState;
             } else {
-                errorHandling("Statement Error: ID is not kind VARIABLE or PROCEDURE ");
-            }
-        } else if (this.lookahead.getType() == TokenType.BEGIN) {
-            statement = compoundStatement();
-        } else if (this.lookahead.getType() == TokenType.IF) {
-            IfStatementNode ifStateNode = new IfStatementNode();
-            match(TokenType.IF);
-            ifStateNode.setTest(expression());
-            match(TokenType.THEN);
-            ifStateNode.setThenStatement(statement());
-            match(TokenType.ELSE);
-            ifStateNode.setElseStatement(statement());
-            return ifStateNode;
-        } else if (this.lookahead.getType() == TokenType.WHILE) {
-            WhileStatementNode whileState = new WhileStatementNode();
-            match(TokenType.WHILE);
-            whileState.setTest(expression());
-            match(TokenType.DO);
-            whileState.setDoStatement(statement());
-            return whileState;
-        } else {
-            errorHandling("Statement Error: ");
+                errorHandling("Statement Error: ");
+            }
+            return statement;
+        } catch (ParseError e) {
+            skipTo(STATEMENT_FOLLOW);
+            return new CompoundStatementNode();//Stands in for the statement with an error
         }
-        return statement;
     }
 
     /**
      * Uses the rule for the variable non-terminal symbol in the expression grammar.
      */
     public VariableNode variable() {
-        String variableName = this.lookahead.getLexeme();
-        this.lexeme = this.lookahead.getLexeme();
-        this.type = this.lookahead.getType();
+        String variableName = lookaheadLexeme();
+        int variableId = lookaheadNameId();
+        this.lexeme = variableName;
+        this.type = this.lookaheadType;
         match(TokenType.ID);
-        if(!symbTable.addVariable(lexeme, type)){
+        if(!symbTable.addVariable(variableId, type)){
             minorErrorHandling("Variable name: "+lexeme+" already exists");
         }
         VariableNode variable = new VariableNode(variableName);
-        variable.setType(symbTable.getType(variableName));
-        if (this.lookahead.getType() == TokenType.LBRACE) {
+        variable.setNameId(variableId);
+        variable.setType(symbTable.getType(variableId));
+        if (this.lookaheadType == TokenType.LBRACE) {
             match(TokenType.LBRACE);
             expression();
             match(TokenType.RBRACE);
@@ -415,13 +1204,13 @@ public class Parser {
      * Uses the rule for the procedure_statement non-terminal symbol in the expression grammar.
      */
     public ProcedureStatementNode procedureStatement() {
-        ProcedureStatementNode procState = new ProcedureStatementNode(this.lookahead.getLexeme());
-        this.lexeme = this.lookahead.getLexeme();
+        this.lexeme = lookaheadLexeme();
+        ProcedureStatementNode procState = new ProcedureStatementNode(this.lexeme);
         match(TokenType.ID);
         if(!symbTable.addProcedure(lexeme)){
             minorErrorHandling("Procedure name already exists");
         }
-        if (this.lookahead.getType() == TokenType.LPAREN) {
+        if (this.lookaheadType == TokenType.LPAREN) {
             match(TokenType.LPAREN);
             ArrayList<ExpressionNode> expressionList = expressionList();
             procState.addAllExpressionNodes(expressionList);
@@ -436,47 +1225,52 @@ public class Parser {
     public ArrayList<ExpressionNode> expressionList() {
         ArrayList<ExpressionNode> expressNode = new ArrayList<>();
         expressNode.add(expression());
-        if (this.lookahead.getType() == TokenType.COMMA) {
+        while (this.lookaheadType == TokenType.COMMA) {
             match(TokenType.COMMA);
-            expressNode.addAll(expressionList());
+            expressNode.add(expression());
         }
         return expressNode;
     }
 
     /**
      * Uses the rule for the expression non-terminal symbol in the expression grammar.
+     * A relop joins two simple expressions and cannot be chained.
      */
     public ExpressionNode expression() {
-        ExpressionNode expressLeft = simpleExpression();
-        TokenType typeLeft = expressLeft.getType();
-        if (isRelop()) {
-            OperationNode operation = new OperationNode(this.lookahead.getType());
-            if (typeLeft.equals(TokenType.REAL)) {
-                operation.setType(TokenType.REAL);
-            } else {
-                operation.setType(TokenType.INTEGER);
+        try {
+            ExpressionNode expressLeft = simpleExpression();
+            if (precedence() == RELATIONAL) {
+                OperationNode operation = new OperationNode(this.lookaheadType);
+                if (expressLeft.getType() == TokenType.REAL) {
+                    operation.setType(TokenType.REAL);
+                } else {
+                    operation.setType(TokenType.INTEGER);
+                }
+                operation.setLeft(expressLeft);
+                match(this.lookaheadType);
+                operation.setRight(simpleExpression());
+                return operation;
             }
-            operation.setLeft(expressLeft);
-            relop();
-            operation.setRight(simpleExpression());
-            return operation;
+            return expressLeft;
+        } catch (ParseError e) {
+            skipTo(EXPRESSION_FOLLOW);
+            return new ValueNode("0", 0L);//Stands in for the expression with an error
         }
-        return expressLeft;
     }
 
     /**
      * Uses the rule for the simple_expression non-terminal symbol in the expression grammar.
+     * A sign applies to the whole simple expression but takes its type from the first term.
      */
     public ExpressionNode simpleExpression() {
         ExpressionNode expressNode = null;
         if (isSimpleExpression()) {
-            expressNode = term();
-            expressNode = simplePart(expressNode);
-        } else if (this.lookahead.getType() == TokenType.PLUS || this.lookahead.getType() == TokenType.MINUS) {
+            expressNode = operations(factor(), ADDING);
+        } else if (this.lookaheadType == TokenType.PLUS || this.lookaheadType == TokenType.MINUS) {
             UnaryOperationNode unaryOperationNode = sign();
             expressNode = term();
             unaryOperationNode.setType(expressNode.getType());
-            unaryOperationNode.setExpression(simplePart(expressNode));
+            unaryOperationNode.setExpression(operations(expressNode, ADDING));
             return unaryOperationNode;
         } else {
             errorHandling("Simple_Expression error: ");
@@ -485,43 +1279,76 @@ public class Parser {
     }
 
     /**
-     * Uses the rule for the simple_part non-terminal symbol in the expression grammar.
+     * Uses the rule for the term non-terminal symbol in the expression grammar.
      */
-    public ExpressionNode simplePart(ExpressionNode positionLeft) {
-        if (isAddop()) {
-            OperationNode operation = new OperationNode(this.lookahead.getType());
-            addop();
-            ExpressionNode expressRight = term();
-            operation.setLeft(positionLeft);
-            operation.setRight(simplePart(expressRight));
-            return operation;
-        }
-        return positionLeft;
+    public ExpressionNode term() {
+        return operations(factor(), MULTIPLYING);
     }
 
     /**
-     * Uses the rule for the term non-terminal symbol in the expression grammar.
+     * Takes the operators that follow an operand by precedence climbing, in place of the simple_part and term_part
+     * rules. Every operator that binds at least as tightly as minPrecedence is consumed, and like those rules
+     * operators of the same precedence group to the right: a - b + c is a - (b + c).
+     * Each run of operators of the same precedence is collected in a loop, its operands and operators pushed on the
+     * run stack, and then folded from the right. Folding from the right is what groups the run to the right, so the
+     * trees, and the code generated from them, are the ones the recursive rules built, while the stack the parse
+     * uses no longer grows with the length of a chain like a + b + ... + z, only with the precedence levels and
+     * parentheses it nests.
+     *
+     * @param left          The operand the operators follow
+     * @param minPrecedence ADDING or MULTIPLYING
+     * @return The operand with the operators applied
      */
-    public ExpressionNode term() {
-        ExpressionNode expressLeft = factor();
-        return termPart(expressLeft);
+    private ExpressionNode operations(ExpressionNode left, int minPrecedence) {
+        int precedence = precedence();
+        while (precedence >= minPrecedence) {
+            int base = runSize;
+            try {
+                push(left);
+                do {
+                    push(new OperationNode(this.lookaheadType));
+                    match(this.lookaheadType);
+                    //Tighter operators go into the operand first, the next operator is then of the same precedence
+                    //or looser
+                    push(operations(factor(), precedence + 1));
+                } while (precedence() == precedence);
+                left = run[--runSize];
+                run[runSize] = null;
+                while (runSize > base) {
+                    OperationNode operation = (OperationNode) run[--runSize];
+                    operation.setLeft(run[--runSize]);
+                    operation.setRight(left);
+                    run[runSize] = null;
+                    run[runSize + 1] = null;
+                    left = operation;
+                }
+            } finally {
+                //A syntax error leaves the run unfinished
+                Arrays.fill(run, base, runSize, null);
+                runSize = base;
+            }
+            precedence = precedence();
+        }
+        return left;
     }
 
     /**
-     * Uses the rule for the term_part non-terminal symbol in the expression grammar.
+     * Pushes an operand or operator of the run being collected.
      */
-    private ExpressionNode termPart(ExpressionNode expressLeft) {
-        if (isMulop()) {
-            OperationNode operation = new OperationNode(this.lookahead.getType());
-            mulop();
-            ExpressionNode expressRight = factor();
-            operation.setLeft(expressLeft);
-            operation.setRight(termPart(expressRight));
-            return operation;
-        } else {
-            /*DO NOTHING*/
+    private void push(ExpressionNode node) {
+        if (runSize == run.length) {
+            run = Arrays.copyOf(run, runSize * 2);
         }
-        return expressLeft;
+        run[runSize++] = node;
+    }
+
+    /**
+     * Looks up the precedence of the current token.
+     *
+     * @return RELATIONAL, ADDING or MULTIPLYING for an operator, or 0 for any other token
+     */
+    private int precedence() {
+        return this.lookaheadType == null ? 0 : PRECEDENCE[this.lookaheadType.ordinal()];
     }
 
     /**
@@ -529,40 +1356,37 @@ public class Parser {
      */
     public ExpressionNode factor() {
         ExpressionNode expressNode = null;
-        if (this.lookahead.getType() == TokenType.ID) {
-            this.lexeme = this.lookahead.getLexeme();
+        if (this.lookaheadType == TokenType.ID) {
+            this.lexeme = lookaheadLexeme();
+            this.nameId = lookaheadNameId();
             match(TokenType.ID);
-            TokenType t = symbTable.getType(this.lexeme);
-            if (this.lookahead.getType() == TokenType.LBRACE) {
+            TokenType t = symbTable.getType(this.nameId);
+            if (this.lookaheadType == TokenType.LBRACE) {
                 match(TokenType.LBRACE);
                 expression();
                 match(TokenType.RBRACE);
-            } else if (this.lookahead.getType() == TokenType.LPAREN) {
+            } else if (this.lookaheadType == TokenType.LPAREN) {
                 match(TokenType.LPAREN);
                 expressionList();
                 match(TokenType.RPAREN);
             } else {
                 VariableNode variable = new VariableNode(this.lexeme);
+                variable.setNameId(this.nameId);
                 variable.setType(t);
                 return variable;
             }
-        } else if (this.lookahead.getType() == TokenType.NUMBER) {
-            TokenType type;
-            String number = this.lookahead.getLexeme();
-            if (number.contains(".")) {
-                type = TokenType.REAL;
-            } else {
-                type = TokenType.INTEGER;
+        } else if (this.lookaheadType == TokenType.NUMBER) {
+            ValueNode value = lookaheadNumber();
+            if (value.isOutOfRange()) {
+                reportError("Number out of range: " + value.getAttribute() + " ");
             }
-            VariableNode variable = new VariableNode(number);
-            variable.setType(type);
             match(TokenType.NUMBER);
-            return variable;
-        } else if (this.lookahead.getType() == TokenType.LPAREN) {
+            return value;
+        } else if (this.lookaheadType == TokenType.LPAREN) {
             match(TokenType.LPAREN);
             expressNode = expression();
             match(TokenType.RPAREN);
-        } else if (this.lookahead.getType() == TokenType.NOT) {
+        } else if (this.lookaheadType == TokenType.NOT) {
             UnaryOperationNode sign = new UnaryOperationNode(TokenType.NOT);
             match(TokenType.NOT);
             expressNode = factor();
@@ -580,10 +1404,10 @@ public class Parser {
      */
     public UnaryOperationNode sign() {
         UnaryOperationNode unaryOperationNode = null;
-        if (this.lookahead.getType() == TokenType.PLUS) {
+        if (this.lookaheadType == TokenType.PLUS) {
             unaryOperationNode = new UnaryOperationNode(TokenType.PLUS);
             match(TokenType.PLUS);
-        } else if (this.lookahead.getType() == TokenType.MINUS) {
+        } else if (this.lookaheadType == TokenType.MINUS) {
             unaryOperationNode = new UnaryOperationNode(TokenType.MINUS);
             match(TokenType.MINUS);
         } else {
@@ -592,139 +1416,19 @@ public class Parser {
         return unaryOperationNode;
     }
 
-    /**
-     * Utility function that checks if the next token is an addop.
-     *
-     * @return If the next token is not an addop it will return false.
-     */
-    private boolean isAddop() {
-        if (this.lookahead.getType() == TokenType.PLUS) {
-            return true;
-        } else if (this.lookahead.getType() == TokenType.MINUS) {
-            return true;
-        } else if (this.lookahead.getType() == TokenType.OR) {
-            return true;
-        } else {
-            /*DO NOTHING*/
-            return false;
-        }
-    }
-
-    /**
-     * Utility function that checks which addop the next token is and then calls the match function.
-     */
-    private void addop() {
-        if (this.lookahead.getType() == TokenType.PLUS) {
-            match(TokenType.PLUS);
-        } else if (this.lookahead.getType() == TokenType.MINUS) {
-            match(TokenType.MINUS);
-        } else if (this.lookahead.getType() == TokenType.OR) {
-            match(TokenType.OR);
-        } else {
-            /*DO NOTHING*/
-        }
-    }
-
-    /**
-     * Utility function that checks if the next token is an addop.
-     *
-     * @return If the next token is not an mulop it will return false.
-     */
-    private boolean isMulop() {
-        if (this.lookahead.getType() == TokenType.ASTERISK) {
-            return true;
-        } else if (this.lookahead.getType() == TokenType.FSLASH) {
-            return true;
-        } else if (this.lookahead.getType() == TokenType.DIV) {
-            return true;
-        } else if (this.lookahead.getType() == TokenType.MOD) {
-            return true;
-        } else if (this.lookahead.getType() == TokenType.AND) {
-            return true;
-        } else {
-            /*DO NOTHING*/
-            return false;
-        }
-    }
-
-    /**
-     * Utility function that checks which mulop the next token is and then calls the match function.
-     */
-    private void mulop() {
-        if (this.lookahead.getType() == TokenType.ASTERISK) {
-            match(TokenType.ASTERISK);
-        } else if (this.lookahead.getType() == TokenType.FSLASH) {
-            match(TokenType.FSLASH);
-        } else if (this.lookahead.getType() == TokenType.DIV) {
-            match(TokenType.DIV);
-        } else if (this.lookahead.getType() == TokenType.MOD) {
-            match(TokenType.MOD);
-        } else if (this.lookahead.getType() == TokenType.AND) {
-            match(TokenType.AND);
-        } else {
-            /*DO NOTHING*/
-        }
-    }
-
-    /**
-     * Utility function that checks if the next token is an addop.
-     *
-     * @return If the next token is not an mulop it will return false.
-     */
-    private boolean isRelop() {
-        if (this.lookahead.getType() == TokenType.EQUAL) {
-            return true;
-        } else if (this.lookahead.getType() == TokenType.NOTEQ) {
-            return true;
-        } else if (this.lookahead.getType() == TokenType.LTHAN) {
-            return true;
-        } else if (this.lookahead.getType() == TokenType.LTHANEQ) {
-            return true;
-        } else if (this.lookahead.getType() == TokenType.GTHANEQ) {
-            return true;
-        } else if (this.lookahead.getType() == TokenType.GTHAN) {
-            return true;
-        } else {
-            return false;
-        }
-    }
-
-    /**
-     * Utility function that checks which mulop the next token is and then calls the match function.
-     */
-    private void relop() {
-        if (this.lookahead.getType() == TokenType.EQUAL) {
-            match(TokenType.EQUAL);
-        } else if (this.lookahead.getType() == TokenType.NOTEQ) {
-            match(TokenType.NOTEQ);
-        } else if (this.lookahead.getType() == TokenType.LTHAN) {
-            match(TokenType.LTHAN);
-        } else if (this.lookahead.getType() == TokenType.LTHANEQ) {
-            match(TokenType.LTHANEQ);
-        } else if (this.lookahead.getType() == TokenType.GTHANEQ) {
-            match(TokenType.GTHANEQ);
-        } else if (this.lookahead.getType() == TokenType.GTHAN) {
-            match(TokenType.GTHAN);
-        } else {
-            errorHandling("Relop error: ");
-        }
-    }
-
     /**
      * Checks if the current lexeme is a statement
      *
      * @return True if the current lexeme is a statement
      */
     private boolean isStatement() {
-        if (symbTable.isVariable(this.lookahead.getLexeme())) {
-            return true;
-        } else if (symbTable.isProcedure(this.lookahead.getLexeme())) {
+        if (this.lookaheadType == TokenType.ID) {
             return true;
-        } else if (this.lookahead.getType() == TokenType.BEGIN) {
+        } else if (this.lookaheadType == TokenType.BEGIN) {
             return true;
-        } else if (this.lookahead.getType() == TokenType.IF) {
+        } else if (this.lookaheadType == TokenType.IF) {
             return true;
-        } else if (this.lookahead.getType() == TokenType.WHILE) {
+        } else if (this.lookaheadType == TokenType.WHILE) {
             return true;
         } else {
             return false;
@@ -737,7 +1441,7 @@ public class Parser {
      * @return True if the current lexeme is a simple_expression
      */
     private boolean isSimpleExpression() {
-        if (this.lookahead.getType() == TokenType.ID || this.lookahead.getType() == TokenType.NUMBER || this.lookahead.getType() == TokenType.LPAREN || this.lookahead.getType() == TokenType.NOT) {
+        if (this.lookaheadType == TokenType.ID || this.lookaheadType == TokenType.NUMBER || this.lookaheadType == TokenType.LPAREN || this.lookaheadType == TokenType.NOT) {
             return true;
         } else {
             return false;
@@ -1,10 +1,25 @@
 package parser;
 
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.Test;
+import scanner.TokenBuffer;
 import scanner.TokenType;
 import syntaxtree.*;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * This class uses the JUnit testing library to test various functions in the Parser class
@@ -41,13 +56,13 @@ public class ParserTest {
                 "|-- --- --- If\n" +
                 "|-- --- --- --- Operation: LTHAN\n" +
                 "|-- --- --- --- --- Name: fi Type: ID\n" +
-                "|-- --- --- --- --- Name: 5 Type: INTEGER\n" +
+                "|-- --- --- --- --- Value: 5 Type: INTEGER\n" +
                 "|-- --- --- --- Assignment\n" +
                 "|-- --- --- --- --- Name: fee Type: ID\n" +
-                "|-- --- --- --- --- Name: 5 Type: INTEGER\n" +
+                "|-- --- --- --- --- Value: 5 Type: INTEGER\n" +
                 "|-- --- --- --- Assignment\n" +
                 "|-- --- --- --- --- Name: fee Type: ID\n" +
-                "|-- --- --- --- --- Name: 10 Type: INTEGER\n";
+                "|-- --- --- --- --- Value: 10 Type: INTEGER\n";
         actual = program.indentedToString(1);
         assertEquals(expected, actual);
 
@@ -72,28 +87,28 @@ public class ParserTest {
                 "|-- --- --- --- --- If\n" +
                 "|-- --- --- --- --- --- Operation: LTHAN\n" +
                 "|-- --- --- --- --- --- --- Name: fum Type: REAL\n" +
-                "|-- --- --- --- --- --- --- Name: 5 Type: INTEGER\n" +
+                "|-- --- --- --- --- --- --- Value: 5 Type: INTEGER\n" +
                 "|-- --- --- --- --- --- Assignment\n" +
                 "|-- --- --- --- --- --- --- Name: run Type: ID\n" +
                 "|-- --- --- --- --- --- --- Operation: MINUS\n" +
-                "|-- --- --- --- --- --- --- --- Name: 5 Type: INTEGER\n" +
-                "|-- --- --- --- --- --- --- --- Name: 4 Type: INTEGER\n" +
+                "|-- --- --- --- --- --- --- --- Value: 5 Type: INTEGER\n" +
+                "|-- --- --- --- --- --- --- --- Value: 4 Type: INTEGER\n" +
                 "|-- --- --- --- --- --- Assignment\n" +
                 "|-- --- --- --- --- --- --- Name: run Type: ID\n" +
                 "|-- --- --- --- --- --- --- Operation: PLUS\n" +
-                "|-- --- --- --- --- --- --- --- Name: 4 Type: INTEGER\n" +
-                "|-- --- --- --- --- --- --- --- Name: 5 Type: INTEGER\n" +
+                "|-- --- --- --- --- --- --- --- Value: 4 Type: INTEGER\n" +
+                "|-- --- --- --- --- --- --- --- Value: 5 Type: INTEGER\n" +
                 "|-- --- Compound Statement\n" +
                 "|-- --- --- If\n" +
                 "|-- --- --- --- Operation: LTHAN\n" +
                 "|-- --- --- --- --- Name: fi Type: ID\n" +
-                "|-- --- --- --- --- Name: 5 Type: INTEGER\n" +
+                "|-- --- --- --- --- Value: 5 Type: INTEGER\n" +
                 "|-- --- --- --- Assignment\n" +
                 "|-- --- --- --- --- Name: fee Type: ID\n" +
-                "|-- --- --- --- --- Name: 5 Type: INTEGER\n" +
+                "|-- --- --- --- --- Value: 5 Type: INTEGER\n" +
                 "|-- --- --- --- Assignment\n" +
                 "|-- --- --- --- --- Name: fee Type: ID\n" +
-                "|-- --- --- --- --- Name: 10 Type: INTEGER\n";
+                "|-- --- --- --- --- Value: 10 Type: INTEGER\n";
         actual = program.indentedToString(1);
         assertEquals(expected, actual);
 
@@ -202,13 +217,13 @@ public class ParserTest {
         String expected="|-- If\n" +
                 "|-- --- Operation: LTHAN\n" +
                 "|-- --- --- Name: foo Type: INTEGER\n" +
-                "|-- --- --- Name: 5 Type: INTEGER\n" +
+                "|-- --- --- Value: 5 Type: INTEGER\n" +
                 "|-- --- Assignment\n" +
                 "|-- --- --- Name: fi Type: INTEGER\n" +
-                "|-- --- --- Name: 5 Type: INTEGER\n" +
+                "|-- --- --- Value: 5 Type: INTEGER\n" +
                 "|-- --- Assignment\n" +
                 "|-- --- --- Name: fi Type: INTEGER\n" +
-                "|-- --- --- Name: 10 Type: INTEGER\n";
+                "|-- --- --- Value: 10 Type: INTEGER\n";
 
         assertEquals(expected, actual);
 
@@ -221,18 +236,18 @@ public class ParserTest {
         expected="|-- While\n" +
                 "|-- --- Operation: EQUAL\n" +
                 "|-- --- --- Name: foo Type: INTEGER\n" +
-                "|-- --- --- Name: 5 Type: INTEGER\n" +
+                "|-- --- --- Value: 5 Type: INTEGER\n" +
                 "|-- Do:\n" +
                 "|-- --- If\n" +
                 "|-- --- --- Operation: LTHAN\n" +
                 "|-- --- --- --- Name: fub Type: INTEGER\n" +
-                "|-- --- --- --- Name: 4 Type: INTEGER\n" +
+                "|-- --- --- --- Value: 4 Type: INTEGER\n" +
                 "|-- --- --- Assignment\n" +
                 "|-- --- --- --- Name: fub Type: INTEGER\n" +
-                "|-- --- --- --- Name: 6 Type: INTEGER\n" +
+                "|-- --- --- --- Value: 6 Type: INTEGER\n" +
                 "|-- --- --- Assignment\n" +
                 "|-- --- --- --- Name: fub Type: INTEGER\n" +
-                "|-- --- --- --- Name: 4 Type: INTEGER\n";
+                "|-- --- --- --- Value: 4 Type: INTEGER\n";
         assertEquals(expected, actual);
 
         input ="while foo = 5 do if fub < 4 then fub := 6 else fub := 4";
@@ -244,18 +259,18 @@ public class ParserTest {
         expected="|-- While\n" +
                 "|-- --- Operation: EQUAL\n" +
                 "|-- --- --- Name: foo Type: INTEGER\n" +
-                "|-- --- --- Name: 5 Type: INTEGER\n" +
+                "|-- --- --- Value: 5 Type: INTEGER\n" +
                 "|-- Do:\n" +
                 "|-- --- If\n" +
                 "|-- --- --- Operation: LTHAN\n" +
                 "|-- --- --- --- Name: fub Type: INTEGER\n" +
-                "|-- --- --- --- Name: 4 Type: INTEGER\n" +
+                "|-- --- --- --- Value: 4 Type: INTEGER\n" +
                 "|-- --- --- Assignment\n" +
                 "|-- --- --- --- Name: fub Type: INTEGER\n" +
-                "|-- --- --- --- Name: 6 Type: INTEGER\n" +
+                "|-- --- --- --- Value: 6 Type: INTEGER\n" +
                 "|-- --- --- Assignment\n" +
                 "|-- --- --- --- Name: fub Type: INTEGER\n" +
-                "|-- --- --- --- Name: 4 Type: INTEGER\n";
+                "|-- --- --- --- Value: 4 Type: INTEGER\n";
         assertEquals(expected, actual);
     }
 
@@ -292,8 +307,8 @@ public class ParserTest {
         actualNode = parser.simpleExpression();
         actual = actualNode.indentedToString(1);
         expected = "|-- Operation: ASTERISK\n" +
-                "|-- --- Name: 8 Type: INTEGER\n" +
-                "|-- --- Name: 8 Type: INTEGER\n";
+                "|-- --- Value: 8 Type: INTEGER\n" +
+                "|-- --- Value: 8 Type: INTEGER\n";
         assertEquals(expected, actual);
 
         input = "not foo - 8 / bar";
@@ -306,7 +321,7 @@ public class ParserTest {
                 "|-- --- Sign: NOT, Type: INTEGER\n" +
                 "|-- --- --- Name: foo Type: INTEGER\n" +
                 "|-- --- Operation: FSLASH\n" +
-                "|-- --- --- Name: 8 Type: INTEGER\n" +
+                "|-- --- --- Value: 8 Type: INTEGER\n" +
                 "|-- --- --- Name: bar Type: REAL\n";
         assertEquals(expected, actual);
 
@@ -322,7 +337,7 @@ public class ParserTest {
         Parser parser = new Parser(input, false);
         ExpressionNode expression = parser.factor();
         String actual = expression.indentedToString(1);
-        String expected = "|-- Name: 4 Type: INTEGER\n";
+        String expected = "|-- Value: 4 Type: INTEGER\n";
 
         input = "foo";
         parser = new Parser(input, false);
@@ -336,8 +351,8 @@ public class ParserTest {
         expression = parser.factor();
         actual = expression.indentedToString(1);
         expected = "|-- Operation: ASTERISK\n" +
-                "|-- --- Name: 21 Type: INTEGER\n" +
-                "|-- --- Name: 12 Type: INTEGER\n";
+                "|-- --- Value: 21 Type: INTEGER\n" +
+                "|-- --- Value: 12 Type: INTEGER\n";
         assertEquals(expected, actual);
 
         input = "not 21";
@@ -345,9 +360,536 @@ public class ParserTest {
         expression = parser.factor();
         actual = expression.indentedToString(1);
         expected = "|-- Sign: NOT, Type: INTEGER\n" +
-                   "|-- --- Name: 21 Type: INTEGER\n";
+                   "|-- --- Value: 21 Type: INTEGER\n";
+
+        assertEquals(expected, actual);
+    }
+
+
+    /**
+     * Tests that the token after a name decides between an assignment and a procedure call, from the scanner and
+     * from a TokenBuffer, and that a name of the wrong kind is still an error
+     */
+    @Test
+    public void testLookahead(){
+        String input = "begin p1; p1(3, x); x := 4; arr[x] := 5; p1 end";
+        for (int mode = 0; mode < 2; mode++) {
+            Parser parser = mode == 0 ? new Parser(input, false) : new Parser(TokenBuffer.lex(input));
+            parser.getSymbolTable().addProcedure("p1");
+            parser.getSymbolTable().addVariable("x", TokenType.INTEGER);
+            parser.getSymbolTable().addVariable("arr", TokenType.INTEGER);
+            CompoundStatementNode block = parser.compoundStatement();
+            assertEquals(5, block.getStatement().size());
+            assertTrue(block.getStatement().get(0) instanceof ProcedureStatementNode);
+            assertTrue(block.getStatement().get(1) instanceof ProcedureStatementNode);
+            assertTrue(block.getStatement().get(2) instanceof AssignmentStatementNode);
+            assertTrue(block.getStatement().get(3) instanceof AssignmentStatementNode);
+            assertTrue(block.getStatement().get(4) instanceof ProcedureStatementNode);
+        }
+
+        String[] wrongKind = {"p1 := 3", "x(3)", "x", "y := 3"};
+        for (String statement : wrongKind) {
+            Parser parser = new Parser(statement, false);
+            parser.getSymbolTable().addProcedure("p1");
+            parser.getSymbolTable().addVariable("x", TokenType.INTEGER);
+            try {
+                parser.statement();
+                fail(statement);
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Statement Error: ID is not kind VARIABLE or PROCEDURE"));
+            }
+        }
+    }
 
+    /**
+     * Tests that numbers become ValueNodes holding the value the scanner decoded, from the scanner and from a
+     * TokenBuffer, and that a number the target cannot hold is an error
+     */
+    @Test
+    public void testNumbers(){
+        String[] inputs = {"42", "2147483647", "2.5", "25E-1", "1.5E+3"};
+        for (String input : inputs) {
+            ValueNode fromScanner = (ValueNode) new Parser(input, false).factor();
+            ValueNode fromBuffer = (ValueNode) new Parser(TokenBuffer.lex(input)).factor();
+            assertEquals(input, fromScanner.getAttribute());
+            assertEquals(fromScanner.getType(), fromBuffer.getType());
+            if (fromScanner.getType() == TokenType.INTEGER) {
+                assertEquals(Long.parseLong(input), fromScanner.getIntegerValue());
+                assertEquals(Long.parseLong(input), fromBuffer.getIntegerValue());
+            } else {
+                assertEquals(Double.parseDouble(input), fromScanner.getRealValue(), 0);
+                assertEquals(Double.parseDouble(input), fromBuffer.getRealValue(), 0);
+            }
+        }
+        assertEquals(TokenType.REAL, ((ValueNode) new Parser("25E-1", false).factor()).getType());
+
+        String[] outOfRange = {"2147483648", "99999999999999999999999", "1E+39", "1E-50", "1E-400"};
+        for (String input : outOfRange) {
+            try {
+                new Parser(input, false).factor();
+                fail(input);
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Number out of range: " + input + " "));
+            }
+        }
+    }
+
+    /**
+     * Tests that parsing from a TokenBuffer builds the same syntax tree as parsing from the scanner
+     */
+    @Test
+    public void testTokenBuffer(){
+        String inputProgram = "program foo; var fee, fi: real; function fum: real ; var walk, jog, run : real;"+
+                "begin if fum < 5 then run := 5 - 4 else run := 4 + 5 end; "+
+                "begin if fi < 5 then fee := 5 else while fi > 2 do fee := (fi * 2) - 10 end.";
+        String expected = new Parser(inputProgram, false).program().indentedToString(1);
+        String actual = new Parser(TokenBuffer.lex(inputProgram)).program().indentedToString(1);
         assertEquals(expected, actual);
     }
 
-}
\ No newline at end of file
+    /**
+     * Tests that a Parser reset to one program after another, from strings and from files, builds the same trees,
+     * symbol tables and errors as a new Parser for each. What a reset allocates is measured by the parser.resetOnly
+     * benchmark.
+     */
+    @Test
+    public void testReset() throws Exception {
+        String[] programs = {
+                "program foo; var fee, fi: real; function fum: real ; var walk, jog, run : real;"+
+                "begin if fum < 5 then run := 5 - 4 else run := 4 + 5 end; "+
+                "begin if fi < 5 then fee := 5 else while fi > 2 do fee := (fi * 2) - 10 end.",
+                "program foo;\nvar a, b : integer;\nvar c real;\nbegin\na := 3 + * 4;\nb := 6\nend.",
+                "program bar; var x, y: integer; begin x := 1; while x < 10 do x := x * 2; y := x div 3 end.",
+                "program baz; var q: real; begin q := 1.5e3 end."};
+        Path file = Files.createTempFile("reset", ".pas");
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            Parser reused = new Parser(TokenBuffer.lex(programs[0]));
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < programs.length; i++) {
+                    Parser fresh = new Parser(programs[i], false);
+                    if (round == 0) {
+                        reused.reset(new StringReader(programs[i]));
+                    } else {
+                        Files.write(file, programs[i].getBytes(StandardCharsets.UTF_8));
+                        reused.reset(file);
+                    }
+                    fresh.setMaxErrors(100);
+                    reused.setMaxErrors(100);
+                    assertEquals(parse(fresh), parse(reused));
+                    assertEquals(fresh.getSymbolTable().toString(), reused.getSymbolTable().toString());
+                    assertEquals(fresh.getSyntaxErrors().toString(), reused.getSyntaxErrors().toString());
+                }
+            }
+        } finally {
+            System.setOut(out);
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * @return The tree the parser builds, or the message it fails with
+     */
+    private static String parse(Parser parser) {
+        try {
+            return parser.program().indentedToString(1);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * Tests that parsing subprogram bodies on a pool gives the same tree, symbol table, minor errors and syntax
+     * errors as parsing them in order, for bodies that use names declared before and after them and for errors in
+     * heads and bodies
+     */
+    @Test
+    public void testSubprogramPool(){
+        String subprograms = "program foo; var a, b: integer; var r: real;\n" +
+                "procedure p; var c: integer; begin a := b + 1; c := a end;\n" +
+                "function f(x: integer): integer; var d: real;\n" +
+                "    procedure q; begin a := 2; begin b := a * 3; p end end;\n" +
+                "begin d := r * 2.5; if a < b then q else while a > 0 do a := a - 1 end;\n" +
+                "procedure s; begin c := 1; e := 2; p; q end;\n" +
+                "procedure t; var e: integer; begin r := a end;\n";
+        String[] programs = {
+                subprograms + "begin a := 1; p end.",
+                subprograms.replace("e := 2; ", "") + "begin a := 1; p end.",
+                subprograms.replace("d := r", "d := * r") + "begin a := 1 end.",
+                subprograms.replace("function f(x: integer)", "function f(x integer)") + "begin a := 1 end.",
+                subprograms.replace("a := 2; begin", "a := 2; begin begin") + "begin a := 1 end."};
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (String program : programs) {
+                for (int cap : new int[] {1, 100}) {
+                    assertEquals(parseWithPool(program, null, cap), parseWithPool(program, pool, cap));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return The tree or the message the parse failed with, the symbol table, the syntax errors and whatever the
+     * parser printed
+     */
+    private static String parseWithPool(String program, ForkJoinPool pool, int cap) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed));
+        try {
+            Parser parser = new Parser(TokenBuffer.lex(program));
+            parser.setMaxErrors(cap);
+            parser.setSubprogramPool(pool);
+            String tree = parse(parser);
+            return tree + parser.getSymbolTable() + parser.getSyntaxErrors() + printed;
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * Tests that reparsing after an edit gives the same tree and symbol table as parsing the edited program from
+     * the start, and that the parts the edit did not touch are the same nodes as before
+     */
+    @Test
+    public void testReparse() throws Exception {
+        String program = "program foo; var a, b: integer; var r: real;\n" +
+                "function f(x: integer): integer; begin a := 1 end;\n" +
+                "procedure p; begin b := 2 end;\n" +
+                "function g: real; begin r := 2.5 end;\n" +
+                "begin a := 3; p end.";
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            Parser parser = new Parser(TokenBuffer.lex(program));
+            ProgramNode first = parser.program();
+
+            //Inside a function body: only that function is new
+            String edited = program.replace("a := 1", "a := a + 10");
+            ProgramNode second = parser.reparse(first, program.indexOf("1 end"), 1, "a + 10");
+            assertEquals(new Parser(TokenBuffer.lex(edited)).program().indentedToString(1), second.indentedToString(1));
+            assertTrue(first.getVariables() == second.getVariables());
+            assertTrue(first.getMain() == second.getMain());
+            assertTrue(first.getFunctions().getProcs().get(0) != second.getFunctions().getProcs().get(0));
+            assertTrue(first.getFunctions().getProcs().get(1) == second.getFunctions().getProcs().get(1));
+
+            //Inside the main body: the subprograms are kept
+            String edited2 = edited.replace("a := 3", "b := 4");
+            ProgramNode third = parser.reparse(second, edited.indexOf("a := 3"), 6, "b := 4");
+            assertEquals(new Parser(TokenBuffer.lex(edited2)).program().indentedToString(1), third.indentedToString(1));
+            assertTrue(second.getFunctions() == third.getFunctions());
+
+            //A new variable changes the symbol table, so everything is parsed again
+            String edited3 = edited2.replace("var r: real;", "var r, s: real;");
+            Parser fresh = new Parser(TokenBuffer.lex(edited3));
+            ProgramNode fourth = parser.reparse(third, edited2.indexOf(": real;"), 0, ", s");
+            assertEquals(fresh.program().indentedToString(1), fourth.indentedToString(1));
+            assertEquals(fresh.getSymbolTable().getSymbolCount(), parser.getSymbolTable().getSymbolCount());
+            assertTrue(parser.getSymbolTable().isVariable("s"));
+            assertTrue(third.getVariables() != fourth.getVariables());
+
+            //An error in a body is reported as a full parse reports it
+            String broken = edited3.replace("b := 2", "b := ");
+            try {
+                parser.reparse(fourth, edited3.indexOf("2 end"), 1, "");
+                fail();
+            } catch (RuntimeException e) {
+                assertEquals(parse(new Parser(TokenBuffer.lex(broken))), e.getMessage());
+            }
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * Tests that a ProfilingParser builds the same tree as a Parser, counts the calls and tokens of each production,
+     * and sends its events to a Flight Recorder recording
+     */
+    @Test
+    public void testProfilingParser() throws Exception {
+        String program = "program foo; var a, b: integer;\n" +
+                "procedure p; begin b := 2 end;\n" +
+                "begin a := 3; b := a * (a + 1); p end.";
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        Path file = Files.createTempFile("parse", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("parser.Parse");
+            recording.enable("parser.Production");
+            recording.start();
+            ProfilingParser parser = new ProfilingParser(TokenBuffer.lex(program));
+            ProgramNode tree = parser.program();
+            recording.stop();
+            recording.dump(file);
+            assertEquals(new Parser(program, false).program().indentedToString(1), tree.indentedToString(1));
+
+            ParseProfile profile = parser.getProfile();
+            int tokens = TokenBuffer.lex(program).size();
+            assertEquals(1, profile.getCalls(ParseProfile.Production.PROGRAM));
+            assertEquals(tokens, profile.getTokens(ParseProfile.Production.PROGRAM));
+            assertEquals(4, profile.getCalls(ParseProfile.Production.STATEMENT));
+            assertEquals(2, profile.getCalls(ParseProfile.Production.COMPOUND_STATEMENT));
+            //2, 3, and a, (a + 1), a and 1 in a * (a + 1)
+            assertEquals(6, profile.getCalls(ParseProfile.Production.FACTOR));
+            assertEquals(0, profile.getCalls(ParseProfile.Production.SIGN));
+            assertTrue(profile.toString().contains("statement"));
+            assertTrue(!profile.toString().contains("sign"));
+
+            int parses = 0;
+            long statements = -1;
+            for (RecordedEvent event : RecordingFile.readAllEvents(file)) {
+                if (event.getEventType().getName().equals("parser.Parse")) {
+                    parses++;
+                    assertEquals(tokens, event.getLong("tokens"));
+                } else if (event.getString("production").equals("statement")) {
+                    statements = event.getLong("calls");
+                }
+            }
+            assertEquals(1, parses);
+            assertEquals(4, statements);
+        } finally {
+            System.setOut(out);
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Tests that with lazy bodies the heads are parsed at once, a body is only parsed when it is asked for, and the
+     * tree it ends up as is the one an eager parse builds
+     */
+    @Test
+    public void testLazyBodies(){
+        String program = "program foo; var a, b: integer;\n" +
+                "function f(x: integer): integer; begin a := x + 1 end;\n" +
+                "procedure p; begin b := end;\n" +
+                "function g: real; begin a := 2 end;\n" +
+                "begin a := 3 end.";
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            //The error in the body of p is not seen until that body is parsed
+            Parser parser = new Parser(TokenBuffer.lex(program));
+            parser.setLazyBodies(true);
+            ProgramNode tree = parser.program();
+            SubProgramNode f = tree.getFunctions().getProcs().get(0);
+            assertEquals("f", f.getName());
+            assertEquals(2, f.getArguments().size());
+            assertEquals("g", tree.getFunctions().getProcs().get(1).getName());
+
+            String fixed = program.replace("b := end", "b := 2 end");
+            parser = new Parser(TokenBuffer.lex(fixed));
+            parser.setLazyBodies(true);
+            assertEquals(new Parser(fixed, false).program().indentedToString(1),
+                    parser.program().indentedToString(1));
+
+            //An error in a function body is thrown from getMain, as a full parse throws it
+            String broken = fixed.replace("a := 2", "a := ");
+            parser = new Parser(TokenBuffer.lex(broken));
+            parser.setLazyBodies(true);
+            tree = parser.program();
+            try {
+                tree.getFunctions().getProcs().get(1).getMain();
+                fail();
+            } catch (RuntimeException e) {
+                assertEquals(parse(new Parser(TokenBuffer.lex(broken))), e.getMessage());
+            }
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * Tests that with an error cap the parser recovers from each error and reports all of them in one parse,
+     * and that the default cap still stops at the first error
+     */
+    @Test
+    public void testErrorRecovery(){
+        String inputProgram = "program foo;\n" +
+                "var a, b : integer;\n" +
+                "var c real;\n" +
+                "function f : integer;\n" +
+                "begin a := a + end;\n" +
+                "begin\n" +
+                "a := 3 + * 4;\n" +
+                "if a < 4 then b := 1 else b := );\n" +
+                "a := 5\n" +
+                "b := 6\n" +
+                "end.";
+        String[] expected = {"Match expected: COLON", "Factor error: ", "Factor error: ", "Simple_Expression error: ",
+                "Match expected: END"};
+        int[] lines = {3, 5, 7, 8, 10};
+        Parser[] parsers = {new Parser(inputProgram, false), new Parser(TokenBuffer.lex(inputProgram))};
+        for (Parser parser : parsers) {
+            parser.setMaxErrors(100);
+            try {
+                parser.program();
+                fail();
+            } catch (RuntimeException e) {
+                assertEquals(expected.length, e.getMessage().split("\n").length);
+            }
+            assertEquals(expected.length, parser.getSyntaxErrors().size());
+            for (int i = 0; i < expected.length; i++) {
+                SyntaxError error = parser.getSyntaxErrors().get(i);
+                assertTrue(error.toString(), error.getMessage().startsWith(expected[i]));
+                assertEquals(error.toString(), lines[i], error.getLine());
+            }
+        }
+
+        Parser capped = new Parser(inputProgram, false);
+        capped.setMaxErrors(2);
+        try {
+            capped.program();
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals(2, capped.getSyntaxErrors().size());
+        }
+        try {
+            new Parser(inputProgram, false).program();
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("Match expected: COLON\tMatch found: REAL occurred at line: 3\n", e.getMessage());
+        }
+
+        String validProgram = "program foo; var fee, fi: real; function fum: real ; var walk, jog, run : real;"+
+                "begin if fum < 5 then run := 5 - 4 else run := 4 + 5 end; "+
+                "begin if fi < 5 then fee := 5 else while fi > 2 do fee := (fi * 2) - 10 end.";
+        Parser recovering = new Parser(validProgram, false);
+        recovering.setMaxErrors(100);
+        assertEquals(new Parser(validProgram, false).program().indentedToString(1),
+                recovering.program().indentedToString(1));
+        assertTrue(recovering.getSyntaxErrors().isEmpty());
+    }
+
+    /**
+     * Tests that lists of 100000 items, and an expression of 100000 terms, parse without running out of stack. How
+     * the time per item grows with the lists is measured by the parser benchmarks over the "lists" shape.
+     */
+    @Test
+    public void testLongLists(){
+        PrintStream out = System.out;
+        //Every name declared and assigned prints an "already exists" error, which would flood the output
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            int n = 100000;
+            ProgramNode program = new Parser(listProgram(n), false).program();
+            assertEquals(n, program.getVariables().getVariables().size());
+            SubProgramNode function = program.getFunctions().getProcs().get(0);
+            assertEquals(n + 1, function.getArguments().size());
+            ArrayList<StatementNode> statements = program.getMain().getStatement();
+            assertEquals(n, statements.size());
+            assertEquals(n, ((ProcedureStatementNode) statements.get(0)).getArguments().size());
+
+            StringBuilder chain = new StringBuilder("program chain; var a: integer; begin a := a * a");
+            for (int i = 1; i < n; i++) {
+                chain.append(i % 2 == 0 ? " + " : " - ").append("a * a");
+            }
+            AssignmentStatementNode assignment = (AssignmentStatementNode) new Parser(chain.append(" end.")
+                    .toString(), false).program().getMain().getStatement().get(0);
+            //The terms still group to the right, each holding its multiplication
+            ExpressionNode term = assignment.getExpression();
+            for (int i = 1; i < n; i++) {
+                OperationNode operation = (OperationNode) term;
+                assertEquals(i % 2 == 0 ? TokenType.PLUS : TokenType.MINUS, operation.getOperation());
+                assertEquals(TokenType.ASTERISK, ((OperationNode) operation.getLeft()).getOperation());
+                term = operation.getRight();
+            }
+            assertEquals(TokenType.ASTERISK, ((OperationNode) term).getOperation());
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    /**
+     * Builds a program with n names in an identifier list, a parameter list, a statement list and an expression list
+     */
+    private static String listProgram(int n) {
+        StringBuilder text = new StringBuilder("program lists; var ");
+        for (int i = 0; i < n; i++) {
+            text.append(i == 0 ? "v" : ", v").append(i);
+        }
+        text.append(" : integer; procedure p; begin end; function f(");
+        for (int i = 0; i < n; i++) {
+            text.append(i == 0 ? "a" : "; a").append(i).append(" : integer");
+        }
+        text.append(") : integer; begin end; begin p(");
+        for (int i = 0; i < n; i++) {
+            text.append(i == 0 ? "v" : ", v").append(i);
+        }
+        text.append(')');
+        for (int i = 1; i < n; i++) {
+            text.append("; v").append(i).append(" := v").append(i - 1);
+        }
+        return text.append(" end.").toString();
+    }
+
+    /**
+     * Tests that precedence climbing builds the same trees, with the same types, as the recursive simple_part and
+     * term_part rules it replaced. The expected trees were printed by the parser before the change.
+     */
+    @Test
+    public void testPrecedenceClimbing(){
+        String[][] cases = {
+                {"a + b - c + d", "PLUS[null](a:INTEGER, MINUS[null](b:INTEGER, PLUS[null](c:INTEGER, d:INTEGER)))"},
+                {"a * b / c div d mod e and f", "ASTERISK[null](a:INTEGER, FSLASH[null](b:INTEGER, DIV[null](c:INTEGER, " +
+                        "MOD[null](d:INTEGER, AND[null](e:INTEGER, f:INTEGER)))))"},
+                {"a + b * c - d / e", "PLUS[null](a:INTEGER, MINUS[null](ASTERISK[null](b:INTEGER, c:INTEGER), " +
+                        "FSLASH[null](d:INTEGER, e:INTEGER)))"},
+                {"-a * b + c", "MINUS[null](PLUS[null](ASTERISK[null](a:INTEGER, b:INTEGER), c:INTEGER))"},
+                {"+a - b", "PLUS[INTEGER](MINUS[null](a:INTEGER, b:INTEGER))"},
+                {"(a + b) * (c - d)", "ASTERISK[null](PLUS[null](a:INTEGER, b:INTEGER), MINUS[null](c:INTEGER, d:INTEGER))"},
+                {"not a or b", "OR[null](NOT[INTEGER](a:INTEGER), b:INTEGER)"},
+                {"a < b + c", "LTHAN[INTEGER](a:INTEGER, PLUS[null](b:INTEGER, c:INTEGER))"},
+                {"x >= 2", "GTHANEQ[REAL](x:REAL, 2:INTEGER)"},
+                {"x + 2.5 * 3", "PLUS[null](x:REAL, ASTERISK[null](2.5:REAL, 3:INTEGER))"},
+                {"a - (b - c) - d", "MINUS[null](a:INTEGER, MINUS[null](MINUS[null](b:INTEGER, c:INTEGER), d:INTEGER))"},
+                {"-(a + b) * c or d", "MINUS[null](OR[null](ASTERISK[null](PLUS[null](a:INTEGER, b:INTEGER), " +
+                        "c:INTEGER), d:INTEGER))"},
+                {"(a * b) <> x", "NOTEQ[INTEGER](ASTERISK[null](a:INTEGER, b:INTEGER), x:REAL)"}
+        };
+        for (String[] expression : cases) {
+            Parser[] parsers = {new Parser(expression[0], false), new Parser(TokenBuffer.lex(expression[0]))};
+            for (Parser parser : parsers) {
+                for (String name : new String[] {"a", "b", "c", "d", "e", "f"}) {
+                    parser.getSymbolTable().addVariable(name, TokenType.INTEGER);
+                }
+                parser.getSymbolTable().addVariable("x", TokenType.REAL);
+                assertEquals(expression[0], expression[1], shape(parser.expression()));
+            }
+        }
+
+        String[] errors = {"a + -b", "a * + b", "a < b < c", "a +"};
+        for (String expression : errors) {
+            Parser parser = new Parser(expression, false);
+            parser.getSymbolTable().addVariable("a", TokenType.INTEGER);
+            parser.getSymbolTable().addVariable("b", TokenType.INTEGER);
+            try {
+                parser.expression();
+                parser.match(null);
+                fail(expression);
+            } catch (RuntimeException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Factor error: ")
+                        || e.getMessage().startsWith("Match expected: null"));
+            }
+        }
+    }
+
+    /**
+     * @return The operators, operands and types of an expression tree on one line
+     */
+    private static String shape(ExpressionNode node) {
+        if (node instanceof OperationNode) {
+            OperationNode operation = (OperationNode) node;
+            return operation.getOperation() + "[" + operation.getType() + "](" + shape(operation.getLeft()) + ", " +
+                    shape(operation.getRight()) + ")";
+        } else if (node instanceof UnaryOperationNode) {
+            UnaryOperationNode unary = (UnaryOperationNode) node;
+            return unary.getOp() + "[" + unary.getType() + "](" + shape(unary.getExpression()) + ")";
+        } else if (node instanceof VariableNode) {
+            return ((VariableNode) node).getName() + ":" + node.getType();
+        }
+        return ((ValueNode) node).getAttribute() + ":" + node.getType();
+    }
+}
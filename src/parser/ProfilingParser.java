@@ -0,0 +1,272 @@
+package parser;
+
+import parser.ParseProfile.Production;
+import scanner.TokenBuffer;
+import scanner.TokenType;
+import syntaxtree.*;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This is a Parser that measures itself. Every grammar method is wrapped to record its calls, self time and the
+ * tokens it consumed in a ParseProfile, which program() starts over and sends to Java Flight Recorder when it
+ * returns. The Parser itself is left as it is, so parsing without a ProfilingParser costs exactly what it did.
+ * Reading the clock twice per call makes a profiled parse about three times slower, so compare self times with each
+ * other rather than with an unprofiled parse.
+ * Subprogram bodies are parsed in order on the calling thread even if a pool is set, so that every production is
+ * measured in one profile.
+ * @author Gabriel Bergstrom
+ */
+public class ProfilingParser extends Parser
+{
+    private ParseProfile profile = new ParseProfile();
+
+    public ProfilingParser(String text, boolean isFilename) {
+        super(text, isFilename);
+    }
+
+    public ProfilingParser(TokenBuffer tokens) {
+        super(tokens);
+    }
+
+    public ProfilingParser() {
+        super();
+    }
+
+    /**
+     * @return What the last parse measured
+     */
+    public ParseProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Keeps the subprogram bodies on the calling thread, see the class comment.
+     */
+    @Override
+    public void setSubprogramPool(ForkJoinPool pool) {
+    }
+
+    @Override
+    public ProgramNode program() {
+        profile.begin(tokenPosition());
+        profile.enter(tokenPosition());
+        try {
+            return super.program();
+        } finally {
+            profile.exit(Production.PROGRAM, tokenPosition());
+            profile.end(tokenPosition());
+        }
+    }
+
+    @Override
+    public ArrayList<String> identiferList() {
+        profile.enter(tokenPosition());
+        try {
+            return super.identiferList();
+        } finally {
+            profile.exit(Production.IDENTIFIER_LIST, tokenPosition());
+        }
+    }
+
+    @Override
+    public DeclarationsNode declarations() {
+        profile.enter(tokenPosition());
+        try {
+            return super.declarations();
+        } finally {
+            profile.exit(Production.DECLARATIONS, tokenPosition());
+        }
+    }
+
+    @Override
+    public TokenType type(ArrayList<String> idList) {
+        profile.enter(tokenPosition());
+        try {
+            return super.type(idList);
+        } finally {
+            profile.exit(Production.TYPE, tokenPosition());
+        }
+    }
+
+    @Override
+    public TokenType standardType() {
+        profile.enter(tokenPosition());
+        try {
+            return super.standardType();
+        } finally {
+            profile.exit(Production.STANDARD_TYPE, tokenPosition());
+        }
+    }
+
+    @Override
+    public SubProgramDeclarationsNode subprogramDeclarations() {
+        profile.enter(tokenPosition());
+        try {
+            return super.subprogramDeclarations();
+        } finally {
+            profile.exit(Production.SUBPROGRAM_DECLARATIONS, tokenPosition());
+        }
+    }
+
+    @Override
+    public SubProgramNode subprogramDeclaration() {
+        profile.enter(tokenPosition());
+        try {
+            return super.subprogramDeclaration();
+        } finally {
+            profile.exit(Production.SUBPROGRAM_DECLARATION, tokenPosition());
+        }
+    }
+
+    @Override
+    public SubProgramNode subprogramHead() {
+        profile.enter(tokenPosition());
+        try {
+            return super.subprogramHead();
+        } finally {
+            profile.exit(Production.SUBPROGRAM_HEAD, tokenPosition());
+        }
+    }
+
+    @Override
+    public ArrayList<VariableNode> arguments() {
+        profile.enter(tokenPosition());
+        try {
+            return super.arguments();
+        } finally {
+            profile.exit(Production.ARGUMENTS, tokenPosition());
+        }
+    }
+
+    @Override
+    public ArrayList<VariableNode> parameterList() {
+        profile.enter(tokenPosition());
+        try {
+            return super.parameterList();
+        } finally {
+            profile.exit(Production.PARAMETER_LIST, tokenPosition());
+        }
+    }
+
+    @Override
+    public CompoundStatementNode compoundStatement() {
+        profile.enter(tokenPosition());
+        try {
+            return super.compoundStatement();
+        } finally {
+            profile.exit(Production.COMPOUND_STATEMENT, tokenPosition());
+        }
+    }
+
+    @Override
+    public CompoundStatementNode optionalStatements() {
+        profile.enter(tokenPosition());
+        try {
+            return super.optionalStatements();
+        } finally {
+            profile.exit(Production.OPTIONAL_STATEMENTS, tokenPosition());
+        }
+    }
+
+    @Override
+    public ArrayList<StatementNode> statementList() {
+        profile.enter(tokenPosition());
+        try {
+            return super.statementList();
+        } finally {
+            profile.exit(Production.STATEMENT_LIST, tokenPosition());
+        }
+    }
+
+    @Override
+    public StatementNode statement() {
+        profile.enter(tokenPosition());
+        try {
+            return super.statement();
+        } finally {
+            profile.exit(Production.STATEMENT, tokenPosition());
+        }
+    }
+
+    @Override
+    public VariableNode variable() {
+        profile.enter(tokenPosition());
+        try {
+            return super.variable();
+        } finally {
+            profile.exit(Production.VARIABLE, tokenPosition());
+        }
+    }
+
+    @Override
+    public ProcedureStatementNode procedureStatement() {
+        profile.enter(tokenPosition());
+        try {
+            return super.procedureStatement();
+        } finally {
+            profile.exit(Production.PROCEDURE_STATEMENT, tokenPosition());
+        }
+    }
+
+    @Override
+    public ArrayList<ExpressionNode> expressionList() {
+        profile.enter(tokenPosition());
+        try {
+            return super.expressionList();
+        } finally {
+            profile.exit(Production.EXPRESSION_LIST, tokenPosition());
+        }
+    }
+
+    @Override
+    public ExpressionNode expression() {
+        profile.enter(tokenPosition());
+        try {
+            return super.expression();
+        } finally {
+            profile.exit(Production.EXPRESSION, tokenPosition());
+        }
+    }
+
+    @Override
+    public ExpressionNode simpleExpression() {
+        profile.enter(tokenPosition());
+        try {
+            return super.simpleExpression();
+        } finally {
+            profile.exit(Production.SIMPLE_EXPRESSION, tokenPosition());
+        }
+    }
+
+    @Override
+    public ExpressionNode term() {
+        profile.enter(tokenPosition());
+        try {
+            return super.term();
+        } finally {
+            profile.exit(Production.TERM, tokenPosition());
+        }
+    }
+
+    @Override
+    public ExpressionNode factor() {
+        profile.enter(tokenPosition());
+        try {
+            return super.factor();
+        } finally {
+            profile.exit(Production.FACTOR, tokenPosition());
+        }
+    }
+
+    @Override
+    public UnaryOperationNode sign() {
+        profile.enter(tokenPosition());
+        try {
+            return super.sign();
+        } finally {
+            profile.exit(Production.SIGN, tokenPosition());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package parser;
+
+import scanner.TokenType;
+
+/**
+ * This class describes one error the parser found: what it expected, the line it was on and the token it found
+ * there instead. The parser records one for every error, and when it recovers from them a single parse reports
+ * every error in the program instead of only the first.
+ * @author Gabriel Bergstrom
+ */
+public class SyntaxError
+{
+    private String message;
+    private int line;
+    private TokenType found;
+
+    /**
+     * @param message The error message
+     * @param line    The line of the token the error was found at, counting from 1
+     * @param found   The type of that token, or null at the end of the input
+     */
+    public SyntaxError(String message, int line, TokenType found) {
+        this.message = message;
+        this.line = line;
+        this.found = found;
+    }
+
+    /**
+     * @return The error message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return The line of the token the error was found at, counting from 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return The type of the token the error was found at, or null at the end of the input
+     */
+    public TokenType getFound() {
+        return found;
+    }
+
+    /**
+     * @return The message the parser used to throw for this error
+     */
+    @Override
+    public String toString() {
+        return message + "occurred at line: " + line;
+    }
+}
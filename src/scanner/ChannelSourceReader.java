@@ -0,0 +1,146 @@
+package scanner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class is a Reader that streams a source from a ReadableByteChannel, for inputs that are not files or are
+ * too large to map. The channel reads into one direct ByteBuffer that is reused for the whole input, so the channel
+ * needs no temporary buffer of its own, and the bytes are widened straight into the array handed to read(), which
+ * for MyScanner is its zzBuffer. Mini-Pascal sources are plain ASCII, and while they stay ASCII that widening is the
+ * only work done per byte before the DFA sees it. It is done by a US-ASCII CharsetDecoder over a heap copy of the
+ * bytes, because its loop is a JIT intrinsic that widens many bytes per instruction, several times faster than a
+ * loop over the bytes written here. At the first byte outside of ASCII the reader switches to a UTF-8
+ * CharsetDecoder for the rest of the input, so any source still scans the same as through an InputStreamReader.
+ * The channel must be in blocking mode.
+ * @author Gabriel Bergstrom
+ */
+public class ChannelSourceReader extends Reader
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private ReadableByteChannel channel;
+    private ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private byte[] scratch = new byte[BUFFER_SIZE];
+    private CharsetDecoder asciiDecoder = StandardCharsets.US_ASCII.newDecoder();
+    private boolean endOfInput;
+    private CharsetDecoder decoder;//Only created once a byte outside of ASCII is seen
+    private boolean flushed;
+
+    /**
+     * @param channel The channel to read, which is closed with this reader
+     */
+    public ChannelSourceReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        bytes.flip();
+    }
+
+    /**
+     * @param file The file to read
+     * @throws IOException if the file cannot be opened
+     */
+    public ChannelSourceReader(Path file) throws IOException {
+        this(FileChannel.open(file, StandardOpenOption.READ));
+    }
+
+    /**
+     * Fills as much of the given part of the array as the buffered bytes allow, reading from the channel only when
+     * they have all been used.
+     *
+     * @param cbuf The buffer to write characters into
+     * @param off  The offset to start writing at
+     * @param len  The maximum number of characters to write
+     * @return The number of characters written or -1 at the end of the input
+     */
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (channel == null) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (true) {
+            if (decoder == null) {
+                int count = widen(cbuf, off, len);
+                if (count > 0) {
+                    return count;
+                }
+            }
+            if (decoder != null && !flushed) {
+                CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+                CoderResult result = decoder.decode(bytes, out, endOfInput);
+                if (endOfInput && !bytes.hasRemaining()) {
+                    decoder.flush(out);
+                    flushed = true;
+                }
+                if (out.position() > off) {
+                    return out.position() - off;
+                }
+                if (result.isOverflow()) {
+                    throw new IOException("Buffer too small to hold a single character");
+                }
+            }
+            if (endOfInput && (!bytes.hasRemaining() || flushed)) {
+                return -1;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * Copies buffered ASCII bytes into the array as characters, stopping at the first byte outside of ASCII and
+     * switching to the decoder there.
+     *
+     * @return The number of characters written
+     */
+    private int widen(char[] cbuf, int off, int len) {
+        int count = Math.min(len, bytes.remaining());
+        int position = bytes.position();
+        bytes.get(scratch, 0, count);
+        ByteBuffer in = ByteBuffer.wrap(scratch, 0, count);
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        asciiDecoder.reset();
+        CoderResult result = asciiDecoder.decode(in, out, false);
+        int ascii = out.position() - off;
+        if (result.isMalformed()) {
+            decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        bytes.position(position + ascii);
+        return ascii;
+    }
+
+    /**
+     * Reads from the channel into the free part of the buffer, keeping any bytes not used yet.
+     */
+    private void fill() throws IOException {
+        bytes.compact();
+        if (channel.read(bytes) < 0) {
+            endOfInput = true;
+        }
+        bytes.flip();
+    }
+
+    /**
+     * Closes the channel.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package scanner;
+
+/**
+ * This class describes one lexical error: a character that does not start any token. It records where the
+ * character is, as an offset from the start of the source and as a line and column, and the offending text.
+ * Lines and columns count from 0, the same as the line numbers of Tokens.
+ * @author Gabriel Bergstrom
+ */
+public class Diagnostic
+{
+    private int offset;
+    private int line;
+    private int column;
+    private String text;
+
+    /**
+     * @param offset The character offset of the offending text
+     * @param line   The line of the offending text
+     * @param column The column of the offending text
+     * @param text   The offending text
+     */
+    public Diagnostic(int offset, int line, int column, String text) {
+        this.offset = offset;
+        this.line = line;
+        this.column = column;
+        this.text = text;
+    }
+
+    /**
+     * @return The character offset of the offending text from the start of the source
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return The line of the offending text
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return The column of the offending text
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * @return The offending text
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return The message the scanner used to print for this error, with the column added
+     */
+    @Override
+    public String toString() {
+        return "Illegal syntax found:" + "\t" + text + "\t" + "Line:" + line + "\t" + "Column:" + column;
+    }
+}
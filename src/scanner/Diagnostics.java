@@ -0,0 +1,96 @@
+package scanner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class collects the Diagnostics of one compilation, in the order of their offsets. The scanner adds to it
+ * instead of printing, so lexing does no console I/O and the caller decides what to do with the errors once it is
+ * done. It is not synchronized: each scanner has its own, and ParallelLexer gives every chunk its own and appends
+ * them in chunk order.
+ * @author Gabriel Bergstrom
+ */
+public class Diagnostics
+{
+    private List<Diagnostic> diagnostics = new ArrayList<>();
+
+    /**
+     * Records a lexical error.
+     *
+     * @param offset The character offset of the offending text
+     * @param line   The line of the offending text
+     * @param column The column of the offending text
+     * @param text   The offending text
+     */
+    public void add(int offset, int line, int column, String text) {
+        diagnostics.add(new Diagnostic(offset, line, column, text));
+    }
+
+    /**
+     * Appends every Diagnostic of another sink, which must come after all of these in the source.
+     *
+     * @param other The sink to copy from
+     */
+    public void addAll(Diagnostics other) {
+        diagnostics.addAll(other.diagnostics);
+    }
+
+    /**
+     * @return The number of Diagnostics recorded
+     */
+    public int size() {
+        return diagnostics.size();
+    }
+
+    /**
+     * @return true if no Diagnostics have been recorded
+     */
+    public boolean isEmpty() {
+        return diagnostics.isEmpty();
+    }
+
+    /**
+     * @return A read only view of the Diagnostics recorded so far
+     */
+    public List<Diagnostic> getAll() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    /**
+     * Removes and returns every Diagnostic recorded so far.
+     *
+     * @return The Diagnostics in the order of their offsets
+     */
+    public List<Diagnostic> drain() {
+        List<Diagnostic> drained = diagnostics;
+        diagnostics = new ArrayList<>();
+        return drained;
+    }
+
+    /**
+     * Removes every Diagnostic recorded so far, keeping the list for the next compilation.
+     */
+    public void clear() {
+        diagnostics.clear();
+    }
+
+    /**
+     * Gives the list itself to TokenBuffer, which rewrites it after an edit.
+     */
+    List<Diagnostic> list() {
+        return diagnostics;
+    }
+
+    /**
+     * @return One Diagnostic per line
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (Diagnostic diagnostic : diagnostics) {
+            text.append(diagnostic).append('\n');
+        }
+        return text.toString();
+    }
+}
@@ -1,54 +1,132 @@
 package scanner;
 /**
  * @author Gabriel Bergstrom
- * This is a Hashmap that will act as the lookup table.
+ * This is the lookup table for keywords and symbols.
  * This class will be called whenever the scanner is checking if the current lexeme is a key word or symbol
- * and will assign a token type accordingly
+ * and will assign a token type accordingly.
+ * The lexeme is classified straight from the scanner's buffer, so no String is created and nothing is hashed.
+ * Keywords are found by their length and first letter, which leaves at most two candidates (read and real) to
+ * compare. The table is built once and shared by every scanner.
  * */
-import java.util.HashMap;
-public class LookUpTable extends HashMap<String, TokenType>
+public final class LookUpTable
 {
-    public LookUpTable(){
-        this.put("and", TokenType.AND);
-        this.put("array", TokenType.ARRAY);
-        this.put("begin", TokenType.BEGIN);
-        this.put("div", TokenType.DIV);
-        this.put("do", TokenType.DO);
-        this.put("else", TokenType.ELSE);
-        this.put("end", TokenType.END);
-        this.put("function",TokenType.FUNCTION);
-        this.put("if", TokenType.IF);
-        this.put("integer", TokenType.INTEGER);
-        this.put("mod", TokenType.MOD);
-        this.put("not", TokenType.NOT);
-        this.put("of", TokenType.OF);
-        this.put("or", TokenType.OR);
-        this.put("procedure", TokenType.PROCEDURE);
-        this.put("program", TokenType.PROGRAM);
-        this.put("real", TokenType.REAL);
-        this.put("then", TokenType.THEN);
-        this.put("var", TokenType.VAR);
-        this.put("while", TokenType.WHILE);
-        this.put(";", TokenType.SEMI);
-        this.put(",", TokenType.COMMA);
-        this.put(".", TokenType.PERIOD);
-        this.put(":", TokenType.COLON);
-        this.put("[", TokenType.LBRACE);
-        this.put("]", TokenType.RBRACE);
-        this.put("(", TokenType.LPAREN);
-        this.put(")", TokenType.RPAREN);
-        this.put("+", TokenType.PLUS);
-        this.put("-", TokenType.MINUS);
-        this.put("=", TokenType.EQUAL);
-        this.put("<>",TokenType.NOTEQ);
-        this.put("<", TokenType.LTHAN);
-        this.put("<=",TokenType.LTHANEQ);
-        this.put(">", TokenType.GTHAN);
-        this.put(">=",TokenType.GTHANEQ);
-        this.put("*", TokenType.ASTERISK);
-        this.put("/", TokenType.FSLASH);
-        this.put(":=",TokenType.ASSIGN);
-        this.put("read",TokenType.READ);
-        this.put("write",TokenType.WRITE);
+    /**
+     * A keyword and its type. Keywords with the same length and first letter are chained together.
+     */
+    private static final class Keyword {
+        private final char[] text;
+        private final TokenType type;
+        private final Keyword next;
+
+        private Keyword(String text, TokenType type, Keyword next) {
+            this.text = text.toCharArray();
+            this.type = type;
+            this.next = next;
+        }
     }
+
+    private static final int MAX_KEYWORD_LENGTH = 9;
+
+    /** Keywords indexed by their length and then by their first letter */
+    private static final Keyword[][] KEYWORDS = new Keyword[MAX_KEYWORD_LENGTH + 1][26];
+
+    static {
+        add("and", TokenType.AND);
+        add("array", TokenType.ARRAY);
+        add("begin", TokenType.BEGIN);
+        add("div", TokenType.DIV);
+        add("do", TokenType.DO);
+        add("else", TokenType.ELSE);
+        add("end", TokenType.END);
+        add("function",TokenType.FUNCTION);
+        add("if", TokenType.IF);
+        add("integer", TokenType.INTEGER);
+        add("mod", TokenType.MOD);
+        add("not", TokenType.NOT);
+        add("of", TokenType.OF);
+        add("or", TokenType.OR);
+        add("procedure", TokenType.PROCEDURE);
+        add("program", TokenType.PROGRAM);
+        add("real", TokenType.REAL);
+        add("then", TokenType.THEN);
+        add("var", TokenType.VAR);
+        add("while", TokenType.WHILE);
+        add("read",TokenType.READ);
+        add("write",TokenType.WRITE);
+    }
+
+    private LookUpTable() {
+    }
+
+    private static void add(String text, TokenType type) {
+        int first = text.charAt(0) - 'a';
+        KEYWORDS[text.length()][first] = new Keyword(text, type, KEYWORDS[text.length()][first]);
+    }
+
+    /**
+     * Classifies an identifier shaped lexeme.
+     *
+     * @param buf    The buffer holding the lexeme
+     * @param start  The offset of the first character of the lexeme
+     * @param length The length of the lexeme
+     * @return The keyword type of the lexeme, or ID if it is not a keyword
+     */
+    public static TokenType keyword(char[] buf, int start, int length) {
+        if (length > MAX_KEYWORD_LENGTH) {
+            return TokenType.ID;
+        }
+        int first = buf[start] - 'a';
+        if (first < 0 || first >= 26) {
+            return TokenType.ID;
+        }
+        for (Keyword k = KEYWORDS[length][first]; k != null; k = k.next) {
+            int i = 1;
+            while (i < length && k.text[i] == buf[start + i]) {
+                i++;
+            }
+            if (i == length) {
+                return k.type;
+            }
+        }
+        return TokenType.ID;
+    }
+
+    /**
+     * Classifies a symbol lexeme.
+     *
+     * @param buf    The buffer holding the lexeme
+     * @param start  The offset of the first character of the lexeme
+     * @param length The length of the lexeme, one or two characters
+     * @return The type of the symbol, or null if it is not a symbol
+     */
+    public static TokenType symbol(char[] buf, int start, int length) {
+        char c = buf[start];
+        if (length == 2) {
+            char second = buf[start + 1];
+            if (c == ':' && second == '=') return TokenType.ASSIGN;
+            if (c == '<' && second == '=') return TokenType.LTHANEQ;
+            if (c == '>' && second == '=') return TokenType.GTHANEQ;
+            if (c == '<' && second == '>') return TokenType.NOTEQ;
+            return null;
+        }
+        switch (c) {
+            case ';': return TokenType.SEMI;
+            case ',': return TokenType.COMMA;
+            case '.': return TokenType.PERIOD;
+            case ':': return TokenType.COLON;
+            case '[': return TokenType.LBRACE;
+            case ']': return TokenType.RBRACE;
+            case '(': return TokenType.LPAREN;
+            case ')': return TokenType.RPAREN;
+            case '+': return TokenType.PLUS;
+            case '-': return TokenType.MINUS;
+            case '=': return TokenType.EQUAL;
+            case '<': return TokenType.LTHAN;
+            case '>': return TokenType.GTHAN;
+            case '*': return TokenType.ASTERISK;
+            case '/': return TokenType.FSLASH;
+            default: return null;
+        }
+    }
+
 }
@@ -0,0 +1,124 @@
+package scanner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class is a Reader that maps a source file into memory with FileChannel.map and decodes it into the buffer
+ * handed to read(), which for MyScanner is its zzBuffer. There are no read() system calls and no copy from the kernel
+ * into a FileInputStream buffer: the mapped pages are moved through a small window that stays in cache and are
+ * decoded as UTF-8 straight into the caller's array. The window is there because the JDK decoder only takes its fast
+ * ASCII path for heap buffers, decoding the mapping directly is several times slower for plain Mini-Pascal sources.
+ * @author Gabriel Bergstrom
+ */
+public class MappedSourceReader extends Reader
+{
+    private static final int WINDOW_SIZE = 16384;
+
+    private FileChannel channel;
+    private MappedByteBuffer bytes;
+    private ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE);
+    private CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /**
+     * @param filename The path of the file to map
+     * @throws IOException if the file cannot be opened or is too large to be mapped
+     */
+    public MappedSourceReader(String filename) throws IOException {
+        this(Paths.get(filename));
+    }
+
+    /**
+     * @param file The file to map
+     * @throws IOException if the file cannot be opened or is too large to be mapped
+     */
+    public MappedSourceReader(Path file) throws IOException {
+        open(file);
+    }
+
+    /**
+     * Closes the current file and maps another one in its place, reusing the window and the decoder. A Parser that
+     * is reset to a path reads every file through the same MappedSourceReader this way.
+     *
+     * @param file The file to map
+     * @throws IOException if the file cannot be opened or is too large to be mapped
+     */
+    public void open(Path file) throws IOException {
+        close();
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            close();
+            throw new IOException("File is too large to be mapped: " + file);
+        }
+        bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        window.clear();
+        window.flip();
+        decoder.reset();
+    }
+
+    /**
+     * Decodes as many characters as will fit into the given part of the array.
+     *
+     * @param cbuf The buffer to decode into
+     * @param off  The offset to start writing at
+     * @param len  The maximum number of characters to write
+     * @return The number of characters written or -1 at the end of the file
+     */
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (bytes == null) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        while (out.position() == off) {
+            //Top up the window from the mapping, keeping any partial character left over from the last call
+            window.compact();
+            int count = Math.min(window.remaining(), bytes.remaining());
+            bytes.get(window.array(), window.position(), count);
+            window.position(window.position() + count);
+            window.flip();
+
+            boolean endOfInput = !bytes.hasRemaining();
+            if (endOfInput && !window.hasRemaining()) {
+                return -1;
+            }
+            CoderResult result = decoder.decode(window, out, endOfInput);
+            if (endOfInput && !window.hasRemaining()) {
+                decoder.flush(out);
+            }
+            if (result.isOverflow() && out.position() == off) {
+                throw new IOException("Buffer too small to hold a single character");
+            }
+        }
+        return out.position() - off;
+    }
+
+    /**
+     * Closes the channel. The mapping itself is released once the buffer is garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        bytes = null;
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
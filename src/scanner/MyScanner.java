@@ -8,6 +8,7 @@
 
 /* Declarations */
 package scanner;
+
 /**
  * This class is a scanner generated by 
  * <a href="http://www.jflex.de/">JFlex</a> 1.6.1
@@ -234,7 +235,128 @@ public class MyScanner {
   private int zzFinalHighSurrogate = 0;
 
   /* user code: */
-  LookUpTable look = new LookUpTable();
+  private NamePool names = new NamePool();
+  private int nameId = -1;
+  private Diagnostics diagnostics = new Diagnostics();
+  private boolean real;
+  private long integerValue;
+  private double realValue;
+
+  /**
+   * Creates a scanner that streams its input from a channel through a ChannelSourceReader, which hands ASCII
+   * bytes to the DFA without decoding them.
+   *
+   * @param channel the channel to read the source from
+   */
+  public MyScanner(java.nio.channels.ReadableByteChannel channel) {
+    this(new ChannelSourceReader(channel));
+  }
+
+  /**
+   * Scans the next token and wraps it in a Token object.
+   * Identifiers share the String held by the NamePool instead of copying yytext().
+   *
+   * @return the next token, or null at the end of the input
+   * @exception java.io.IOException if any I/O-Error occurs
+   */
+  public Token nextToken() throws java.io.IOException {
+    TokenType type = yylex();
+    if (type == null)
+      return null;
+    if (type == TokenType.ID)
+      return new Token(names.getName(nameId), type, yyline, nameId);
+    if (type == TokenType.NUMBER)
+      return real ? new Token(yytext(), yyline, realValue) : new Token(yytext(), yyline, integerValue);
+    return new Token(yytext(), type, yyline);
+  }
+
+  /**
+   * Sets the pool identifiers are interned into, so that it can be shared with the rest of the compilation.
+   *
+   * @param pool the pool for this compilation
+   */
+  public void setNamePool(NamePool pool) {
+    names = pool;
+  }
+
+  /**
+   * @return The pool identifiers are interned into
+   */
+  public NamePool getNamePool() {
+    return names;
+  }
+
+  /**
+   * Sets the sink illegal characters are recorded in, so that the caller can collect them for the whole compilation.
+   *
+   * @param sink the sink for this compilation
+   */
+  public void setDiagnostics(Diagnostics sink) {
+    diagnostics = sink;
+  }
+
+  /**
+   * @return The sink illegal characters are recorded in
+   */
+  public Diagnostics getDiagnostics() {
+    return diagnostics;
+  }
+
+  /**
+   * @return The NamePool id of the last matched identifier
+   */
+  public int getNameId() {
+    return nameId;
+  }
+
+  /**
+   * @return true if the last matched number has a fraction or an exponent
+   */
+  public boolean isReal() {
+    return real;
+  }
+
+  /**
+   * @return The value of the last matched integer, or NumberLiterals.TOO_LARGE
+   */
+  public long getIntegerValue() {
+    return integerValue;
+  }
+
+  /**
+   * @return The value of the last matched real
+   */
+  public double getRealValue() {
+    return realValue;
+  }
+
+  /**
+   * Makes the scanner number lines and offsets as if its input started at the given position of a larger text. Used
+   * by ParallelLexer so that every chunk reports the same positions a single scanner over the whole text would.
+   *
+   * @param line   the line number of the first character of the input
+   * @param offset the character offset of the first character of the input
+   * @param column the column of the first character of the input
+   */
+  public void startAt(int line, int offset, int column) {
+    yyline = line;
+    yychar = offset;
+    yycolumn = column;
+  }
+
+  /**
+   * @return The line number of the last matched token
+   */
+  public int getLine() {
+    return yyline;
+  }
+
+  /**
+   * @return The character offset of the last matched token from the start of the input
+   */
+  public int getOffset() {
+    return yychar;
+  }
 
 
   /**
@@ -467,7 +589,7 @@ public class MyScanner {
    * @return      the next token
    * @exception   java.io.IOException  if any I/O-Error occurs
    */
-  public Token nextToken() throws java.io.IOException {
+  public TokenType yylex() throws java.io.IOException {
     int zzInput;
     int zzAction;
 
@@ -485,6 +607,8 @@ public class MyScanner {
     while (true) {
       zzMarkedPosL = zzMarkedPos;
 
+      yychar+= zzMarkedPosL-zzStartRead;
+
       boolean zzR = false;
       int zzCh;
       int zzCharCount;
@@ -500,10 +624,12 @@ public class MyScanner {
         case '\u2028':
         case '\u2029':
           yyline++;
+          yycolumn = 0;
           zzR = false;
           break;
         case '\r':
           yyline++;
+          yycolumn = 0;
           zzR = true;
           break;
         case '\n':
@@ -511,10 +637,12 @@ public class MyScanner {
             zzR = false;
           else {
             yyline++;
+            yycolumn = 0;
           }
           break;
         default:
           zzR = false;
+          yycolumn += zzCharCount;
         }
       }
 
@@ -605,10 +733,8 @@ public class MyScanner {
       else {
         switch (zzAction < 0 ? zzAction : ZZ_ACTION[zzAction]) {
           case 1: 
-            { /*Prints out illegal syntax and line number when illegal syntax is found*/
-             System.out.println("Illegal syntax found:" +"\t"+ yytext() +"\t"+"Line:" + yyline);
-
-             //This will stop the program and throw an error on illegal syntax
+            { /*Records the illegal syntax and its position for the caller, scanning goes on after it*/
+             diagnostics.add(yychar, yyline, yycolumn, yytext());
             }
           case 6: break;
           case 2: 
@@ -617,23 +743,25 @@ public class MyScanner {
           case 7: break;
           case 3: 
             { /* Checks if the lexeme is a keyword and sets the type accordingly or sets the type to ID */
-             TokenType type = look.get(yytext());
-             if(type != null)
-               return (new Token(yytext(), type, yyline));
-             Token t = new Token(yytext(), TokenType.ID, yyline);
-             return t;
+             TokenType type = LookUpTable.keyword(zzBuffer, zzStartRead, yylength());
+             if(type == TokenType.ID)
+               nameId = names.intern(zzBuffer, zzStartRead, yylength());
+             return type;
             }
           case 8: break;
           case 4: 
-            { /* Sets the type to number */
-              Token t = new Token(yytext(),TokenType.NUMBER, yyline);
-              return t;
+            { /* Sets the type to number and decodes its value */
+              real = NumberLiterals.isReal(zzBuffer, zzStartRead, yylength());
+              if(real)
+                realValue = NumberLiterals.decodeReal(zzBuffer, zzStartRead, yylength());
+              else
+                integerValue = NumberLiterals.decodeInteger(zzBuffer, zzStartRead, yylength());
+              return TokenType.NUMBER;
             }
           case 9: break;
           case 5: 
             { /* Sets the type to symbol */
-              Token t = new Token(yytext(), look.get(yytext()), yyline);
-              return t;
+              return LookUpTable.symbol(zzBuffer, zzStartRead, yylength());
             }
           case 10: break;
           default:
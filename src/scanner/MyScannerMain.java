@@ -32,6 +32,9 @@ public class MyScannerMain
             }
             catch( Exception e) { e.printStackTrace();}
         } while( aToken != null);
+        for (Diagnostic diagnostic : myScanner.getDiagnostics().drain()) {
+            System.out.println(diagnostic);
+        }
         try {
             myScanner.yyclose();
         } catch (IOException e) {
@@ -2,10 +2,24 @@ package scanner;
 
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileInputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 /**
  * @author Gabriel Bergstrom
@@ -102,4 +116,353 @@ public class MyScannerTest {
         actualType = aToken.getType();
         assertEquals(expectedType, actualType);
     }
-}
\ No newline at end of file
+
+    /**
+     * Testing the MappedSourceReader by checking that it produces the same tokens as the InputStreamReader it replaces.
+     * @throws Exception an exception is thrown if the actual and expected results do not line up.
+     */
+    @Test
+    public void testMappedSourceReader() throws Exception {
+        String filename = "src/Testing/money_conversion.pas";
+        MyScanner expectedScan = new MyScanner(new InputStreamReader(new FileInputStream(filename)));
+        MyScanner actualScan = new MyScanner(new MappedSourceReader(filename));
+        Token expectedToken = null;
+        Token actualToken = null;
+        do {
+            expectedToken = expectedScan.nextToken();
+            actualToken = actualScan.nextToken();
+            assertEquals(expectedToken, actualToken);
+            if (expectedToken != null) {
+                assertEquals(expectedToken.getLine(), actualToken.getLine());
+            }
+        } while (expectedToken != null);
+        actualScan.yyclose();
+        expectedScan.yyclose();
+    }
+
+    /**
+     * Testing that the MappedSourceReader, which always decodes its file as UTF-8, reads a character outside of ASCII.
+     * @throws Exception an exception is thrown if the actual and expected results do not line up.
+     */
+    @Test
+    public void testMappedSourceReaderUnicode() throws Exception {
+        Path file = Files.createTempFile("unicode", ".pas");
+        Files.write(file, "fee \u00e9 fi".getBytes("UTF-8"));
+        MappedSourceReader reader = new MappedSourceReader(file);
+        char[] buffer = new char[16];
+        int count = 0;
+        int numRead = 0;
+        while ((numRead = reader.read(buffer, count, buffer.length - count)) > 0) {
+            count += numRead;
+        }
+        reader.close();
+        Files.delete(file);
+        assertEquals("fee \u00e9 fi", new String(buffer, 0, count));
+    }
+
+    /**
+     * Testing the ChannelSourceReader by scanning through it and through an InputStreamReader, and by reading text
+     * that turns from ASCII to UTF-8 at every position around the end of its buffer.
+     * @throws Exception an exception is thrown if the actual and expected results do not line up.
+     */
+    @Test
+    public void testChannelSourceReader() throws Exception {
+        String filename = "src/Testing/money_conversion.pas";
+        MyScanner expectedScan = new MyScanner(new InputStreamReader(new FileInputStream(filename)));
+        MyScanner actualScan = new MyScanner(FileChannel.open(Paths.get(filename)));
+        Token expectedToken = null;
+        do {
+            expectedToken = expectedScan.nextToken();
+            Token actualToken = actualScan.nextToken();
+            assertEquals(expectedToken, actualToken);
+            if (expectedToken != null) {
+                assertEquals(expectedToken.getLine(), actualToken.getLine());
+            }
+        } while (expectedToken != null);
+        actualScan.yyclose();
+        expectedScan.yyclose();
+
+        StringBuilder ascii = new StringBuilder();
+        while (ascii.length() < (1 << 16) - 8) {
+            ascii.append("fee := fi + 12;\n");
+        }
+        ascii.setLength((1 << 16) - 8);
+        for (int shift = 0; shift < 12; shift++) {
+            String text = ascii + new String(new char[shift]).replace('\0', 'x') + "\u00e9\u20ac x";
+            byte[] utf8 = text.getBytes("UTF-8");
+            ReadableByteChannel channel =
+                    Channels.newChannel(new ByteArrayInputStream(utf8));
+            ChannelSourceReader reader = new ChannelSourceReader(channel);
+            StringBuilder actual = new StringBuilder();
+            char[] buffer = new char[1000];
+            int numRead;
+            while ((numRead = reader.read(buffer, 0, buffer.length)) != -1) {
+                actual.append(buffer, 0, numRead);
+            }
+            reader.close();
+            assertEquals(text, actual.toString());
+        }
+    }
+
+    /**
+     * Testing the TokenRing by peeking at every distance it allows while consuming a file much longer than the ring,
+     * and checking each token against nextToken().
+     * @throws Exception an exception is thrown if the actual and expected results do not line up.
+     */
+    @Test
+    public void testTokenRing() throws Exception {
+        String filename = "src/Testing/money_conversion.pas";
+        List<Token> expected = new ArrayList<>();
+        MyScanner expectedScan = new MyScanner(new InputStreamReader(new FileInputStream(filename)));
+        Token token;
+        while ((token = expectedScan.nextToken()) != null) {
+            expected.add(token);
+        }
+        expectedScan.yyclose();
+
+        TokenRing ring = new TokenRing(new MyScanner(new InputStreamReader(new FileInputStream(filename))), 8);
+        for (int i = 0; i <= expected.size(); i++) {
+            for (int k = 0; k < 8; k++) {
+                if (i + k < expected.size()) {
+                    Token ahead = expected.get(i + k);
+                    assertEquals(ahead.getType(), ring.peek(k));
+                    assertEquals(ahead.getNameId(), ring.getNameId(k));
+                    assertEquals((int) ahead.getLine(), ring.getLine(k));
+                    if (ahead.getType() == TokenType.ID || ahead.getType() == TokenType.NUMBER) {
+                        assertEquals(ahead.getLexeme(), ring.getLexeme(k));
+                    }
+                    if (ahead.getType() == TokenType.NUMBER) {
+                        assertEquals(ahead.isReal(), ring.isReal(k));
+                        assertEquals(ahead.getIntegerValue(), ring.isReal(k) ? 0 : ring.getIntegerValue(k));
+                    }
+                } else {
+                    assertEquals(null, ring.peek(k));
+                    assertEquals("End of File", ring.getLexeme(k));
+                }
+            }
+            ring.advance();
+        }
+    }
+
+    /**
+     * Testing the TokenBuffer by checking that it holds the same tokens, in the same order, as nextToken() returns.
+     * @throws Exception an exception is thrown if the actual and expected results do not line up.
+     */
+    @Test
+    public void testTokenBuffer() throws Exception {
+        String filename = "src/Testing/money_conversion.pas";
+        MyScanner scan = new MyScanner(new InputStreamReader(new FileInputStream(filename)));
+        TokenBuffer tokens = TokenBuffer.lex(Paths.get(filename));
+        Token aToken = null;
+        int index = 0;
+        while ((aToken = scan.nextToken()) != null) {
+            assertEquals(aToken, tokens.getToken(index));
+            assertEquals(aToken.getLexeme(), tokens.getLexeme(index));
+            assertEquals(aToken.getType(), tokens.getType(index));
+            assertEquals((int) aToken.getLine(), tokens.getLine(index));
+            assertEquals(aToken.getLexeme().length(), tokens.getLength(index));
+            index++;
+        }
+        assertEquals(index, tokens.size());
+        assertEquals("dollars", tokens.getLexeme(4));
+        assertEquals(24, tokens.getStart(4));
+    }
+
+    /**
+     * Testing the LookUpTable by scanning keywords next to identifiers that share their length or first letter.
+     * @throws Exception an exception is thrown if the actual and expected results do not line up.
+     */
+    @Test
+    public void testKeywords() throws Exception {
+        MyScanner scan = new MyScanner(new StringReader("read real reed rea reads Begin begin procedures z := <> <="));
+        TokenType[] expectedTypes = {TokenType.READ, TokenType.REAL, TokenType.ID, TokenType.ID, TokenType.ID,
+                TokenType.ID, TokenType.BEGIN, TokenType.ID, TokenType.ID, TokenType.ASSIGN, TokenType.NOTEQ,
+                TokenType.LTHANEQ};
+        for (TokenType expectedType : expectedTypes) {
+            assertEquals(expectedType, scan.nextToken().getType());
+        }
+        assertEquals(null, scan.nextToken());
+    }
+
+    /**
+     * Testing the NamePool by checking that every occurrence of an identifier gets the same id and the same String,
+     * and that keywords are not interned.
+     * @throws Exception an exception is thrown if the actual and expected results do not line up.
+     */
+    @Test
+    public void testNamePool() throws Exception {
+        MyScanner scan = new MyScanner(new StringReader("foo := fi + foo; begin fi end"));
+        Token foo = scan.nextToken();
+        scan.nextToken();
+        Token fi = scan.nextToken();
+        scan.nextToken();
+        Token foo2 = scan.nextToken();
+        assertEquals(0, foo.getNameId());
+        assertEquals(1, fi.getNameId());
+        assertEquals(foo.getNameId(), foo2.getNameId());
+        assertSame(foo.getLexeme(), foo2.getLexeme());
+        assertEquals(-1, scan.nextToken().getNameId());
+        assertEquals(-1, scan.nextToken().getNameId());
+        assertEquals(1, scan.nextToken().getNameId());
+        assertEquals(2, scan.getNamePool().size());
+
+        NamePool names = new NamePool();
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, names.intern("name" + i));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, names.intern(("name" + i).toCharArray(), 0, ("name" + i).length()));
+            assertEquals("name" + i, names.getName(i));
+        }
+        assertEquals(-1, names.find("name1000"));
+        assertEquals(1000, names.size());
+    }
+
+    /**
+     * Testing the ParallelLexer by lexing a file made of many copies of money_conversion.pas in small chunks and
+     * checking that every token matches the sequential TokenBuffer, including line numbers across "\r\n" and "\r".
+     * @throws Exception an exception is thrown if the actual and expected results do not line up.
+     */
+    @Test
+    public void testParallelLexer() throws Exception {
+        String program = new String(Files.readAllBytes(Paths.get("src/Testing/money_conversion.pas")));
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append(i % 3 == 0 ? program.replace("\n", "\r\n") : i % 3 == 1 ? program.replace("\n", "\r") : program);
+            text.append("name").append(i).append(i % 5 == 0 ? " # @\n" : "\n");
+        }
+        TokenBuffer expected = TokenBuffer.lex(text.toString());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        TokenBuffer actual = new ParallelLexer(pool, 64).lex(text.toString());
+        pool.shutdown();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getType(i), actual.getType(i));
+            assertEquals(expected.getStart(i), actual.getStart(i));
+            assertEquals(expected.getLength(i), actual.getLength(i));
+            assertEquals(expected.getLine(i), actual.getLine(i));
+            assertEquals(expected.getNameId(i), actual.getNameId(i));
+            assertEquals(expected.getLexeme(i), actual.getLexeme(i));
+        }
+        assertEquals(expected.getNamePool().size(), actual.getNamePool().size());
+        assertEquals(positions(expected.getDiagnostics()), positions(actual.getDiagnostics()));
+        assertEquals(0, new ParallelLexer().lex("").size());
+    }
+
+    /**
+     * Testing TokenBuffer.edit by applying random edits to a program and checking after each one that the buffer
+     * holds the same tokens as lexing the edited text from scratch.
+     * @throws Exception an exception is thrown if the actual and expected results do not line up.
+     */
+    @Test
+    public void testEdit() throws Exception {
+        String program = new String(Files.readAllBytes(Paths.get("src/Testing/money_conversion.pas")));
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            text.append(program).append("12E+ 3.5 x").append(i).append(" :=\r\n");
+        }
+        TokenBuffer tokens = TokenBuffer.lex(text.toString());
+        String[] inserts = {"", " ", "\n", "\r", "\r\n", "x", "1", "E", "+", "5", ".", ":", "=", "begin", "foo bar", "12.5E-3",
+                "#", "x @"};
+        Random random = new Random(42);
+        for (int edit = 0; edit < 2000; edit++) {
+            int offset = random.nextInt(text.length() + 1);
+            int removed = Math.min(random.nextInt(4), text.length() - offset);
+            String inserted = inserts[random.nextInt(inserts.length)];
+            text.replace(offset, offset + removed, inserted);
+            tokens.edit(offset, removed, inserted);
+
+            TokenBuffer expected = TokenBuffer.lex(text.toString());
+            assertEquals(text.length(), tokens.getTextLength());
+            assertEquals(expected.size(), tokens.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getType(i), tokens.getType(i));
+                assertEquals(expected.getStart(i), tokens.getStart(i));
+                assertEquals(expected.getLength(i), tokens.getLength(i));
+                assertEquals(expected.getLine(i), tokens.getLine(i));
+                assertEquals(expected.getLexeme(i), tokens.getLexeme(i));
+            }
+            assertEquals(positions(expected.getDiagnostics()), positions(tokens.getDiagnostics()));
+        }
+    }
+
+    /**
+     * Testing that illegal characters are recorded with their position instead of being printed, and that scanning
+     * goes on after them.
+     * @throws Exception an exception is thrown if the actual and expected results do not line up.
+     */
+    @Test
+    public void testDiagnostics() throws Exception {
+        MyScanner scanner = new MyScanner(new StringReader("program # foo;\n  x := 1 @ 2\r\n!"));
+        int tokens = 0;
+        while (scanner.nextToken() != null) {
+            tokens++;
+        }
+        assertEquals(7, tokens);
+        assertEquals("[8:0:8:#, 24:1:9:@, 29:2:0:!]", positions(scanner.getDiagnostics()));
+        assertEquals("Illegal syntax found:\t#\tLine:0\tColumn:8", scanner.getDiagnostics().getAll().get(0).toString());
+        assertEquals(3, scanner.getDiagnostics().drain().size());
+        assertEquals(true, scanner.getDiagnostics().isEmpty());
+    }
+
+    /**
+     * Testing that numbers are decoded while scanning: random literals are checked against Long.parseLong and
+     * Double.parseDouble, through MyScanner and through TokenBuffer.
+     * @throws Exception an exception is thrown if the actual and expected results do not line up.
+     */
+    @Test
+    public void testNumberLiterals() throws Exception {
+        Random random = new Random(7);
+        StringBuilder text = new StringBuilder();
+        List<String> literals = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder literal = new StringBuilder();
+            literal.append(random.nextInt(4) == 0 ? Long.toString(random.nextLong() & Long.MAX_VALUE) : random.nextInt(100000));
+            if (random.nextBoolean()) {
+                literal.append('.').append(random.nextInt(4) == 0 ? "000123456789012345678" : Integer.toString(random.nextInt(1000)));
+            }
+            if (random.nextInt(3) == 0) {
+                literal.append('E').append(random.nextInt(3) == 0 ? "" : random.nextBoolean() ? "+" : "-").append(random.nextInt(400));
+            }
+            literals.add(literal.toString());
+            text.append(literal).append(' ');
+        }
+        literals.add("99999999999999999999");
+        text.append("99999999999999999999");
+
+        MyScanner scanner = new MyScanner(new StringReader(text.toString()));
+        TokenBuffer buffer = TokenBuffer.lex(text.toString());
+        for (int i = 0; i < literals.size(); i++) {
+            String literal = literals.get(i);
+            Token token = scanner.nextToken();
+            assertEquals(literal, token.getLexeme());
+            boolean real = literal.contains(".") || literal.contains("E");
+            assertEquals(real, token.isReal());
+            assertEquals(real, buffer.isReal(i));
+            if (real) {
+                double expected = Double.parseDouble(literal);
+                if (expected == 0 && literal.split("E")[0].matches(".*[1-9].*")) {
+                    expected = Double.NaN;
+                }
+                assertEquals(literal, expected, token.getRealValue(), 0);
+                assertEquals(literal, expected, buffer.getRealValue(i), 0);
+            } else {
+                long expected = new BigInteger(literal).bitLength() > 63 ? NumberLiterals.TOO_LARGE : Long.parseLong(literal);
+                assertEquals(literal, expected, token.getIntegerValue());
+                assertEquals(literal, expected, buffer.getIntegerValue(i));
+            }
+        }
+    }
+
+    /**
+     * @return The offset, line, column and text of every Diagnostic
+     */
+    private static String positions(Diagnostics diagnostics) {
+        List<String> positions = new ArrayList<>();
+        for (Diagnostic diagnostic : diagnostics.getAll()) {
+            positions.add(diagnostic.getOffset() + ":" + diagnostic.getLine() + ":" + diagnostic.getColumn() + ":"
+                    + diagnostic.getText());
+        }
+        return positions.toString();
+    }
+}
@@ -0,0 +1,159 @@
+package scanner;
+
+import java.util.Arrays;
+
+/**
+ * This class interns the identifiers of one compilation. Each distinct name is stored as a single String and is given
+ * a dense int id, starting at 0 in the order the names are first seen. The scanner interns identifiers straight from
+ * its buffer, so an identifier that has been seen before costs one hash and one comparison and creates no String.
+ * The Token, the SymbolTable and the syntax tree nodes all carry the id, so later stages index arrays with it instead
+ * of hashing the name again. A pool is not thread safe, each compilation should have its own.
+ * @author Gabriel Bergstrom
+ */
+public class NamePool
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private String[] names = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] slots = new int[INITIAL_CAPACITY * 2];//Open addressing table of id + 1, 0 marks an empty slot
+    private int size;
+
+    /**
+     * Interns the name held in part of a char array.
+     *
+     * @param buf    The buffer holding the name
+     * @param start  The offset of the first character of the name
+     * @param length The length of the name
+     * @return The id of the name
+     */
+    public int intern(char[] buf, int start, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + buf[start + i];
+        }
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && matches(names[id], buf, start, length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return add(new String(buf, start, length), hash, slot);
+    }
+
+    /**
+     * Interns a name.
+     *
+     * @param name The name
+     * @return The id of the name
+     */
+    public int intern(String name) {
+        int hash = name.hashCode();
+        int slot = findSlot(name, hash);
+        if (slots[slot] != 0) {
+            return slots[slot] - 1;
+        }
+        return add(name, hash, slot);
+    }
+
+    /**
+     * Looks a name up without adding it.
+     *
+     * @param name The name
+     * @return The id of the name, or -1 if it has not been interned
+     */
+    public int find(String name) {
+        return slots[findSlot(name, name.hashCode())] - 1;
+    }
+
+    /**
+     * @param id The id of a name
+     * @return The interned String for the id
+     */
+    public String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return The number of distinct names in the pool, every id is less than this
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Forgets every name but keeps the arrays at the size they have grown to, so a pool reused for the next
+     * compilation does not allocate again until it holds more names than any compilation before it.
+     */
+    public void clear() {
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(slots, 0);
+        size = 0;
+    }
+
+    private int findSlot(String name, int hash) {
+        int mask = slots.length - 1;
+        int slot = mix(hash) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            int id = entry - 1;
+            if (hashes[id] == hash && names[id].equals(name)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int add(String name, int hash, int slot) {
+        int id = size++;
+        if (id == names.length) {
+            names = Arrays.copyOf(names, id * 2);
+            hashes = Arrays.copyOf(hashes, id * 2);
+        }
+        names[id] = name;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        //Keep the table at most half full so that probe sequences stay short
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = mix(hashes[id]) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    /**
+     * Spreads the bits of a String hash code, which differ mostly in the low bits for short names.
+     */
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(String name, char[] buf, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != buf[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
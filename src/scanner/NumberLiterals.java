@@ -0,0 +1,112 @@
+package scanner;
+
+/**
+ * This class decodes the lexeme of a number straight from the scanner's buffer, so the value is known as soon as
+ * the token is matched and nobody has to parse its text again. A number with a fraction or an exponent is a real and
+ * becomes a double, any other number is an integer and becomes a long.
+ * Reals use the exact fast path when the digits fit in a long that a double holds exactly and the power of ten is
+ * exact too, which covers every literal a program normally contains. Anything else is left to Double.parseDouble,
+ * which rounds correctly.
+ * @author Gabriel Bergstrom
+ */
+public final class NumberLiterals
+{
+    /** The value decodeInteger gives for a literal too large for a long */
+    public static final long TOO_LARGE = -1;
+
+    /** The largest integer a double holds exactly */
+    private static final long MAX_EXACT = 1L << 53;
+
+    /** The powers of ten a double holds exactly */
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private NumberLiterals() {
+    }
+
+    /**
+     * @param text   The buffer holding the lexeme
+     * @param start  The offset of the first character of the lexeme
+     * @param length The number of characters in the lexeme
+     * @return true if the number has a fraction or an exponent
+     */
+    public static boolean isReal(char[] text, int start, int length) {
+        for (int i = start; i < start + length; i++) {
+            if (text[i] == '.' || text[i] == 'E') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Decodes a number made only of digits.
+     *
+     * @param text   The buffer holding the lexeme
+     * @param start  The offset of the first character of the lexeme
+     * @param length The number of characters in the lexeme
+     * @return The value, or TOO_LARGE if it does not fit in a long
+     */
+    public static long decodeInteger(char[] text, int start, int length) {
+        long value = 0;
+        for (int i = start; i < start + length; i++) {
+            int digit = text[i] - '0';
+            if (value > (Long.MAX_VALUE - digit) / 10) {
+                return TOO_LARGE;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Decodes a number with a fraction, an exponent or both.
+     *
+     * @param text   The buffer holding the lexeme
+     * @param start  The offset of the first character of the lexeme
+     * @param length The number of characters in the lexeme
+     * @return The value, which is infinite if it is too large for a double and NaN if it is too small for one but not 0
+     */
+    public static double decodeReal(char[] text, int start, int length) {
+        int end = start + length;
+        int i = start;
+        long digits = 0;
+        boolean exact = true;
+        boolean zero = true;
+        int scale = 0;
+        boolean fraction = false;
+        for (; i < end && text[i] != 'E'; i++) {
+            if (text[i] == '.') {
+                fraction = true;
+                continue;
+            }
+            int digit = text[i] - '0';
+            zero &= digit == 0;
+            if (digits > (MAX_EXACT - digit) / 10) {
+                exact = false;
+            } else {
+                digits = digits * 10 + digit;
+                if (fraction) {
+                    scale--;
+                }
+            }
+        }
+        if (i < end) {
+            //Skip the E and its sign
+            boolean negative = text[++i] == '-';
+            if (text[i] == '+' || text[i] == '-') {
+                i++;
+            }
+            int exponent = 0;
+            for (; i < end && exponent < 100000; i++) {
+                exponent = exponent * 10 + text[i] - '0';
+            }
+            scale += negative ? -exponent : exponent;
+        }
+        if (exact && i == end && scale >= -22 && scale <= 22) {
+            return scale < 0 ? digits / POWERS_OF_TEN[-scale] : digits * POWERS_OF_TEN[scale];
+        }
+        double value = Double.parseDouble(new String(text, start, length));
+        return value == 0 && !zero ? Double.NaN : value;
+    }
+}
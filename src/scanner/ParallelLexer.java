@@ -0,0 +1,166 @@
+package scanner;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * This class lexes a large source on several cores. The text is cut into chunks just after a '\n'. No token can contain
+ * a line break, so a scanner started at the beginning of a line finds exactly the tokens a single scanner over the
+ * whole text would. The chunks are lexed by their own MyScanner on a ForkJoinPool, all of them sharing the generated
+ * DFA tables, and the results are joined into one TokenBuffer with the same types, offsets, lines and NamePool ids as
+ * TokenBuffer.lex produces.
+ * The scanner has no comment rule, so any line break is a safe place to cut. If one is added, the cuts must skip
+ * line breaks inside comments.
+ * Every chunk records its illegal characters in its own Diagnostics, which are joined in chunk order, so they come
+ * out in the same order and with the same positions as from a single scanner.
+ * @author Gabriel Bergstrom
+ */
+public class ParallelLexer
+{
+    /** Chunks smaller than this are not worth a task of their own */
+    private static final int DEFAULT_MIN_CHUNK = 1 << 18;
+
+    private ForkJoinPool pool;
+    private int minChunk;
+
+    /**
+     * Creates a lexer that runs on the common ForkJoinPool.
+     */
+    public ParallelLexer() {
+        this(ForkJoinPool.commonPool(), DEFAULT_MIN_CHUNK);
+    }
+
+    /**
+     * @param pool     The pool the chunks are lexed on
+     * @param minChunk The smallest number of characters given to one chunk
+     */
+    public ParallelLexer(ForkJoinPool pool, int minChunk) {
+        this.pool = pool;
+        this.minChunk = Math.max(minChunk, 1);
+    }
+
+    /**
+     * Lexes all of the given text.
+     *
+     * @param text The Pascal source
+     * @return A buffer holding every token of the text
+     */
+    public TokenBuffer lex(String text) {
+        return lex(text.toCharArray());
+    }
+
+    /**
+     * Lexes all of a file, reading it through a MappedSourceReader.
+     *
+     * @param file The Pascal source file
+     * @return A buffer holding every token of the file
+     * @throws IOException if the file cannot be read
+     */
+    public TokenBuffer lex(Path file) throws IOException {
+        try (Reader reader = new MappedSourceReader(file)) {
+            return lex(TokenBuffer.readAll(reader));
+        }
+    }
+
+    /**
+     * Splits the text into chunks, lexes them in parallel and joins the results.
+     *
+     * @param text The whole source
+     * @return A buffer holding every token of the text
+     */
+    public TokenBuffer lex(char[] text) {
+        int[] bounds = split(text);
+        int chunks = bounds.length - 1;
+
+        //Each chunk needs the line number it starts on, so the line breaks are counted first
+        ForkJoinTask<?>[] counts = new ForkJoinTask<?>[chunks];
+        int[] lineCounts = new int[chunks];
+        for (int i = 0; i < chunks; i++) {
+            int chunk = i;
+            counts[i] = pool.submit(() -> {
+                lineCounts[chunk] = countLines(text, bounds[chunk], bounds[chunk + 1]);
+            });
+        }
+        int[] firstLines = new int[chunks];
+        for (int i = 0; i < chunks; i++) {
+            counts[i].join();
+            if (i + 1 < chunks) {
+                firstLines[i + 1] = firstLines[i] + lineCounts[i];
+            }
+        }
+
+        List<ForkJoinTask<TokenBuffer>> tasks = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            int chunk = i;
+            tasks.add(pool.submit(() -> TokenBuffer.lex(text, bounds[chunk], bounds[chunk + 1], firstLines[chunk])));
+        }
+        TokenBuffer[] parts = new TokenBuffer[chunks];
+        for (int i = 0; i < chunks; i++) {
+            parts[i] = tasks.get(i).join();
+        }
+        return TokenBuffer.join(text, parts);
+    }
+
+    /**
+     * Picks the chunk boundaries: one chunk per few characters per worker, each ending just after a '\n'.
+     *
+     * @param text The whole source
+     * @return The offsets of the boundaries, starting with 0 and ending with the length of the text
+     */
+    int[] split(char[] text) {
+        int target = Math.max(minChunk, text.length / (pool.getParallelism() * 4) + 1);
+        int[] bounds = new int[text.length / target + 2];
+        int count = 1;
+        int start = 0;
+        while (start < text.length) {
+            int end = Math.min(start + target, text.length);
+            while (end < text.length && text[end - 1] != '\n') {
+                end++;
+            }
+            bounds[count++] = end;
+            start = end;
+        }
+        int[] result = new int[count];
+        System.arraycopy(bounds, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Counts line terminators the way the generated scanner does for yyline, where "\r\n" is a single line break.
+     * Chunks begin after a '\n', so no "\r\n" pair is ever split between two chunks.
+     */
+    static int countLines(char[] text, int start, int end) {
+        int lines = 0;
+        boolean afterCR = false;
+        for (int i = start; i < end; i++) {
+            switch (text[i]) {
+                case '\u000B':
+                case '\u000C':
+                case '\u0085':
+                case '\u2028':
+                case '\u2029':
+                    lines++;
+                    afterCR = false;
+                    break;
+                case '\r':
+                    lines++;
+                    afterCR = true;
+                    break;
+                case '\n':
+                    if (!afterCR) {
+                        lines++;
+                    }
+                    afterCR = false;
+                    break;
+                default:
+                    afterCR = false;
+            }
+        }
+        return lines;
+    }
+}
@@ -13,6 +13,10 @@ public class Token
     private String lexeme;
     private TokenType type;
     private Integer lineNumber;
+    private int nameId;
+    private boolean real;
+    private long integerValue;
+    private double realValue;
 
     /**
      *
@@ -21,9 +25,46 @@ public class Token
      * @param line  The line number of the input
      */
     public Token( String lex, TokenType tType, Integer line){
+        this(lex, tType, line, -1);
+    }
+
+    /**
+     *
+     * @param lex    The lexeme of the input
+     * @param tType  The type of the input
+     * @param line   The line number of the input
+     * @param nameId The NamePool id of an identifier, or -1 for other tokens
+     */
+    public Token( String lex, TokenType tType, Integer line, int nameId){
         this.lexeme = lex;
         this.type = tType;
         this.lineNumber = line;
+        this.nameId = nameId;
+    }
+
+    /**
+     * Creates an integer NUMBER token.
+     *
+     * @param lex   The lexeme of the input
+     * @param line  The line number of the input
+     * @param value The decoded value, or NumberLiterals.TOO_LARGE
+     */
+    public Token( String lex, Integer line, long value){
+        this(lex, TokenType.NUMBER, line, -1);
+        this.integerValue = value;
+    }
+
+    /**
+     * Creates a real NUMBER token.
+     *
+     * @param lex   The lexeme of the input
+     * @param line  The line number of the input
+     * @param value The decoded value
+     */
+    public Token( String lex, Integer line, double value){
+        this(lex, TokenType.NUMBER, line, -1);
+        this.real = true;
+        this.realValue = value;
     }
 
     /**
@@ -46,6 +87,34 @@ public class Token
         return this.lineNumber;
     }
 
+    /**
+     * @return The NamePool id of an identifier, or -1 for other tokens
+     */
+    public int getNameId(){
+        return this.nameId;
+    }
+
+    /**
+     * @return true if this is a NUMBER with a fraction or an exponent
+     */
+    public boolean isReal(){
+        return this.real;
+    }
+
+    /**
+     * @return The value of an integer NUMBER
+     */
+    public long getIntegerValue(){
+        return this.integerValue;
+    }
+
+    /**
+     * @return The value of a real NUMBER
+     */
+    public double getRealValue(){
+        return this.realValue;
+    }
+
     /**
      * @return A formatted string with the current token's lexeme, type, and line number
      */
@@ -0,0 +1,665 @@
+package scanner;
+
+import java.io.CharArrayReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class holds every token of a file in parallel int arrays instead of one Token object per lexeme. For each
+ * token the buffer stores the ordinal of its TokenType, the offset of its first character in the source, its length
+ * and its line number, identifiers also get their NamePool id and numbers their decoded value. The source text is kept so that a lexeme is only
+ * turned into a String when somebody asks for it. Identifiers never need one, their String is already in the pool.
+ * Both the token arrays and the source are gap buffers so that an edit can be re-lexed in place: see edit(). Tokens
+ * after the gap store their offset and line counted back from the end of the text, which is what lets an edit shift
+ * every later token without touching it. A buffer that has never been edited has its gap at the end.
+ * @author Gabriel Bergstrom
+ */
+public class TokenBuffer
+{
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The scanner may look this many characters past the end of a token before it gives up on a longer match: a
+     * number followed by "E+" needs a digit after the '+'. An edit this close to the end of a token can change it.
+     */
+    private static final int LOOKAHEAD = 3;
+
+    private char[] source;
+    private int textGapStart;
+    private int textGapEnd;
+    private int textLength;
+    private NamePool names;
+    private int[] nameIds = new int[INITIAL_CAPACITY];
+    private int[] types = new int[INITIAL_CAPACITY];
+    private int[] starts = new int[INITIAL_CAPACITY];//After the gap: textLength - start
+    private int[] lengths = new int[INITIAL_CAPACITY];
+    private int[] lines = new int[INITIAL_CAPACITY];//After the gap: lineBase - line
+    private long[] values = new long[INITIAL_CAPACITY];//Numbers: the integer value or the bits of the real value
+    private int lineBase;
+    private int gapStart;
+    private int gapEnd = INITIAL_CAPACITY;
+    private int size;
+    private Diagnostics diagnostics = new Diagnostics();
+    private int editStart;
+    private int editRemoved;
+    private int editAdded;
+
+    private TokenBuffer(char[] source, NamePool names) {
+        this.source = source;
+        this.names = names;
+        textGapStart = textGapEnd = textLength = source.length;
+    }
+
+    private TokenBuffer(char[] source, NamePool names, int capacity) {
+        this(source, names);
+        nameIds = new int[capacity];
+        types = new int[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+        values = new long[capacity];
+        gapEnd = capacity;
+    }
+
+    /**
+     * Lexes all of the given text.
+     *
+     * @param text The Pascal source
+     * @return A buffer holding every token of the text
+     */
+    public static TokenBuffer lex(String text) {
+        try {
+            return lex(text.toCharArray(), 0, text.length(), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException("Reading from memory failed", e);
+        }
+    }
+
+    /**
+     * Lexes all of a file, reading it through a MappedSourceReader.
+     *
+     * @param file The Pascal source file
+     * @return A buffer holding every token of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static TokenBuffer lex(Path file) throws IOException {
+        try (Reader reader = new MappedSourceReader(file)) {
+            return lex(reader);
+        }
+    }
+
+    /**
+     * Reads the whole input into memory and lexes it. The reader is not closed.
+     *
+     * @param reader The Pascal source
+     * @return A buffer holding every token of the input
+     * @throws IOException if the reader fails
+     */
+    public static TokenBuffer lex(Reader reader) throws IOException {
+        char[] text = readAll(reader);
+        return lex(text, 0, text.length, 0);
+    }
+
+    /**
+     * Reads the whole input into an array of exactly its length. The reader is not closed.
+     *
+     * @param reader The input
+     * @return Every character of the input
+     * @throws IOException if the reader fails
+     */
+    static char[] readAll(Reader reader) throws IOException {
+        char[] text = new char[INITIAL_CAPACITY * 16];
+        int length = 0;
+        int numRead;
+        while ((numRead = reader.read(text, length, text.length - length)) != -1) {
+            length += numRead;
+            if (length == text.length) {
+                text = Arrays.copyOf(text, text.length * 2);
+            }
+        }
+        return length == text.length ? text : Arrays.copyOf(text, length);
+    }
+
+    /**
+     * Runs MyScanner over part of the text, storing the position of each token instead of building Token objects.
+     * Offsets and line numbers are those of the whole text, and identifiers are interned into a new NamePool.
+     * The range must start at the beginning of a line.
+     *
+     * @param text  The whole source
+     * @param start The offset of the first character to lex
+     * @param end   The offset just past the last character to lex
+     * @param line  The line number of the character at start
+     * @return A buffer holding the tokens of the range
+     * @throws IOException if the scanner fails
+     */
+    static TokenBuffer lex(char[] text, int start, int end, int line) throws IOException {
+        MyScanner scanner = new MyScanner(new CharArrayReader(text, start, end - start));
+        scanner.startAt(line, start, 0);
+        TokenBuffer buffer = new TokenBuffer(text, scanner.getNamePool());
+        scanner.setDiagnostics(buffer.diagnostics);
+        TokenType type;
+        while ((type = scanner.yylex()) != null) {
+            int nameId = type == TokenType.ID ? scanner.getNameId() : -1;
+            buffer.add(type, scanner.getOffset(), scanner.yylength(), scanner.getLine(), nameId,
+                    type == TokenType.NUMBER ? value(scanner) : 0);
+        }
+        return buffer;
+    }
+
+    /**
+     * Joins buffers that were lexed from consecutive parts of the same source into one buffer. Identifiers are
+     * interned again into a single NamePool, in the order of the parts, so every name gets the id a single scanner
+     * over the whole source would have given it.
+     *
+     * @param source The whole source
+     * @param parts  Buffers for consecutive ranges of the source, in order, none of them edited
+     * @return A buffer holding every token of the parts
+     */
+    static TokenBuffer join(char[] source, TokenBuffer[] parts) {
+        int total = 0;
+        for (TokenBuffer part : parts) {
+            total += part.size;
+        }
+        NamePool names = new NamePool();
+        TokenBuffer buffer = new TokenBuffer(source, names, Math.max(total, 1));
+        for (TokenBuffer part : parts) {
+            int[] ids = new int[part.names.size()];
+            for (int id = 0; id < ids.length; id++) {
+                ids[id] = names.intern(part.names.getName(id));
+            }
+            int at = buffer.size;
+            System.arraycopy(part.types, 0, buffer.types, at, part.size);
+            System.arraycopy(part.starts, 0, buffer.starts, at, part.size);
+            System.arraycopy(part.lengths, 0, buffer.lengths, at, part.size);
+            System.arraycopy(part.lines, 0, buffer.lines, at, part.size);
+            System.arraycopy(part.values, 0, buffer.values, at, part.size);
+            for (int i = 0; i < part.size; i++) {
+                int id = part.nameIds[i];
+                buffer.nameIds[at + i] = id < 0 ? id : ids[id];
+            }
+            buffer.size += part.size;
+            buffer.diagnostics.addAll(part.diagnostics);
+        }
+        buffer.gapStart = buffer.size;
+        return buffer;
+    }
+
+    /**
+     * Inserts a token at the gap, which is the end of the buffer unless the buffer is being edited.
+     *
+     * @param type   The type of the token
+     * @param start  The offset of the first character of the token
+     * @param length The number of characters in the token
+     * @param line   The line the token is on
+     * @param nameId The NamePool id of an identifier, or -1 for other tokens
+     * @param value  The value of a number, see value()
+     */
+    void add(TokenType type, int start, int length, int line, int nameId, long value) {
+        if (gapStart == gapEnd) {
+            grow();
+        }
+        types[gapStart] = type.ordinal();
+        starts[gapStart] = start;
+        lengths[gapStart] = length;
+        lines[gapStart] = line;
+        nameIds[gapStart] = nameId;
+        values[gapStart] = value;
+        gapStart++;
+        size++;
+    }
+
+    /**
+     * Doubles the capacity of the token arrays, keeping the tokens after the gap at the end.
+     */
+    private void grow() {
+        int capacity = types.length * 2;
+        int tail = types.length - gapEnd;
+        nameIds = widen(nameIds, capacity, tail);
+        types = widen(types, capacity, tail);
+        starts = widen(starts, capacity, tail);
+        lengths = widen(lengths, capacity, tail);
+        lines = widen(lines, capacity, tail);
+        long[] wider = Arrays.copyOf(values, capacity);
+        System.arraycopy(values, values.length - tail, wider, capacity - tail, tail);
+        values = wider;
+        gapEnd = capacity - tail;
+    }
+
+    /**
+     * @return The value of the number the scanner just matched in the form the values array keeps it
+     */
+    private static long value(MyScanner scanner) {
+        return scanner.isReal() ? Double.doubleToRawLongBits(scanner.getRealValue()) : scanner.getIntegerValue();
+    }
+
+    private int[] widen(int[] array, int capacity, int tail) {
+        int[] wider = Arrays.copyOf(array, capacity);
+        System.arraycopy(array, array.length - tail, wider, capacity - tail, tail);
+        return wider;
+    }
+
+    /**
+     * Applies an edit to the source and re-lexes only the part of it that can have changed. Scanning restarts at
+     * the end of the last token the edit cannot affect and stops as soon as it produces a token that starts where
+     * an old token, shifted by the edit, started: the text from there on is unchanged, so every later token is
+     * too and is kept as it is. The work done depends on the size of the edit, the tokens it touches and how far
+     * the edit is from the previous one, not on the size of the file.
+     * New identifiers are interned into the buffer's pool, so the ids of existing names do not change.
+     *
+     * @param offset   The offset of the first character removed or of the insertion point
+     * @param removed  The number of characters removed at offset
+     * @param inserted The text inserted at offset
+     * @throws IOException if the scanner fails
+     */
+    public void edit(int offset, int removed, String inserted) throws IOException {
+        if (offset < 0 || removed < 0 || offset + removed > textLength) {
+            throw new IndexOutOfBoundsException("Edit of " + removed + " characters at " + offset
+                    + " is outside the text of length " + textLength);
+        }
+        //Find the first token the edit can change, every token before it is kept
+        int first = firstAffected(offset);
+        int restart = first == 0 ? 0 : getStart(first - 1) + getLength(first - 1);
+        int restartLine = first == 0 ? 0 : getLine(first - 1);
+        moveGap(first);
+
+        //Splice the text. Tokens after the gap count from the end of the text, so they move with it
+        moveTextGap(offset);
+        textGapEnd += removed;
+        int length = inserted.length();
+        if (textGapEnd - textGapStart < length) {
+            char[] wider = new char[Math.max(source.length * 2, textLength - removed + length)];
+            int tail = source.length - textGapEnd;
+            System.arraycopy(source, 0, wider, 0, textGapStart);
+            System.arraycopy(source, textGapEnd, wider, wider.length - tail, tail);
+            source = wider;
+            textGapEnd = wider.length - tail;
+        }
+        inserted.getChars(0, length, source, textGapStart);
+        textGapStart += length;
+        textLength += length - removed;
+
+        MyScanner scanner = new MyScanner(new GapReader(restart));
+        scanner.setNamePool(names);
+        Diagnostics found = new Diagnostics();
+        scanner.setDiagnostics(found);
+        scanner.startAt(restartLine, restart, columnOf(restart));
+        int editEnd = offset + length;
+        int oldSize = size;
+        int added = 0;
+        TokenType type;
+        while ((type = scanner.yylex()) != null) {
+            int start = scanner.getOffset();
+            if (start >= editEnd) {
+                //Drop the old tokens this one has passed and stop if it lines up with the next old one
+                int fromEnd = textLength - start;
+                while (gapEnd < types.length && starts[gapEnd] > fromEnd) {
+                    gapEnd++;
+                    size--;
+                }
+                if (gapEnd < types.length && starts[gapEnd] == fromEnd) {
+                    int oldLineBase = lineBase;
+                    lineBase = scanner.getLine() + lines[gapEnd];
+                    spliceDiagnostics(restart, start - (length - removed), found, length - removed,
+                            lineBase - oldLineBase, scanner.getLine());
+                    recordEdit(first, oldSize, added);
+                    return;
+                }
+            }
+            int nameId = type == TokenType.ID ? scanner.getNameId() : -1;
+            add(type, start, scanner.yylength(), scanner.getLine(), nameId,
+                    type == TokenType.NUMBER ? value(scanner) : 0);
+            added++;
+        }
+        size -= types.length - gapEnd;
+        gapEnd = types.length;
+        spliceDiagnostics(restart, Integer.MAX_VALUE, found, 0, 0, 0);
+        recordEdit(first, oldSize, added);
+    }
+
+    /**
+     * Remembers which tokens the last edit replaced, for a Parser that reparses only what they belong to.
+     */
+    private void recordEdit(int first, int oldSize, int added) {
+        editStart = first;
+        editAdded = added;
+        editRemoved = oldSize + added - size;
+    }
+
+    /**
+     * @return The index of the first token the last edit re-lexed, every token before it was kept
+     */
+    public int getEditStart() {
+        return editStart;
+    }
+
+    /**
+     * @return The number of old tokens, from getEditStart() on, that the last edit replaced
+     */
+    public int getEditRemoved() {
+        return editRemoved;
+    }
+
+    /**
+     * @return The number of new tokens, from getEditStart() on, that replaced them. The tokens after these are the
+     * old tokens after the replaced ones, moved by getEditAdded() - getEditRemoved()
+     */
+    public int getEditAdded() {
+        return editAdded;
+    }
+
+    /**
+     * Replaces the Diagnostics of the re-lexed part of the text after an edit and shifts the later ones with the
+     * tokens. This costs as much as the number of Diagnostics after the edit, which is normally none.
+     *
+     * @param restart     The offset scanning restarted at
+     * @param oldResync   The old offset of the first token that was kept, or Integer.MAX_VALUE if none was
+     * @param found       The Diagnostics of the re-lexed part
+     * @param offsetDelta How far the kept tokens moved
+     * @param lineDelta   How many lines the kept tokens moved
+     * @param resyncLine  The new line of the first token that was kept, its columns may have moved too
+     */
+    private void spliceDiagnostics(int restart, int oldResync, Diagnostics found, int offsetDelta, int lineDelta,
+                                   int resyncLine) {
+        List<Diagnostic> list = diagnostics.list();
+        if (found.isEmpty() && (list.isEmpty() || list.get(list.size() - 1).getOffset() < restart)) {
+            return;
+        }
+        List<Diagnostic> spliced = new ArrayList<>(list.size() + found.size());
+        for (Diagnostic diagnostic : list) {
+            if (diagnostic.getOffset() < restart) {
+                spliced.add(diagnostic);
+            }
+        }
+        spliced.addAll(found.list());
+        for (Diagnostic diagnostic : list) {
+            if (diagnostic.getOffset() >= oldResync) {
+                int offset = diagnostic.getOffset() + offsetDelta;
+                int line = diagnostic.getLine() + lineDelta;
+                int column = line == resyncLine ? columnOf(offset) : diagnostic.getColumn();
+                spliced.add(new Diagnostic(offset, line, column, diagnostic.getText()));
+            }
+        }
+        list.clear();
+        list.addAll(spliced);
+    }
+
+    /**
+     * Finds the column of an offset by looking back for the line terminator before it, as the scanner counts them.
+     */
+    private int columnOf(int offset) {
+        int column = 0;
+        while (offset - column > 0) {
+            char c = charAt(offset - column - 1);
+            if (c == '\n' || c == '\r' || c == '\u000B' || c == '\u000C' || c == '\u0085' || c == '\u2028'
+                    || c == '\u2029') {
+                break;
+            }
+            column++;
+        }
+        return column;
+    }
+
+    private char charAt(int offset) {
+        return offset < textGapStart ? source[offset] : source[offset + textGapEnd - textGapStart];
+    }
+
+    /**
+     * Finds the first token an edit at the given offset can change.
+     *
+     * @param offset The offset of the edit
+     * @return The index of the first token whose match could depend on the character at offset
+     */
+    private int firstAffected(int offset) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getStart(middle) + getLength(middle) + LOOKAHEAD <= offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Moves the token gap so that it starts at the given index, converting the offsets and lines of the tokens
+     * that cross it.
+     */
+    private void moveGap(int index) {
+        while (gapStart > index) {
+            gapStart--;
+            gapEnd--;
+            types[gapEnd] = types[gapStart];
+            starts[gapEnd] = textLength - starts[gapStart];
+            lengths[gapEnd] = lengths[gapStart];
+            lines[gapEnd] = lineBase - lines[gapStart];
+            nameIds[gapEnd] = nameIds[gapStart];
+            values[gapEnd] = values[gapStart];
+        }
+        while (gapStart < index) {
+            types[gapStart] = types[gapEnd];
+            starts[gapStart] = textLength - starts[gapEnd];
+            lengths[gapStart] = lengths[gapEnd];
+            lines[gapStart] = lineBase - lines[gapEnd];
+            nameIds[gapStart] = nameIds[gapEnd];
+            values[gapStart] = values[gapEnd];
+            gapStart++;
+            gapEnd++;
+        }
+    }
+
+    /**
+     * Moves the gap in the source so that it starts at the given offset.
+     */
+    private void moveTextGap(int offset) {
+        if (offset < textGapStart) {
+            int count = textGapStart - offset;
+            System.arraycopy(source, offset, source, textGapEnd - count, count);
+            textGapStart -= count;
+            textGapEnd -= count;
+        } else if (offset > textGapStart) {
+            int count = offset - textGapStart;
+            System.arraycopy(source, textGapEnd, source, textGapStart, count);
+            textGapStart += count;
+            textGapEnd += count;
+        }
+    }
+
+    /**
+     * @param index The position of a token in the buffer
+     * @return The position of the token in the arrays
+     */
+    private int slot(int index) {
+        return index < gapStart ? index : index + gapEnd - gapStart;
+    }
+
+    /**
+     * @return The number of tokens in the buffer
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index The position of the token in the buffer
+     * @return The type of the token
+     */
+    public TokenType getType(int index) {
+        return TYPES[types[slot(index)]];
+    }
+
+    /**
+     * @param index The position of the token in the buffer
+     * @return The offset of the first character of the token in the source
+     */
+    public int getStart(int index) {
+        return index < gapStart ? starts[index] : textLength - starts[slot(index)];
+    }
+
+    /**
+     * @param index The position of the token in the buffer
+     * @return The number of characters in the token
+     */
+    public int getLength(int index) {
+        return lengths[slot(index)];
+    }
+
+    /**
+     * @param index The position of the token in the buffer
+     * @return The line number of the token
+     */
+    public int getLine(int index) {
+        return index < gapStart ? lines[index] : lineBase - lines[slot(index)];
+    }
+
+    /**
+     * @param index The position of the token in the buffer
+     * @return The NamePool id of an identifier, or -1 for other tokens
+     */
+    public int getNameId(int index) {
+        return nameIds[slot(index)];
+    }
+
+    /**
+     * Tells an integer from a real by looking for a fraction or an exponent in the source, which for a lexeme this
+     * short costs no more than keeping a flag per token.
+     *
+     * @param index The position of a NUMBER in the buffer
+     * @return true if the number is a real
+     */
+    public boolean isReal(int index) {
+        int start = getStart(index);
+        for (int i = start; i < start + getLength(index); i++) {
+            char c = charAt(i);
+            if (c == '.' || c == 'E') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param index The position of an integer NUMBER in the buffer
+     * @return The value of the number, or NumberLiterals.TOO_LARGE
+     */
+    public long getIntegerValue(int index) {
+        return values[slot(index)];
+    }
+
+    /**
+     * @param index The position of a real NUMBER in the buffer
+     * @return The value of the number
+     */
+    public double getRealValue(int index) {
+        return Double.longBitsToDouble(values[slot(index)]);
+    }
+
+    /**
+     * @return The pool the identifiers of this buffer were interned into
+     */
+    public NamePool getNamePool() {
+        return names;
+    }
+
+    /**
+     * @return The illegal characters found while lexing the source, kept up to date by edit()
+     */
+    public Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * @return The number of characters in the source
+     */
+    public int getTextLength() {
+        return textLength;
+    }
+
+    /**
+     * Copies part of the source into a String.
+     *
+     * @param start  The offset of the first character
+     * @param length The number of characters
+     * @return The text of the source at that position
+     */
+    public String getText(int start, int length) {
+        if (start + length <= textGapStart) {
+            return new String(source, start, length);
+        }
+        if (start >= textGapStart) {
+            return new String(source, start + textGapEnd - textGapStart, length);
+        }
+        char[] text = new char[length];
+        int before = textGapStart - start;
+        System.arraycopy(source, start, text, 0, before);
+        System.arraycopy(source, textGapEnd, text, before, length - before);
+        return new String(text);
+    }
+
+    /**
+     * Gets the String for a lexeme. Identifiers come from the NamePool, any other lexeme is a new String.
+     *
+     * @param index The position of the token in the buffer
+     * @return The lexeme of the token
+     */
+    public String getLexeme(int index) {
+        int slot = slot(index);
+        if (nameIds[slot] >= 0) {
+            return names.getName(nameIds[slot]);
+        }
+        return getText(getStart(index), lengths[slot]);
+    }
+
+    /**
+     * Creates a Token object for the token, for callers that still work with Tokens.
+     *
+     * @param index The position of the token in the buffer
+     * @return The token at the given position
+     */
+    public Token getToken(int index) {
+        if (getType(index) == TokenType.NUMBER) {
+            return isReal(index) ? new Token(getLexeme(index), getLine(index), getRealValue(index))
+                    : new Token(getLexeme(index), getLine(index), getIntegerValue(index));
+        }
+        return new Token(getLexeme(index), getType(index), getLine(index), getNameId(index));
+    }
+
+    /**
+     * Reads the source from a given offset to the end, stepping over the gap.
+     */
+    private class GapReader extends Reader
+    {
+        private int position;
+
+        private GapReader(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (position == textLength) {
+                return -1;
+            }
+            int count = Math.min(len, textLength - position);
+            int done = 0;
+            if (position < textGapStart) {
+                done = Math.min(count, textGapStart - position);
+                System.arraycopy(source, position, cbuf, off, done);
+            }
+            System.arraycopy(source, position + done + textGapEnd - textGapStart, cbuf, off + done, count - done);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
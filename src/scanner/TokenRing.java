@@ -0,0 +1,201 @@
+package scanner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * This class is a fixed size ring of the next tokens of a MyScanner, so a parser can look more than one token ahead
+ * with peek(k). When a peek needs tokens that have not been scanned yet, every free slot is filled in one batch,
+ * and like TokenBuffer the ring keeps each token in parallel arrays instead of a Token object. Identifiers keep
+ * their NamePool id, numbers their text and decoded value, and keywords and symbols only their type.
+ * An IOException from the scanner is rethrown as an UncheckedIOException: it can only happen during a refill, so
+ * callers no longer handle it per token.
+ * @author Gabriel Bergstrom
+ */
+public class TokenRing
+{
+    private static final int DEFAULT_CAPACITY = 64;
+
+    private MyScanner scanner;
+    private int mask;
+    private TokenType[] types;
+    private int[] nameIds;
+    private int[] lines;
+    private long[] values;//Numbers: the integer value or the bits of the real value
+    private boolean[] reals;
+    private String[] lexemes;//Numbers only
+    private int head;
+    private int count;
+    private int position;
+    private boolean ended;
+
+    /**
+     * @param scanner The scanner to read tokens from
+     */
+    public TokenRing(MyScanner scanner) {
+        this(scanner, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param scanner  The scanner to read tokens from
+     * @param capacity The number of tokens the ring holds, a power of two
+     */
+    public TokenRing(MyScanner scanner, int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.scanner = scanner;
+        mask = capacity - 1;
+        types = new TokenType[capacity];
+        nameIds = new int[capacity];
+        lines = new int[capacity];
+        values = new long[capacity];
+        reals = new boolean[capacity];
+        lexemes = new String[capacity];
+    }
+
+    /**
+     * Empties the ring for a scanner that has been given new input with yyreset, keeping the arrays.
+     */
+    public void reset() {
+        Arrays.fill(lexemes, null);
+        head = 0;
+        count = 0;
+        position = 0;
+        ended = false;
+    }
+
+    /**
+     * Scans tokens into every free slot of the ring, or until the input ends.
+     */
+    private void fill() {
+        try {
+            while (count <= mask) {
+                TokenType type = scanner.yylex();
+                if (type == null) {
+                    ended = true;
+                    return;
+                }
+                int slot = (head + count) & mask;
+                types[slot] = type;
+                lines[slot] = scanner.getLine();
+                nameIds[slot] = type == TokenType.ID ? scanner.getNameId() : -1;
+                if (type == TokenType.NUMBER) {
+                    reals[slot] = scanner.isReal();
+                    values[slot] = scanner.isReal() ? Double.doubleToRawLongBits(scanner.getRealValue())
+                            : scanner.getIntegerValue();
+                    lexemes[slot] = scanner.yytext();
+                } else {
+                    lexemes[slot] = null;
+                }
+                count++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Makes sure the k-th token ahead has been scanned, if there is one.
+     *
+     * @return true if the token exists
+     */
+    private boolean ensure(int k) {
+        if (k > mask) {
+            throw new IllegalArgumentException("Cannot look " + k + " tokens ahead in a ring of " + (mask + 1));
+        }
+        if (k >= count && !ended) {
+            fill();
+        }
+        return k < count;
+    }
+
+    private int slot(int k) {
+        return (head + k) & mask;
+    }
+
+    /**
+     * @param k How many tokens past the current one to look, 0 for the current token
+     * @return The type of that token, or null past the end of the input
+     */
+    public TokenType peek(int k) {
+        return ensure(k) ? types[slot(k)] : null;
+    }
+
+    /**
+     * Moves past the current token.
+     */
+    public void advance() {
+        if (ensure(0)) {
+            head = (head + 1) & mask;
+            count--;
+            position++;
+        }
+    }
+
+    /**
+     * @return The number of tokens moved past since the start of the input
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * @param k How many tokens past the current one to look
+     * @return The NamePool id of an identifier, or -1 for other tokens and past the end of the input
+     */
+    public int getNameId(int k) {
+        return ensure(k) ? nameIds[slot(k)] : -1;
+    }
+
+    /**
+     * @param k How many tokens past the current one to look
+     * @return The line of the token, or of the last token past the end of the input
+     */
+    public int getLine(int k) {
+        if (ensure(k)) {
+            return lines[slot(k)];
+        }
+        return count == 0 ? scanner.getLine() : lines[slot(count - 1)];
+    }
+
+    /**
+     * @param k How many tokens past the current one to look
+     * @return The name of an identifier, the text of a number, the type of any other token, or "End of File"
+     */
+    public String getLexeme(int k) {
+        if (!ensure(k)) {
+            return "End of File";
+        }
+        int slot = slot(k);
+        if (types[slot] == TokenType.ID) {
+            return scanner.getNamePool().getName(nameIds[slot]);
+        }
+        return lexemes[slot] != null ? lexemes[slot] : types[slot].toString();
+    }
+
+    /**
+     * @param k How many tokens past the current one to look, which must be a NUMBER
+     * @return true if the number is a real
+     */
+    public boolean isReal(int k) {
+        return ensure(k) && reals[slot(k)];
+    }
+
+    /**
+     * @param k How many tokens past the current one to look, which must be an integer NUMBER
+     * @return The value of the number, or NumberLiterals.TOO_LARGE
+     */
+    public long getIntegerValue(int k) {
+        return ensure(k) ? values[slot(k)] : 0;
+    }
+
+    /**
+     * @param k How many tokens past the current one to look, which must be a real NUMBER
+     * @return The value of the number
+     */
+    public double getRealValue(int k) {
+        return ensure(k) ? Double.longBitsToDouble(values[slot(k)]) : 0;
+    }
+}
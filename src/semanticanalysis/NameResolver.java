@@ -0,0 +1,113 @@
+package semanticanalysis;
+
+import symboltable.SymbolTable;
+import syntaxtree.*;
+
+/**
+ * This class is the name resolution pass that runs after the Parser: it walks a syntax tree once and binds every
+ * VariableNode, including the left side of each assignment and the declared variables and arguments, and every
+ * ProcedureStatementNode to the Symbol its name refers to. CodeGeneration and any later pass read the Symbol off the
+ * node instead of looking the name up in the SymbolTable again each time they meet it.
+ * A name is looked up by its NamePool id when the Parser gave it one and by its text otherwise. A name that is not
+ * declared is bound to null. Subprogram bodies that were left for later are parsed by the walk.
+ * @author Gabriel Bergstrom
+ */
+public class NameResolver
+{
+    private SymbolTable symbolTable;
+    private int unresolved;
+
+    /**
+     * @param symbolTable The table the Parser filled while building the trees this resolves
+     */
+    public NameResolver(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable;
+    }
+
+    /**
+     * Binds every name in a program, its subprograms included.
+     *
+     * @param program The root of the tree
+     * @return The number of names that are not declared
+     */
+    public int resolve(ProgramNode program) {
+        unresolved = 0;
+        resolveProgram(program);
+        return unresolved;
+    }
+
+    private void resolveProgram(ProgramNode program) {
+        if (program instanceof SubProgramNode && ((SubProgramNode) program).getArguments() != null) {
+            for (VariableNode argument : ((SubProgramNode) program).getArguments()) {
+                resolveVariable(argument);
+            }
+        }
+        if (program.getVariables() != null && program.getVariables().getVariables() != null) {
+            for (VariableNode variable : program.getVariables().getVariables()) {
+                resolveVariable(variable);
+            }
+        }
+        if (program.getFunctions() != null) {
+            for (SubProgramNode function : program.getFunctions().getProcs()) {
+                resolveProgram(function);
+            }
+        }
+        resolveStatement(program.getMain());
+    }
+
+    private void resolveStatement(StatementNode statement) {
+        if (statement instanceof AssignmentStatementNode) {
+            AssignmentStatementNode assignment = (AssignmentStatementNode) statement;
+            resolveExpression(assignment.getLvalue());
+            resolveExpression(assignment.getExpression());
+        } else if (statement instanceof IfStatementNode) {
+            IfStatementNode ifStatement = (IfStatementNode) statement;
+            resolveExpression(ifStatement.getTest());
+            resolveStatement(ifStatement.getThenStatement());
+            resolveStatement(ifStatement.getElseStatement());
+        } else if (statement instanceof WhileStatementNode) {
+            WhileStatementNode whileStatement = (WhileStatementNode) statement;
+            resolveExpression(whileStatement.getTest());
+            resolveStatement(whileStatement.getDoStatement());
+        } else if (statement instanceof CompoundStatementNode) {
+            for (StatementNode child : ((CompoundStatementNode) statement).getStatement()) {
+                resolveStatement(child);
+            }
+        } else if (statement instanceof ProcedureStatementNode) {
+            ProcedureStatementNode call = (ProcedureStatementNode) statement;
+            call.setSymbol(found(symbolTable.get(call.getName())));
+            if (call.getArguments() != null) {
+                for (ExpressionNode argument : call.getArguments()) {
+                    resolveExpression(argument);
+                }
+            }
+        }
+    }
+
+    private void resolveExpression(ExpressionNode expression) {
+        if (expression instanceof OperationNode) {
+            OperationNode operation = (OperationNode) expression;
+            resolveExpression(operation.getLeft());
+            resolveExpression(operation.getRight());
+        } else if (expression instanceof UnaryOperationNode) {
+            resolveExpression(((UnaryOperationNode) expression).getExpression());
+        } else if (expression instanceof VariableNode) {
+            resolveVariable((VariableNode) expression);
+        }
+    }
+
+    private void resolveVariable(VariableNode variable) {
+        variable.setSymbol(found(variable.getNameId() >= 0 ? symbolTable.get(variable.getNameId())
+                : symbolTable.get(variable.getName())));
+    }
+
+    /**
+     * Counts a name that is not declared.
+     */
+    private SymbolTable.Symbol found(SymbolTable.Symbol symbol) {
+        if (symbol == null) {
+            unresolved++;
+        }
+        return symbol;
+    }
+}
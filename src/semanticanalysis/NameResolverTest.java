@@ -0,0 +1,72 @@
+package semanticanalysis;
+
+import org.junit.Test;
+import parser.Parser;
+import symboltable.SymbolTable;
+import syntaxtree.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * This class uses the JUnit testing library to test the NameResolver class.
+ * @author Gabriel Bergstrom
+ */
+public class NameResolverTest
+{
+    /**
+     * Tests that declared variables, the variables of expressions, the left side of assignments, arguments and
+     * procedure calls are all bound to the symbol of their name, and that undeclared names are counted
+     */
+    @Test
+    public void testResolve() {
+        String program = "program foo; var a, b: integer;\n" +
+                "function f(x: integer): integer; begin a := x end;\n" +
+                "procedure p; begin b := 2 end;\n" +
+                "begin a := b * (a + 1); if a < b then p else a := d; p end.";
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        Parser parser;
+        ProgramNode tree;
+        try {
+            parser = new Parser(program, false);
+            tree = parser.program();
+        } finally {
+            System.setOut(out);
+        }
+        SymbolTable table = parser.getSymbolTable();
+        //d is not declared
+        assertEquals(1, new NameResolver(table).resolve(tree));
+
+        assertSame(table.get("a"), tree.getVariables().getVariables().get(0).getSymbol());
+        assertSame(table.get("b"), tree.getVariables().getVariables().get(1).getSymbol());
+
+        CompoundStatementNode main = tree.getMain();
+        AssignmentStatementNode assignment = (AssignmentStatementNode) main.getStatement().get(0);
+        assertSame(table.get("a"), assignment.getLvalue().getSymbol());
+        OperationNode times = (OperationNode) assignment.getExpression();
+        assertSame(table.get("b"), ((VariableNode) times.getLeft()).getSymbol());
+        OperationNode plus = (OperationNode) times.getRight();
+        assertSame(table.get("a"), ((VariableNode) plus.getLeft()).getSymbol());
+
+        IfStatementNode ifStatement = (IfStatementNode) main.getStatement().get(1);
+        assertSame(table.get("p"), ((ProcedureStatementNode) ifStatement.getThenStatement()).getSymbol());
+        assertNull(((VariableNode) ((AssignmentStatementNode) ifStatement.getElseStatement()).getExpression())
+                .getSymbol());
+        assertSame(table.get("p"), ((ProcedureStatementNode) main.getStatement().get(2)).getSymbol());
+
+        SubProgramNode f = tree.getFunctions().getProcs().get(0);
+        assertSame(table.get("x"), f.getArguments().get(0).getSymbol());
+        AssignmentStatementNode body = (AssignmentStatementNode) f.getMain().getStatement().get(0);
+        assertSame(table.get("a"), body.getLvalue().getSymbol());
+
+        //The symbols go on into the FlatTree
+        FlatTree flat = FlatTree.of(tree);
+        int assignmentNode = flat.getFirstChild(flat.getChild(flat.getRoot(), 2));
+        assertSame(table.get("a"), flat.getSymbol(flat.getFirstChild(assignmentNode)));
+    }
+}
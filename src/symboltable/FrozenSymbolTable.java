@@ -0,0 +1,220 @@
+package symboltable;
+
+import scanner.TokenType;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class is a read only copy of a SymbolTable, made by SymbolTable.freeze, that any number of threads can read
+ * at once without locking, for example code generation and analysis passes that each take one subprogram. Nothing
+ * in it changes after it is made, and every field is final, so a thread that is handed a FrozenSymbolTable sees all
+ * of it. Changes to the SymbolTable it was frozen from, or to its Symbols, do not show through.
+ * Every symbol of the scopes that were open is numbered in the order it was added, and each lookup returns that
+ * number, or NONE, which the getters then read from arrays. A name finds the innermost symbol declared for it.
+ * A pass that needs to annotate symbols, with the memory address it gave them or a type it worked out, does so in
+ * an Overlay of its own instead of in the shared table.
+ * @author Gabriel Bergstrom
+ */
+public final class FrozenSymbolTable
+{
+    /** The number lookups return for a name that has no symbol */
+    public static final int NONE = -1;
+
+    private final String[] ids;
+    private final int[] nameIds;
+    private final Kind[] kinds;
+    private final TokenType[] types;
+    private final String[] memoryAddresses;
+    private final int[] scopes;
+    private final int[] orders;//The order of each symbol in the table it was frozen from, increasing
+    private final int[] byNameId;//The innermost symbol of each NamePool id, or NONE
+    private final HashMap<String, Integer> byName;//The innermost symbol of each name
+
+    /**
+     * Copies the symbols of a table.
+     *
+     * @param symbols The symbols of its open scopes, in the order they were added
+     */
+    FrozenSymbolTable(SymbolTable.Symbol[] symbols) {
+        int n = symbols.length;
+        ids = new String[n];
+        nameIds = new int[n];
+        kinds = new Kind[n];
+        types = new TokenType[n];
+        memoryAddresses = new String[n];
+        scopes = new int[n];
+        orders = new int[n];
+        byName = new HashMap<>();
+        int maxNameId = -1;
+        for (SymbolTable.Symbol symbol : symbols) {
+            maxNameId = Math.max(maxNameId, symbol.getNameId());
+        }
+        byNameId = new int[maxNameId + 1];
+        Arrays.fill(byNameId, NONE);
+        //The open scopes are nested, so the last symbol added for a name is the innermost one
+        for (int i = 0; i < n; i++) {
+            SymbolTable.Symbol symbol = symbols[i];
+            ids[i] = symbol.getId();
+            nameIds[i] = symbol.getNameId();
+            kinds[i] = symbol.getKind();
+            types[i] = symbol.getType();
+            memoryAddresses[i] = symbol.getMemoryAddress();
+            scopes[i] = symbol.getScope();
+            orders[i] = symbol.getOrder();
+            byNameId[nameIds[i]] = i;
+            byName.put(ids[i], i);
+        }
+    }
+
+    /**
+     * @return The number of symbols
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param nameId The NamePool id of a name, negative if the name was never interned
+     * @return The innermost symbol declared for the name, or NONE
+     */
+    public int find(int nameId) {
+        return nameId >= 0 && nameId < byNameId.length ? byNameId[nameId] : NONE;
+    }
+
+    /**
+     * @param name A name
+     * @return The innermost symbol declared for the name, or NONE
+     */
+    public int find(String name) {
+        Integer symbol = byName.get(name);
+        return symbol == null ? NONE : symbol;
+    }
+
+    /**
+     * Finds the copy of a Symbol of the table this was frozen from, such as one NameResolver bound a node to.
+     *
+     * @param symbol A symbol of that table
+     * @return Its number, or NONE if it was not in an open scope when the table was frozen
+     */
+    public int find(SymbolTable.Symbol symbol) {
+        int found = Arrays.binarySearch(orders, symbol.getOrder());
+        return found >= 0 && nameIds[found] == symbol.getNameId() ? found : NONE;
+    }
+
+    /**
+     * @param symbol A number returned by find
+     * @return The name of the symbol
+     */
+    public String getId(int symbol) {
+        return ids[symbol];
+    }
+
+    /**
+     * @param symbol A number returned by find
+     * @return The NamePool id of the name of the symbol
+     */
+    public int getNameId(int symbol) {
+        return nameIds[symbol];
+    }
+
+    /**
+     * @param symbol A number returned by find
+     * @return The kind of the symbol
+     */
+    public Kind getKind(int symbol) {
+        return kinds[symbol];
+    }
+
+    /**
+     * @param symbol A number returned by find
+     * @return The type the symbol had when the table was frozen
+     */
+    public TokenType getType(int symbol) {
+        return types[symbol];
+    }
+
+    /**
+     * @param symbol A number returned by find
+     * @return The memory address the symbol had when the table was frozen
+     */
+    public String getMemoryAddress(int symbol) {
+        return memoryAddresses[symbol];
+    }
+
+    /**
+     * @param symbol A number returned by find
+     * @return The depth of the scope the symbol was declared in, 0 for the global scope
+     */
+    public int getScope(int symbol) {
+        return scopes[symbol];
+    }
+
+    /**
+     * @return A new, empty Overlay for one pass on one thread
+     */
+    public Overlay overlay() {
+        return new Overlay();
+    }
+
+    /**
+     * The annotations one pass makes to the symbols of a FrozenSymbolTable: a type or memory address set in it
+     * hides the frozen one, for that pass only. An Overlay is not safe to share between threads, each thread that
+     * annotates makes its own, and it only allocates once something is set in it.
+     */
+    public final class Overlay
+    {
+        private TokenType[] types;
+        private String[] memoryAddresses;
+
+        private Overlay() {
+        }
+
+        /**
+         * @return The FrozenSymbolTable this annotates
+         */
+        public FrozenSymbolTable getTable() {
+            return FrozenSymbolTable.this;
+        }
+
+        /**
+         * @param symbol A number returned by find
+         * @return The type set in this overlay, or else the frozen type
+         */
+        public TokenType getType(int symbol) {
+            TokenType type = types == null ? null : types[symbol];
+            return type != null ? type : FrozenSymbolTable.this.types[symbol];
+        }
+
+        /**
+         * @param symbol A number returned by find
+         * @param type   The type the symbol has for this pass
+         */
+        public void setType(int symbol, TokenType type) {
+            if (types == null) {
+                types = new TokenType[size()];
+            }
+            types[symbol] = type;
+        }
+
+        /**
+         * @param symbol A number returned by find
+         * @return The memory address set in this overlay, or else the frozen memory address
+         */
+        public String getMemoryAddress(int symbol) {
+            String address = memoryAddresses == null ? null : memoryAddresses[symbol];
+            return address != null ? address : FrozenSymbolTable.this.memoryAddresses[symbol];
+        }
+
+        /**
+         * @param symbol  A number returned by find
+         * @param address The memory address the symbol has for this pass
+         */
+        public void setMemoryAddress(int symbol, String address) {
+            if (memoryAddresses == null) {
+                memoryAddresses = new String[size()];
+            }
+            memoryAddresses[symbol] = address;
+        }
+    }
+}
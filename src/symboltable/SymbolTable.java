@@ -1,93 +1,495 @@
 package symboltable;
 
+import scanner.NamePool;
 import scanner.TokenType;
 
-import java.util.HashMap;
-import java.util.Stack;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
 
 /**
  * This class is the SymbolTable class:
  * Initially this class will be used with the Parser class to store all the different ID types inputted by the Pascal program.
- * This class will be using a Stack data structure to store various Hashmaps that will contain symbol objects stored to be used
- * by the Parser. For now This class will be taking in ID's from the Parser and creating Symbol objects that will then be stored in a Hashmap.
+ * This class will be taking in ID's from the Parser and creating Symbol objects that will then be stored in a table.
+ * Every name is interned in the compilation's NamePool, and one array indexed by the name's id holds the innermost symbol
+ * of every name, so a lookup by id never hashes the name and never looks through the scopes one by one. A symbol that
+ * hides one of an outer scope links to it, and the symbols of the open scopes are kept in the order they were added, so
+ * exitScope unlinks the symbols of the innermost scope and uncovers the ones they hid (LeBlanc and Cook's scheme).
  * Each symbol object will have the name of the ID, it's lexeme, an assigned enum KIND, and a type if necessary(real/int).
  * There are two types of functions: adding and is functions, that will be used with the Parser for adding to the SymbolTable and
- * checking inputs for what KIND they are once they have been assigned to the Hashmap.
+ * checking inputs for what KIND they are once they have been assigned to the table.
  * As the compiler grows and different input types need to be stored more functions will be added for storage within the SymbolTable.
  *
  * @author Gabriel Bergstrom
  */
 public class SymbolTable {
 
+    //The first bytes of a written table, "MPST", and the version of the format that follows them
+    private static final int MAGIC = 0x4D505354;
+    private static final int VERSION = 1;
+
     // Instance Variables
-    private Stack<HashMap<String, Symbol>>symbTable;
+    private Symbol[] visible;//The innermost symbol of each name, by NamePool id, outer ones follow Symbol.shadowed
+    private Symbol[] added = new Symbol[16];//The symbols of the open scopes, in the order they were added
+    private int size;//The number of symbols in added
+    private int[] scopeStarts = new int[8];//Where each scope inside the global scope starts in added
+    private int depth;//The number of scopes entered and not exited, 0 in the global scope
+    private NamePool names;
+    private int symbols;//The number of symbols added, the order of the next one
+    private boolean view;
+    private int limit = Integer.MAX_VALUE;//A view only sees the symbols added before this
+    private int base;//The number of symbols a view started with
+    private Symbol[] replayedSymbols;//The symbols a view added again, by order - base
+    private TokenType[] replayed;//Their types in the view
 
     // Constructors
 
     /**
-     * Initializes the HashMap.
+     * Initializes the global scope with a NamePool of its own.
      */
     public SymbolTable() {
-        symbTable = new Stack<>();
-        symbTable.push(new HashMap<>());
+        this(new NamePool());
+    }
+
+    /**
+     * Initializes the global scope, keying symbols by the ids of the given pool.
+     *
+     * @param pool The NamePool of the current compilation
+     */
+    public SymbolTable(NamePool pool) {
+        names = pool;
+        visible = new Symbol[Math.max(pool.size(), 16)];
+    }
+
+    /**
+     * Creates a read only view of a table, see asOf.
+     */
+    private SymbolTable(SymbolTable table, int count) {
+        names = table.names;
+        visible = table.visible;
+        depth = table.depth;
+        symbols = count;
+        view = true;
+        limit = count;
+        base = count;
+        replayedSymbols = new Symbol[8];
+        replayed = new TokenType[8];
     }
 
     // Methods
 
+    /**
+     * Removes every symbol and scope but the global scope, which keeps its array for the next compilation. The
+     * NamePool is left as it is, it is cleared by whoever shares it.
+     */
+    public void clear() {
+        Arrays.fill(visible, null);
+        Arrays.fill(added, 0, size, null);
+        size = 0;
+        depth = 0;
+        symbols = 0;
+    }
+
+    /**
+     * Opens a scope inside the current one. Names declared in it hide the same names of the scopes around it until
+     * it is exited.
+     */
+    public void enterScope() {
+        if (view) {
+            throw new UnsupportedOperationException("Cannot enter a scope in a view of a symbol table");
+        }
+        if (depth == scopeStarts.length) {
+            scopeStarts = Arrays.copyOf(scopeStarts, depth * 2);
+        }
+        scopeStarts[depth++] = size;
+    }
+
+    /**
+     * Closes the innermost scope, removing every symbol declared in it.
+     */
+    public void exitScope() {
+        if (view) {
+            throw new UnsupportedOperationException("Cannot exit a scope in a view of a symbol table");
+        }
+        if (depth == 0) {
+            throw new IllegalStateException("The global scope cannot be exited");
+        }
+        removeTo(scopeStarts[--depth]);
+    }
+
+    /**
+     * @return The number of scopes entered and not exited, 0 in the global scope
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Removes the symbols added last until only count of the open scopes' symbols are left, uncovering the symbols
+     * each one hid.
+     */
+    private void removeTo(int count) {
+        while (size > count) {
+            Symbol symbol = added[--size];
+            added[size] = null;
+            visible[symbol.nameId] = symbol.shadowed;
+        }
+    }
+
+    /**
+     * @return The number of symbols added so far, which is how asOf and truncate refer to a point of the parse
+     */
+    public int getSymbolCount() {
+        return symbols;
+    }
+
+    /**
+     * Makes a read only view of the table as it was when it held count symbols, so that the Parser can parse
+     * subprogram bodies in parallel, each one seeing only what was declared before it. Symbols added later are not
+     * seen through the view. Adding the symbol the table added next, with the same name and kind, makes it visible
+     * as if it had been added, which is how a subprogram that is parsed again replays its declarations: the type it
+     * is added with, and any setType on it, only change it in the view, and isReplay tells whether it ended up as
+     * the table has it. Adding anything else, or changing the type of any other symbol, throws an
+     * UnsupportedOperationException. The table must not change while the view is in use.
+     *
+     * @param count A number returned by getSymbolCount
+     * @return The view
+     */
+    public SymbolTable asOf(int count) {
+        return new SymbolTable(this, count);
+    }
+
+    /**
+     * @return true if every symbol added to this view was the one the table added next and has the same type in the
+     * view as in the table, so parsing the same part of the program again left the table as it was
+     */
+    public boolean isReplay() {
+        for (int i = 0; i < limit - base; i++) {
+            if (replayedSymbols[i].type != replayed[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes every symbol added after the table held count symbols. The scopes stay open.
+     *
+     * @param count A number returned by getSymbolCount
+     */
+    public void truncate(int count) {
+        int keep = size;
+        while (keep > 0 && added[keep - 1].order >= count) {
+            keep--;
+        }
+        removeTo(keep);
+        for (int i = 0; i < depth; i++) {
+            scopeStarts[i] = Math.min(scopeStarts[i], size);
+        }
+        symbols = Math.min(symbols, count);
+    }
+
+    /**
+     * Copies the symbols of the open scopes into a FrozenSymbolTable, which threads can then share and read without
+     * locking while this table goes on changing. Passes that run in parallel annotate the symbols in an Overlay of
+     * the snapshot, each their own, instead of setting them here.
+     *
+     * @return The snapshot
+     */
+    public FrozenSymbolTable freeze() {
+        if (view) {
+            throw new UnsupportedOperationException("Cannot freeze a view of a symbol table");
+        }
+        return new FrozenSymbolTable(Arrays.copyOf(added, size));
+    }
+
+    /**
+     * Writes the symbols of the open scopes, so that a later compilation can read them in instead of parsing the
+     * program they were declared in again. The format starts with a magic number and a version, then the names of the
+     * Kind constants and of the TokenType constants the symbols have, which each symbol refers to by index so that
+     * adding a constant to either enum does not change how an old file reads. Each symbol is its name, kind, type,
+     * memory address and the depth of its scope, in the order the symbols were added. Symbols that were read in are
+     * left out, since the program they came from declares them. Nothing is buffered or closed, so the caller should
+     * pass a buffered stream and close it.
+     *
+     * @param out The stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(OutputStream out) throws IOException {
+        if (view) {
+            throw new UnsupportedOperationException("Cannot write a view of a symbol table");
+        }
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        Kind[] kinds = Kind.values();
+        data.writeByte(kinds.length);
+        for (Kind kind : kinds) {
+            data.writeUTF(kind.name());
+        }
+        //Only the types the symbols have are named, numbered in the order they are first used
+        int[] typeIndexes = new int[TokenType.values().length];
+        TokenType[] types = new TokenType[typeIndexes.length];
+        int used = 0;
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (added[i].imported) {
+                continue;
+            }
+            count++;
+            TokenType type = added[i].type;
+            if (type != null && typeIndexes[type.ordinal()] == 0) {
+                types[used++] = type;
+                typeIndexes[type.ordinal()] = used;
+            }
+        }
+        data.writeShort(used);
+        for (int i = 0; i < used; i++) {
+            data.writeUTF(types[i].name());
+        }
+        data.writeInt(count);
+        for (int i = 0; i < size; i++) {
+            Symbol symbol = added[i];
+            if (symbol.imported) {
+                continue;
+            }
+            data.writeUTF(symbol.id);
+            data.writeByte(symbol.kind.ordinal());
+            data.writeShort(symbol.type == null ? -1 : typeIndexes[symbol.type.ordinal()] - 1);
+            data.writeBoolean(symbol.memoryAddress != null);
+            if (symbol.memoryAddress != null) {
+                data.writeUTF(symbol.memoryAddress);
+            }
+            data.writeShort(symbol.scope);
+        }
+        data.writeShort(depth);
+        data.flush();
+    }
+
+    /**
+     * Reads symbols written by write into this table, as if they were added in the order they were written, after
+     * every symbol it already holds. A symbol that is written deeper than the current scope enters scopes until it
+     * is as deep, and the scopes that were open when the table was written are left open. A symbol whose name the
+     * scope already holds is skipped, as add skips it. The symbols added are imported: another program declares them,
+     * so CodeGeneration only refers to them and write leaves them out. Only the bytes of the table are read from the
+     * stream. A view cannot be read into.
+     *
+     * @param in The stream to read from
+     * @return The number of symbols added
+     * @throws IOException if the stream cannot be read, does not hold a symbol table this version can read or is
+     * corrupt
+     */
+    public int read(InputStream in) throws IOException {
+        if (view) {
+            throw new UnsupportedOperationException("Cannot read into a view of a symbol table");
+        }
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a symbol table");
+        }
+        int version = data.readUnsignedShort();
+        if (version > VERSION) {
+            throw new IOException("Unsupported symbol table version: " + version);
+        }
+        Kind[] kinds = new Kind[data.readUnsignedByte()];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = constant(Kind.class, data.readUTF());
+        }
+        TokenType[] types = new TokenType[data.readUnsignedShort()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = constant(TokenType.class, data.readUTF());
+        }
+        int start = depth;
+        int count = data.readInt();
+        int read = 0;
+        for (int i = 0; i < count; i++) {
+            String name = data.readUTF();
+            int kindIndex = data.readUnsignedByte();
+            int type = data.readShort();
+            String memoryAddress = data.readBoolean() ? data.readUTF() : null;
+            int scope = data.readUnsignedShort();
+            if (kindIndex >= kinds.length || type < -1 || type >= types.length) {
+                throw new IOException("corrupt symbol table");
+            }
+            Kind kind = kinds[kindIndex];
+            if (kind == null || type >= 0 && types[type] == null) {
+                throw new IOException("Unknown kind or type for " + name);
+            }
+            while (depth < start + scope) {
+                enterScope();
+            }
+            Symbol symbol = new Symbol(names.intern(name), kind, type < 0 ? null : types[type]);
+            symbol.memoryAddress = memoryAddress;
+            symbol.imported = true;
+            if (add(symbol)) {
+                read++;
+            }
+        }
+        int open = data.readUnsignedShort();
+        while (depth < start + open) {
+            enterScope();
+        }
+        return read;
+    }
+
+    /**
+     * @return The constant of the enum with the name, or null if this version of the enum has none
+     */
+    private static <E extends Enum<E>> E constant(Class<E> type, String name) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return The NamePool the symbols are keyed by
+     */
+    public NamePool getNamePool() {
+        return names;
+    }
+
     /**
      * Takes in a String and creates/stores a Symbol object with the kind PROGRAM.
      */
      public boolean addProgram(String lex) {
-         HashMap<String, Symbol> currentTable = symbTable.pop();
-         if(!currentTable.containsKey(lex)){
-           currentTable.put(lex, new Symbol(lex, Kind.PROGRAM));
-           symbTable.push(currentTable);
-           return true;
-         }
-         symbTable.push(currentTable);
-         return false;
+         return addProgram(names.intern(lex));
      }
 
+    /**
+     * Takes in a name id and creates/stores a Symbol object with the kind PROGRAM.
+     */
+    public boolean addProgram(int nameId) {
+        return add(new Symbol(nameId, Kind.PROGRAM));
+    }
+
     /**
      * Takes in a String and creates/stores a Symbol object with the kind VARIABLE.
      */
     public boolean addVariable(String lex, TokenType type) {
-        HashMap<String, Symbol> currentTable = symbTable.pop();
-        if(!currentTable.containsKey(lex)){
-          currentTable.put(lex, new Symbol(lex, Kind.VARIABLE, type));
-          symbTable.push(currentTable);
-          return true;
-        }
-        symbTable.push(currentTable);
-        return false;
+        return addVariable(names.intern(lex), type);
+    }
+
+    /**
+     * Takes in a name id and creates/stores a Symbol object with the kind VARIABLE.
+     */
+    public boolean addVariable(int nameId, TokenType type) {
+        return add(new Symbol(nameId, Kind.VARIABLE, type));
     }
 
     /**
     * Takes in a String and creates/stores a Symbol object with the kind PROCEDURE.
     */
     public boolean addProcedure(String lex) {
-      HashMap<String, Symbol> currentTable = symbTable.pop();
-      if(!currentTable.containsKey(lex)){
-        currentTable.put(lex, new Symbol(lex, Kind.PROCEDURE));
-        symbTable.push(currentTable);
-        return true;
-      }
-      symbTable.push(currentTable);
-      return false;
+      return addProcedure(names.intern(lex));
+    }
+
+    /**
+     * Takes in a name id and creates/stores a Symbol object with the kind PROCEDURE.
+     */
+    public boolean addProcedure(int nameId) {
+        return add(new Symbol(nameId, Kind.PROCEDURE));
     }
 
     /**
     * Takes in a String and creates/stores a Symbol object with the kind FUNCTION.
       */
       public boolean addFunction(String lex, TokenType type) {
-        HashMap<String, Symbol> currentTable = symbTable.pop();
-        if(!currentTable.containsKey(lex)){
-          currentTable.put(lex, new Symbol(lex, Kind.FUNCTION));
-          symbTable.push(currentTable);
-          return true;
+        return addFunction(names.intern(lex), type);
+    }
+
+    /**
+     * Takes in a name id and creates/stores a Symbol object with the kind FUNCTION.
+     */
+    public boolean addFunction(int nameId, TokenType type) {
+        return add(new Symbol(nameId, Kind.FUNCTION));
+    }
+
+    /**
+     * Stores a symbol in the current scope unless its name is already taken there.
+     *
+     * @param symbol The symbol to store
+     * @return false if the name already exists in the current scope
+     */
+    private boolean add(Symbol symbol) {
+        if (view) {
+            if (inScope(symbol.nameId) != null) {
+                return false;
+            }
+            //The symbol the table added next can be added again, which makes it visible. Its type is kept in the
+            //view, the table's may have been changed by setType since it was added
+            Symbol next = symbol.nameId < visible.length ? visible[symbol.nameId] : null;
+            while (next != null && next.order > limit) {
+                next = next.shadowed;
+            }
+            if (next != null && next.order == limit && next.kind == symbol.kind && next.scope == depth) {
+                if (limit - base == replayed.length) {
+                    replayedSymbols = Arrays.copyOf(replayedSymbols, replayed.length * 2);
+                    replayed = Arrays.copyOf(replayed, replayed.length * 2);
+                }
+                replayedSymbols[limit - base] = next;
+                replayed[limit - base] = symbol.type;
+                limit++;
+                symbols++;
+                return true;
+            }
+            throw new UnsupportedOperationException("Cannot add " + symbol.id + " to a view of a symbol table");
+        }
+        if (symbol.nameId >= visible.length) {
+            visible = Arrays.copyOf(visible, Math.max(symbol.nameId + 1, visible.length * 2));
+        }
+        Symbol outer = visible[symbol.nameId];
+        if (outer != null && outer.scope == depth) {
+            return false;
         }
-        symbTable.push(currentTable);
-        return false;
+        symbol.order = symbols++;
+        symbol.scope = depth;
+        symbol.shadowed = outer;
+        visible[symbol.nameId] = symbol;
+        if (size == added.length) {
+            added = Arrays.copyOf(added, size * 2);
+        }
+        added[size++] = symbol;
+        return true;
+    }
+
+    /**
+     * @param nameId The id of the name, negative if the name was never interned
+     * @return The innermost symbol for the name that this table can see, or null
+     */
+    private Symbol find(int nameId) {
+        if (nameId < 0 || nameId >= visible.length) {
+            return null;
+        }
+        Symbol symbol = visible[nameId];
+        while (symbol != null && symbol.order >= limit) {
+            symbol = symbol.shadowed;
+        }
+        return symbol;
+    }
+
+    /**
+     * @return The symbol for the name that the current scope holds and this table can see, or null
+     */
+    private Symbol inScope(int nameId) {
+        Symbol symbol = find(nameId);
+        return symbol != null && symbol.scope == depth ? symbol : null;
+    }
+
+    /**
+     * Checks the kind of a name in the current scope.
+     *
+     * @param nameId The id of the name, negative if the name was never interned
+     * @param kind   The kind to check for
+     * @return true if the name is declared in the current scope with the given kind
+     */
+    private boolean isKind(int nameId, Kind kind) {
+        Symbol symbol = inScope(nameId);
+        return symbol != null && symbol.getKind() == kind;
     }
 
     /**
@@ -95,15 +497,7 @@ public class SymbolTable {
      * @return if the String input lex is not of kind PROGRAM : false will be returned.
      */
     public boolean isProgram(String lex) {
-        HashMap<String, Symbol> currentTable = symbTable.pop();
-        if (currentTable.containsKey(lex)) {
-            if (currentTable.get(lex).getKind() == Kind.PROGRAM) {
-                symbTable.push(currentTable);
-                return true;
-            }
-        }
-        symbTable.push(currentTable);
-        return false;
+        return isKind(names.find(lex), Kind.PROGRAM);
     }
 
     /**
@@ -111,15 +505,15 @@ public class SymbolTable {
      * @return if the String input lex is not of kind VARIABLE : false will be returned.
      */
     public boolean isVariable(String lex) {
-        HashMap<String, Symbol> currentTable = symbTable.pop();
-        if (currentTable.containsKey(lex)) {
-            if (currentTable.get(lex).getKind() == Kind.VARIABLE) {
-                symbTable.push(currentTable);
-                return true;
-            }
-        }
-        symbTable.push(currentTable);
-        return false;
+        return isKind(names.find(lex), Kind.VARIABLE);
+    }
+
+    /**
+     * @param nameId the id of a name
+     * @return if the name is not of kind VARIABLE : false will be returned.
+     */
+    public boolean isVariable(int nameId) {
+        return isKind(nameId, Kind.VARIABLE);
     }
 
     /**
@@ -127,15 +521,15 @@ public class SymbolTable {
      * @return if the String input lex is not of kind PROCEDURE : false will be returned.
      */
     public boolean isProcedure(String lex) {
-        HashMap<String, Symbol> currentTable = symbTable.pop();
-        if (currentTable.containsKey(lex)) {
-            if (currentTable.get(lex).getKind() == Kind.PROCEDURE) {
-                symbTable.push(currentTable);
-                return true;
-            }
-        }
-        symbTable.push(currentTable);
-        return false;
+        return isKind(names.find(lex), Kind.PROCEDURE);
+    }
+
+    /**
+     * @param nameId the id of a name
+     * @return if the name is not of kind PROCEDURE : false will be returned.
+     */
+    public boolean isProcedure(int nameId) {
+        return isKind(nameId, Kind.PROCEDURE);
     }
 
     /**
@@ -143,24 +537,21 @@ public class SymbolTable {
      * @return if the String input lex is not of kind FUNCTION : false will be returned.
      */
     public boolean isFunction(String lex) {
-        HashMap<String, Symbol> currentTable = symbTable.pop();
-        if (currentTable.containsKey(lex)) {
-            if (currentTable.get(lex).getKind() == Kind.FUNCTION) {
-                symbTable.push(currentTable);
-                return true;
-            }
-        }
-        symbTable.push(currentTable);
-        return false;
+        return isKind(names.find(lex), Kind.FUNCTION);
     }
 
     public Symbol get(String name){
-        for(int i = symbTable.size()-1 ; i>=0; i--){
-            if(symbTable.get(i).containsKey(name)){
-                return symbTable.get(i).get(name);
-            }
-        }
-        return null;
+        return get(names.find(name));
+    }
+
+    /**
+     * Get a symbol by the id of its name, searching from the innermost scope outwards
+     *
+     * @param nameId the id of the name, negative if the name was never interned
+     * @return The Symbol found or null if not found
+     */
+    public Symbol get(int nameId){
+        return find(nameId);
     }
     /**
      * Get the Type of a specific symbol (REAL/INTEGER)
@@ -169,10 +560,21 @@ public class SymbolTable {
      * @return The Symbol found or null if not found
      */
     public TokenType getType(String name) {
-        for (int i = symbTable.size() - 1; i >= 0; i--) {
-            if (symbTable.elementAt(i).containsKey(name)) return symbTable.elementAt(i).get(name).getType();
+        return getType(names.find(name));
+    }
+
+    /**
+     * Get the Type of a specific symbol (REAL/INTEGER)
+     *
+     * @param nameId the id of the name of the symbol we are looking for
+     * @return The Symbol found or null if not found
+     */
+    public TokenType getType(int nameId) {
+        Symbol symbol = get(nameId);
+        if (view && symbol != null && symbol.order >= base) {
+            return replayed[symbol.order - base];
         }
-        return null;
+        return symbol == null ? null : symbol.getType();
     }
 
     /**
@@ -182,26 +584,42 @@ public class SymbolTable {
      * @param t    Type to set
      */
     public void setType(String name, TokenType t) {
-        for (int i = symbTable.size() - 1; i >= 0; i--) {
-            if (symbTable.elementAt(i).containsKey(name)) {
-                symbTable.elementAt(i).get(name).setType(t);
-                return;
+        Symbol symbol = get(name);
+        if (view) {
+            if (symbol == null || symbol.order < base) {
+                throw new UnsupportedOperationException("Cannot change " + name + " in a view of a symbol table");
             }
+            replayed[symbol.order - base] = t;
+            return;
+        }
+        if (symbol != null) {
+            symbol.setType(t);
         }
     }
 
     /**
-     * Returns a String representation of a SymbolTable
+     * Returns a String representation of a SymbolTable: the symbols of the innermost scope, in the order they were
+     * declared, so the text does not depend on the order the NamePool first saw the names in. A view holds only the
+     * symbols it added again.
      *
      * @return a String representation of the object
      */
     @Override
     public String toString() {
-        String text = "";
-        for (HashMap<String, Symbol> idTable : symbTable) {
-            text = idTable.toString().replaceAll("[=]", " = ").replaceAll("\n,", "\n");
-            text += "\n";
+        Symbol[] symbols = view ? replayedSymbols : added;
+        int start = view ? 0 : depth == 0 ? 0 : scopeStarts[depth - 1];
+        int end = view ? limit - base : size;
+        StringBuilder scope = new StringBuilder("{");
+        for (int i = start; i < end; i++) {
+            Symbol symbol = symbols[i];
+            if (scope.length() > 1) {
+                scope.append(", ");
+            }
+            scope.append(symbol.getId()).append('=').append(symbol);
         }
+        scope.append('}');
+        String text = scope.toString().replaceAll("[=]", " = ").replaceAll("\n,", "\n");
+        text += "\n";
         return "SymbolTable { \n" + "Global Table = \n" + text + '}';
     }
 
@@ -215,34 +633,60 @@ public class SymbolTable {
     public class Symbol {
 
         private String id;
+        private int nameId;
         private Kind kind;
         private TokenType type;
         private String memoryAddress;
+        private int order;//The number of symbols added to the table before this one
+        private int scope;//The depth of the scope it was declared in
+        private Symbol shadowed;//The symbol of the same name it hides in a scope around it
+        private boolean imported;//Read from a file another compilation wrote, so declared by another program
 
         /**
          * Creates a Symbol to store a program or procedure symbol. Programs store the id name and the kind.
          *
-         * @param i id of the program
+         * @param n NamePool id of the program
          * @param k Kind enum (PROGRAM)
          */
-        public Symbol(String i, Kind k) {
-            id = i;
+        public Symbol(int n, Kind k) {
+            id = names.getName(n);
+            nameId = n;
             kind = k;
         }
 
         /**
          * Creates a symbol to store a variable or function symbol. Variables store the variable id, kind and type (int/real).
          *
-         * @param i id of the variable
+         * @param n NamePool id of the variable
          * @param k Kind enum (VARIABLE)
          * @param t type of the variable (int/real)
          */
-        public Symbol(String i, Kind k, TokenType t) {
-            id = i;
-            kind = k;
+        public Symbol(int n, Kind k, TokenType t) {
+            this(n, k);
             type = t;
         }
 
+        /**
+         * @return The number of symbols the table held before this one was added
+         */
+        public int getOrder() {
+            return order;
+        }
+
+        /**
+         * @return The depth of the scope the symbol was declared in, 0 for the global scope
+         */
+        public int getScope() {
+            return scope;
+        }
+
+        /**
+         * @return true if the symbol was read in by read, so another program declares it and this one only uses it
+         */
+        public boolean isImported() {
+            return imported;
+        }
+
         /**
          * Gets the kind of the symbol
          *
@@ -261,6 +705,15 @@ public class SymbolTable {
             return id;
         }
 
+        /**
+         * Gets the NamePool id of the symbol
+         *
+         * @return The id of the symbol's name
+         */
+        public int getNameId() {
+            return nameId;
+        }
+
         /**
          * Gets the type of the symbol
          *
@@ -1,8 +1,15 @@
 package symboltable;
 
 import org.junit.Test;
+import parser.Parser;
+import parser.SyntaxError;
 import scanner.TokenType;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
 import static org.junit.Assert.*;
 
 /**
@@ -302,4 +309,295 @@ public class SymbolTableTest {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * This function tests that a symbol added by name can be found by the NamePool id of the name, and that names the
+     * pool has never seen are not found.
+     */
+    @Test
+    public void testNameIds() {
+        scanner.NamePool names = new scanner.NamePool();
+        SymbolTable symblT = new SymbolTable(names);
+        int foo = names.intern("foo");
+        assertTrue(symblT.addVariable("foo", TokenType.INTEGER));
+        assertFalse(symblT.addVariable(foo, TokenType.REAL));
+        assertTrue(symblT.addProcedure("bar"));
+        int bar = names.find("bar");
+        assertTrue(symblT.isVariable(foo));
+        assertTrue(symblT.isProcedure(bar));
+        assertFalse(symblT.isVariable(bar));
+        assertEquals(TokenType.INTEGER, symblT.getType(foo));
+        assertEquals(foo, symblT.get("foo").getNameId());
+        assertEquals("bar", symblT.get(bar).getId());
+        assertNull(symblT.get("baz"));
+        assertFalse(symblT.isVariable(-1));
+        assertFalse(symblT.isVariable(1000));
+    }
+
+    /**
+     * This function tests that the table prints the symbols of its innermost scope in the order they were declared,
+     * not in the order their names were first seen.
+     */
+    @Test
+    public void testToString() {
+        scanner.NamePool names = new scanner.NamePool();
+        names.intern("b");
+        names.intern("a");
+        SymbolTable symblT = new SymbolTable(names);
+        symblT.addVariable("a", TokenType.INTEGER);
+        symblT.addVariable("b", TokenType.REAL);
+        String text = symblT.toString();
+        assertTrue(text, text.indexOf("a = ") < text.indexOf("b = "));
+
+        symblT.enterScope();
+        symblT.addProcedure("c");
+        symblT.addVariable("b", TokenType.INTEGER);
+        text = symblT.toString();
+        assertTrue(text, text.indexOf("c = ") < text.indexOf("b = "));
+        assertFalse(text, text.contains("a = "));
+    }
+
+    /**
+     * This function tests that a name declared in an inner scope hides the outer one until the scope is exited, that a
+     * name can only be declared once per scope, and that views and truncate see the scopes as the table does.
+     */
+    @Test
+    public void testScopes() {
+        SymbolTable symblT = new SymbolTable();
+        assertTrue(symblT.addVariable("a", TokenType.INTEGER));
+        assertTrue(symblT.addProcedure("p"));
+        int outer = symblT.getSymbolCount();
+        symblT.enterScope();
+        assertEquals(1, symblT.getDepth());
+        assertTrue(symblT.addVariable("a", TokenType.REAL));
+        assertFalse(symblT.addVariable("a", TokenType.INTEGER));
+        assertEquals(TokenType.REAL, symblT.getType("a"));
+        assertEquals(1, symblT.get("a").getScope());
+        assertEquals(0, symblT.get("p").getScope());
+        assertFalse(symblT.isProcedure("p"));//Only the current scope is checked
+        assertTrue(symblT.isVariable("a"));
+
+        //A view as of before the inner a sees the outer one
+        SymbolTable view = symblT.asOf(outer);
+        assertEquals(TokenType.INTEGER, view.getType("a"));
+        assertFalse(view.isVariable("a"));
+        assertTrue(view.addVariable("a", TokenType.REAL));
+        assertTrue(view.isReplay());
+
+        symblT.enterScope();
+        assertTrue(symblT.addVariable("b", TokenType.INTEGER));
+        symblT.exitScope();
+        assertNull(symblT.get("b"));
+        assertEquals(TokenType.REAL, symblT.getType("a"));
+        symblT.exitScope();
+        assertEquals(0, symblT.getDepth());
+        assertEquals(TokenType.INTEGER, symblT.getType("a"));
+        assertTrue(symblT.isProcedure("p"));
+        assertFalse(symblT.addVariable("a", TokenType.REAL));
+
+        symblT.enterScope();
+        assertTrue(symblT.addVariable("c", TokenType.INTEGER));
+        symblT.truncate(outer);
+        assertNull(symblT.get("c"));
+        assertTrue(symblT.addVariable("c", TokenType.REAL));
+        assertEquals(TokenType.REAL, symblT.getType("c"));
+
+        try {
+            new SymbolTable().exitScope();
+            fail();
+        } catch (IllegalStateException e) {
+            //The global scope stays
+        }
+    }
+
+    /**
+     * This function tests that a written table reads back with the same names, kinds, types, memory addresses and
+     * scopes, that reading into a table that already has symbols keeps them and skips names it already declares,
+     * that the symbols read are imported and not written again, and that anything else is refused.
+     */
+    @Test
+    public void testWriteRead() throws Exception {
+        SymbolTable symblT = new SymbolTable();
+        symblT.addProgram("lib");
+        symblT.addVariable("a", TokenType.INTEGER);
+        symblT.addFunction("f", TokenType.REAL);
+        symblT.setType("f", TokenType.REAL);
+        symblT.addProcedure("p");
+        symblT.get("a").setMemoryAddress("a");
+        symblT.enterScope();
+        symblT.addVariable("a", TokenType.REAL);
+        symblT.enterScope();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        symblT.write(bytes);
+
+        SymbolTable read = new SymbolTable();
+        assertEquals(5, read.read(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(2, read.getDepth());
+        assertEquals(symblT.toString(), read.toString());
+        assertEquals(TokenType.REAL, read.getType("a"));
+        assertEquals(1, read.get("a").getScope());
+        read.exitScope();
+        read.exitScope();
+        assertEquals(TokenType.INTEGER, read.getType("a"));
+        assertEquals("a", read.get("a").getMemoryAddress());
+        assertEquals(Kind.FUNCTION, read.get("f").getKind());
+        assertEquals(TokenType.REAL, read.getType("f"));
+        assertTrue(read.isProcedure("p"));
+        assertTrue(read.isProgram("lib"));
+
+        //Read after a program's own symbols, the written a is already declared there
+        SymbolTable app = new SymbolTable();
+        app.addProgram("app");
+        app.addVariable("a", TokenType.REAL);
+        assertEquals(4, app.read(new ByteArrayInputStream(bytes.toByteArray())));
+        app.exitScope();
+        app.exitScope();
+        assertEquals(TokenType.REAL, app.getType("a"));
+        assertTrue(app.isProgram("app"));
+        assertTrue(app.isProcedure("p"));
+        assertTrue(app.get("p").isImported());
+        assertFalse(app.get("app").isImported());
+
+        //Only the program's own symbols are written again
+        ByteArrayOutputStream appBytes = new ByteArrayOutputStream();
+        app.write(appBytes);
+        SymbolTable reread = new SymbolTable();
+        assertEquals(2, reread.read(new ByteArrayInputStream(appBytes.toByteArray())));
+        assertTrue(reread.isProgram("app"));
+        assertNull(reread.get("p"));
+
+        //A kind or type index past the constants the file names
+        byte[] corrupt = bytes.toByteArray();
+        int kind = new String(corrupt, "ISO-8859-1").indexOf("lib") + 3;
+        for (int index : new int[] {kind, kind + 1}) {
+            byte[] bad = corrupt.clone();
+            bad[index] = 0x7f;
+            try {
+                new SymbolTable().read(new ByteArrayInputStream(bad));
+                fail();
+            } catch (IOException e) {
+                assertEquals("corrupt symbol table", e.getMessage());
+            }
+        }
+
+        try {
+            symblT.asOf(0).read(new ByteArrayInputStream(bytes.toByteArray()));
+            fail();
+        } catch (UnsupportedOperationException e) {
+            //A view is read only
+        }
+
+        try {
+            new SymbolTable().read(new ByteArrayInputStream("program".getBytes()));
+            fail();
+        } catch (IOException e) {
+            assertEquals("Not a symbol table", e.getMessage());
+        }
+    }
+
+    /**
+     * This function tests that a program that declares a name the symbol table it read in already declares is
+     * stopped with an error, rather than defining a label the other program defines too.
+     */
+    @Test
+    public void testReadClash() throws Exception {
+        SymbolTable lib = new SymbolTable();
+        lib.addProgram("lib");
+        lib.addVariable("shared", TokenType.INTEGER);
+        lib.get("shared").setMemoryAddress("shared");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        lib.write(bytes);
+
+        Parser parser = new Parser("program app; var shared: integer; begin shared := 1 end.", false);
+        parser.getSymbolTable().read(new ByteArrayInputStream(bytes.toByteArray()));
+        parser.setMaxErrors(100);
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream()));
+        try {
+            parser.program();
+            fail();
+        } catch (RuntimeException e) {
+            //The parse stops with the errors it found
+        } finally {
+            System.setOut(out);
+        }
+        boolean clash = false;
+        for (SyntaxError error : parser.getSyntaxErrors()) {
+            clash |= error.getMessage().contains("shared is imported");
+        }
+        assertTrue(clash);
+    }
+
+    /**
+     * This function tests that a frozen table finds the innermost symbol of each name by id, text and Symbol, that
+     * changes to the table after freezing do not show through, that an Overlay only changes what it reads, and that
+     * several threads can read one snapshot at once.
+     */
+    @Test
+    public void testFreeze() throws Exception {
+        SymbolTable symblT = new SymbolTable();
+        symblT.addProgram("foo");
+        symblT.addVariable("a", TokenType.INTEGER);
+        symblT.addFunction("f", TokenType.REAL);
+        symblT.get("a").setMemoryAddress("a");
+        symblT.enterScope();
+        symblT.addVariable("a", TokenType.REAL);
+        SymbolTable.Symbol inner = symblT.get("a");
+        FrozenSymbolTable frozen = symblT.freeze();
+
+        assertEquals(4, frozen.size());
+        int a = frozen.find("a");
+        assertEquals(a, frozen.find(inner.getNameId()));
+        assertEquals(a, frozen.find(inner));
+        assertEquals(TokenType.REAL, frozen.getType(a));
+        assertEquals(1, frozen.getScope(a));
+        assertNull(frozen.getMemoryAddress(a));
+        int f = frozen.find("f");
+        assertEquals(Kind.FUNCTION, frozen.getKind(f));
+        assertEquals("f", frozen.getId(f));
+        assertEquals(FrozenSymbolTable.NONE, frozen.find("b"));
+        assertEquals(FrozenSymbolTable.NONE, frozen.find(-1));
+
+        //The table goes on without the snapshot seeing it
+        inner.setType(TokenType.INTEGER);
+        symblT.exitScope();
+        symblT.addVariable("b", TokenType.INTEGER);
+        assertEquals(TokenType.REAL, frozen.getType(a));
+        assertEquals(FrozenSymbolTable.NONE, frozen.find("b"));
+        assertEquals(FrozenSymbolTable.NONE, frozen.find(symblT.get("b")));
+
+        FrozenSymbolTable.Overlay overlay = frozen.overlay();
+        overlay.setMemoryAddress(a, "4($sp)");
+        overlay.setType(f, TokenType.INTEGER);
+        assertEquals("4($sp)", overlay.getMemoryAddress(a));
+        assertEquals(TokenType.INTEGER, overlay.getType(f));
+        assertEquals(TokenType.REAL, overlay.getType(a));
+        assertNull(frozen.getMemoryAddress(a));
+        assertNull(frozen.overlay().getMemoryAddress(a));
+        assertSame(frozen, overlay.getTable());
+
+        Thread[] readers = new Thread[4];
+        boolean[] found = new boolean[readers.length];
+        for (int i = 0; i < readers.length; i++) {
+            int reader = i;
+            readers[i] = new Thread(() -> {
+                boolean all = true;
+                for (int j = 0; j < 10000; j++) {
+                    all &= frozen.find("a") == a && frozen.getKind(frozen.find("f")) == Kind.FUNCTION;
+                }
+                found[reader] = all;
+            });
+            readers[i].start();
+        }
+        for (int i = 0; i < readers.length; i++) {
+            readers[i].join();
+            assertTrue(found[i]);
+        }
+
+        try {
+            symblT.asOf(0).freeze();
+            fail();
+        } catch (UnsupportedOperationException e) {
+            //Only a table can be frozen
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package syntaxtree;
+
+import scanner.TokenType;
+import symboltable.SymbolTable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class is a read only syntax tree stored in primitive arrays instead of node objects. Every node is an int
+ * index, and its kind, operator, type, next sibling and payload are entries of parallel arrays, so a node costs
+ * 11 bytes instead of an object header, its fields and the ArrayLists holding its children.
+ * Nodes are stored in preorder, so the root is 0 and the first child of a node, if it has any, is the node after it.
+ * Only a bit of the kind records whether there is one. The children of a node are reached with getFirstChild and
+ * then getNextSibling, in the order the node classes hold them:
+ * PROGRAM            declarations, subprograms, main compound statement
+ * SUBPROGRAM         arguments, declarations, subprograms, main compound statement
+ * DECLARATIONS, ARGUMENTS   variables
+ * SUBPROGRAMS        subprograms
+ * COMPOUND           statements
+ * ASSIGNMENT         variable, expression
+ * IF                 test, then statement, else statement
+ * WHILE              test, do statement
+ * PROCEDURE_CALL     arguments
+ * OPERATION          left, right
+ * UNARY              expression
+ * A part a node object did not have, such as the else of an unfinished if, is an EMPTY node.
+ * Names and the text of numbers are kept once each in a pool that the payload indexes, next to the NamePool id of
+ * a name or the value of a number. A name also keeps the Symbol NameResolver bound its nodes to, and one that is
+ * bound to different symbols in different places gets an entry for each.
+ * @author Gabriel Bergstrom
+ */
+public class FlatTree
+{
+    public static final int EMPTY = 0;
+    public static final int PROGRAM = 1;
+    public static final int DECLARATIONS = 2;
+    public static final int SUBPROGRAMS = 3;
+    public static final int SUBPROGRAM = 4;
+    public static final int ARGUMENTS = 5;
+    public static final int COMPOUND = 6;
+    public static final int ASSIGNMENT = 7;
+    public static final int IF = 8;
+    public static final int WHILE = 9;
+    public static final int PROCEDURE_CALL = 10;
+    public static final int OPERATION = 11;
+    public static final int UNARY = 12;
+    public static final int VALUE = 13;
+    public static final int VARIABLE = 14;
+
+    /** The index of a child or sibling that does not exist */
+    public static final int NONE = -1;
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    private static final int KIND = 0x3F;
+    private static final int HAS_CHILDREN = 0x40;
+
+    private byte[] kinds = new byte[64];//The kind, with HAS_CHILDREN set if the next node is the first child
+    private byte[] operators = new byte[64];//TokenType ordinal + 1, 0 for none
+    private byte[] types = new byte[64];//TokenType ordinal + 1, 0 for none
+    private int[] nextSiblings = new int[64];
+    private int[] payloads = new int[64];//Index into the pool, or NONE
+    private int size;
+
+    private String[] texts = new String[16];
+    private long[] numbers = new long[16];//The NamePool id of a name, the value or the bits of the real value of a number
+    private SymbolTable.Symbol[] symbols = new SymbolTable.Symbol[16];//The Symbol of a name
+    private int poolSize;
+
+    private HashMap<String, Integer> names = new HashMap<>();
+    private HashMap<String, Integer> literals = new HashMap<>();
+
+    private FlatTree() {
+    }
+
+    /**
+     * Converts a syntax tree built by the Parser.
+     *
+     * @param program The root of the tree
+     * @return The same tree stored in arrays
+     */
+    public static FlatTree of(ProgramNode program) {
+        FlatTree tree = new FlatTree();
+        tree.convertProgram(program);
+        tree.trim();
+        return tree;
+    }
+
+    private int convertProgram(ProgramNode program) {
+        boolean subprogram = program instanceof SubProgramNode;
+        int node = add(subprogram ? SUBPROGRAM : PROGRAM, null, null, name(program.name, -1, null));
+        int previous = NONE;
+        if (subprogram) {
+            previous = link(node, previous, convertVariables(ARGUMENTS, ((SubProgramNode) program).getArguments()));
+        }
+        previous = link(node, previous, program.variables == null ? add(EMPTY, null, null, NONE)
+                : convertVariables(DECLARATIONS, program.variables.getVariables()));
+        int subprograms = add(SUBPROGRAMS, null, null, NONE);
+        if (program.functions != null) {
+            int previousSubprogram = NONE;
+            for (SubProgramNode function : program.functions.getProcs()) {
+                previousSubprogram = link(subprograms, previousSubprogram, convertProgram(function));
+            }
+        }
+        previous = link(node, previous, subprograms);
+        link(node, previous, convertStatement(program.getMain()));
+        return node;
+    }
+
+    private int convertVariables(int kind, Iterable<VariableNode> variables) {
+        int node = add(kind, null, null, NONE);
+        if (variables != null) {
+            int previous = NONE;
+            for (VariableNode variable : variables) {
+                previous = link(node, previous, convertExpression(variable));
+            }
+        }
+        return node;
+    }
+
+    private int convertStatement(StatementNode statement) {
+        int node;
+        if (statement instanceof AssignmentStatementNode) {
+            AssignmentStatementNode assignment = (AssignmentStatementNode) statement;
+            node = add(ASSIGNMENT, null, null, NONE);
+            int previous = link(node, NONE, convertExpression(assignment.getLvalue()));
+            link(node, previous, convertExpression(assignment.getExpression()));
+        } else if (statement instanceof IfStatementNode) {
+            IfStatementNode ifStatement = (IfStatementNode) statement;
+            node = add(IF, null, null, NONE);
+            int previous = link(node, NONE, convertExpression(ifStatement.getTest()));
+            previous = link(node, previous, convertStatement(ifStatement.getThenStatement()));
+            link(node, previous, convertStatement(ifStatement.getElseStatement()));
+        } else if (statement instanceof WhileStatementNode) {
+            WhileStatementNode whileStatement = (WhileStatementNode) statement;
+            node = add(WHILE, null, null, NONE);
+            int previous = link(node, NONE, convertExpression(whileStatement.getTest()));
+            link(node, previous, convertStatement(whileStatement.getDoStatement()));
+        } else if (statement instanceof CompoundStatementNode) {
+            node = add(COMPOUND, null, null, NONE);
+            int previous = NONE;
+            for (StatementNode child : ((CompoundStatementNode) statement).getStatement()) {
+                previous = link(node, previous, convertStatement(child));
+            }
+        } else if (statement instanceof ProcedureStatementNode) {
+            ProcedureStatementNode call = (ProcedureStatementNode) statement;
+            node = add(PROCEDURE_CALL, null, null, name(call.getName(), -1, call.getSymbol()));
+            int previous = NONE;
+            if (call.getArguments() != null) {
+                for (ExpressionNode argument : call.getArguments()) {
+                    previous = link(node, previous, convertExpression(argument));
+                }
+            }
+        } else {
+            node = add(EMPTY, null, null, NONE);
+        }
+        return node;
+    }
+
+    private int convertExpression(ExpressionNode expression) {
+        int node;
+        if (expression instanceof OperationNode) {
+            OperationNode operation = (OperationNode) expression;
+            node = add(OPERATION, operation.getOperation(), operation.getType(), NONE);
+            int previous = link(node, NONE, convertExpression(operation.getLeft()));
+            link(node, previous, convertExpression(operation.getRight()));
+        } else if (expression instanceof UnaryOperationNode) {
+            UnaryOperationNode unary = (UnaryOperationNode) expression;
+            node = add(UNARY, unary.getOp(), unary.getType(), NONE);
+            link(node, NONE, convertExpression(unary.getExpression()));
+        } else if (expression instanceof ValueNode) {
+            ValueNode value = (ValueNode) expression;
+            node = add(VALUE, null, value.getType(), literal(value));
+        } else if (expression instanceof VariableNode) {
+            VariableNode variable = (VariableNode) expression;
+            node = add(VARIABLE, null, variable.getType(),
+                    name(variable.getName(), variable.getNameId(), variable.getSymbol()));
+        } else {
+            node = add(EMPTY, null, null, NONE);
+        }
+        return node;
+    }
+
+    /**
+     * Makes a node the next child of a parent.
+     *
+     * @param parent   The parent node
+     * @param previous The last child the parent has so far, or NONE
+     * @param child    The new child
+     * @return The child, which is now the last child of the parent
+     */
+    private int link(int parent, int previous, int child) {
+        if (previous == NONE) {
+            //Children are added right after their parent, so the first child is always parent + 1
+            kinds[parent] |= HAS_CHILDREN;
+        } else {
+            nextSiblings[previous] = child;
+        }
+        return child;
+    }
+
+    private int add(int kind, TokenType operator, TokenType type, int payload) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            operators = Arrays.copyOf(operators, capacity);
+            types = Arrays.copyOf(types, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            payloads = Arrays.copyOf(payloads, capacity);
+        }
+        kinds[size] = (byte) kind;
+        operators[size] = (byte) (operator == null ? 0 : operator.ordinal() + 1);
+        types[size] = (byte) (type == null ? 0 : type.ordinal() + 1);
+        nextSiblings[size] = NONE;
+        payloads[size] = payload;
+        return size++;
+    }
+
+    /**
+     * Finds or adds the pool entry of a name. Declared variables have no NamePool id, so the id is taken from
+     * whichever node of the name has one, and so is the Symbol. A node bound to another Symbol than the entry's
+     * gets an entry of its own.
+     */
+    private int name(String text, int nameId, SymbolTable.Symbol symbol) {
+        if (text == null) {
+            return NONE;
+        }
+        Integer entry = names.get(text);
+        if (entry == null || symbol != null && symbols[entry] != null && symbols[entry] != symbol) {
+            entry = pool(text, nameId);
+            symbols[entry] = symbol;
+            names.put(text, entry);
+        } else {
+            if (numbers[entry] < 0) {
+                numbers[entry] = nameId;
+            }
+            if (symbols[entry] == null) {
+                symbols[entry] = symbol;
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Finds or adds the pool entry of a number. The same text is always the same value.
+     */
+    private int literal(ValueNode value) {
+        Integer entry = literals.get(value.getAttribute());
+        if (entry == null) {
+            long number = value.getType() == TokenType.REAL ? Double.doubleToRawLongBits(value.getRealValue())
+                    : value.getIntegerValue();
+            entry = pool(value.getAttribute(), number);
+            literals.put(value.getAttribute(), entry);
+        }
+        return entry;
+    }
+
+    private int pool(String text, long number) {
+        if (poolSize == texts.length) {
+            texts = Arrays.copyOf(texts, poolSize * 2);
+            numbers = Arrays.copyOf(numbers, poolSize * 2);
+            symbols = Arrays.copyOf(symbols, poolSize * 2);
+        }
+        texts[poolSize] = text;
+        numbers[poolSize] = number;
+        return poolSize++;
+    }
+
+    /**
+     * Shrinks the arrays to the size of the tree and drops the maps only needed while converting.
+     */
+    private void trim() {
+        kinds = Arrays.copyOf(kinds, size);
+        operators = Arrays.copyOf(operators, size);
+        types = Arrays.copyOf(types, size);
+        nextSiblings = Arrays.copyOf(nextSiblings, size);
+        payloads = Arrays.copyOf(payloads, size);
+        texts = Arrays.copyOf(texts, poolSize);
+        numbers = Arrays.copyOf(numbers, poolSize);
+        symbols = Arrays.copyOf(symbols, poolSize);
+        names = null;
+        literals = null;
+    }
+
+    /**
+     * @return The root, which is the PROGRAM node
+     */
+    public int getRoot() {
+        return 0;
+    }
+
+    /**
+     * @return The number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param node A node
+     * @return The kind of the node, one of the constants of this class
+     */
+    public int getKind(int node) {
+        return kinds[node] & KIND;
+    }
+
+    /**
+     * @param node An OPERATION or UNARY node
+     * @return The operator, or null for other kinds
+     */
+    public TokenType getOperator(int node) {
+        return operators[node] == 0 ? null : TOKEN_TYPES[operators[node] - 1];
+    }
+
+    /**
+     * @param node An expression node
+     * @return The type the parser gave the expression, or null if it has none
+     */
+    public TokenType getType(int node) {
+        return types[node] == 0 ? null : TOKEN_TYPES[types[node] - 1];
+    }
+
+    /**
+     * @param node A node
+     * @return The first child of the node, or NONE
+     */
+    public int getFirstChild(int node) {
+        return (kinds[node] & HAS_CHILDREN) != 0 ? node + 1 : NONE;
+    }
+
+    /**
+     * @param node A node
+     * @return The next child of the node's parent, or NONE
+     */
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    /**
+     * @param node  A node
+     * @param index The position of the child, from 0
+     * @return The child at that position, or NONE if the node has fewer children
+     */
+    public int getChild(int node, int index) {
+        int child = getFirstChild(node);
+        for (int i = 0; i < index && child != NONE; i++) {
+            child = nextSiblings[child];
+        }
+        return child;
+    }
+
+    /**
+     * @param node A PROGRAM, SUBPROGRAM, PROCEDURE_CALL, VARIABLE or VALUE node
+     * @return The name, or the text of a number, or null for other kinds
+     */
+    public String getText(int node) {
+        return payloads[node] == NONE ? null : texts[payloads[node]];
+    }
+
+    /**
+     * @param node A VARIABLE node
+     * @return The NamePool id of the name, or -1 if the parser gave it none
+     */
+    public int getNameId(int node) {
+        return payloads[node] == NONE || getKind(node) == VALUE ? -1 : (int) numbers[payloads[node]];
+    }
+
+    /**
+     * @param node A VARIABLE or PROCEDURE_CALL node
+     * @return The Symbol NameResolver bound the name to, or null if it was not bound or is not declared
+     */
+    public SymbolTable.Symbol getSymbol(int node) {
+        return payloads[node] == NONE || getKind(node) == VALUE ? null : symbols[payloads[node]];
+    }
+
+    /**
+     * @param node A VALUE node of type INTEGER
+     * @return The value of the number
+     */
+    public long getIntegerValue(int node) {
+        return numbers[payloads[node]];
+    }
+
+    /**
+     * @param node A VALUE node of type REAL
+     * @return The value of the number
+     */
+    public double getRealValue(int node) {
+        return Double.longBitsToDouble(numbers[payloads[node]]);
+    }
+}
@@ -1,5 +1,7 @@
 package syntaxtree;
 
+import symboltable.SymbolTable;
+
 import java.util.ArrayList;
 
 /**
@@ -10,6 +12,7 @@ public class ProcedureStatementNode extends StatementNode {
 
     private String name;
     private ArrayList<ExpressionNode> arguments = new ArrayList<>();
+    private SymbolTable.Symbol symbol;//The procedure the name resolves to, once NameResolver has bound it
 
     public ProcedureStatementNode(String name){
         this.name = name;
@@ -47,6 +50,22 @@ public class ProcedureStatementNode extends StatementNode {
         this.name = name;
     }
 
+    /**
+     * Gets the symbol of the procedure that is called
+     * @return the symbol, or null if the name is not declared or has not been resolved
+     */
+    public SymbolTable.Symbol getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Binds the statement to the symbol of the procedure it calls
+     * @param symbol the symbol of the procedure
+     */
+    public void setSymbol(SymbolTable.Symbol symbol) {
+        this.symbol = symbol;
+    }
+
     /**
      * Gets the ArrayList of ExpressionNodes from the procedure
      * @return ArrayList of ExpressionNodes
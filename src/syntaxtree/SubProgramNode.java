@@ -3,6 +3,7 @@ package syntaxtree;
 import scanner.TokenType;
 
 import java.util.ArrayList;
+import java.util.function.Supplier;
 
 /**
  * Represents a Subprogram
@@ -12,6 +13,7 @@ public class SubProgramNode extends ProgramNode {
 
     private TokenType returnType;//Holds the return type for the subprogram: Function:REAL||INTEGER / Procedure:NULL
     private ArrayList<VariableNode>arguments;//Holds all the subprogram function arguments.
+    private Supplier<CompoundStatementNode> body;//Parses the main function the first time it is asked for
 
     public SubProgramNode(String aName){
         this.name = aName;
@@ -26,10 +28,15 @@ public class SubProgramNode extends ProgramNode {
     }
 
     /**
-     * Gets the main function of the subprogram
+     * Gets the main function of the subprogram, parsing it first if it was left for later
      * @return a CompoundStatement Node as the main function of the subprogram
      */
+    @Override
     public CompoundStatementNode getMain(){
+        if (main == null && body != null) {
+            main = body.get();
+            body = null;
+        }
         return main;
     }
 
@@ -62,6 +69,16 @@ public class SubProgramNode extends ProgramNode {
      */
     public void setMain(CompoundStatementNode main){
         this.main = main;
+        this.body = null;
+    }
+
+    /**
+     * Leaves the main function of the subprogram to be parsed the first time getMain is called
+     * @param body parses the main function, throwing if it has an error, which getMain throws on to its caller
+     */
+    public void setMain(Supplier<CompoundStatementNode> body){
+        this.main = null;
+        this.body = body;
     }
 
     /**
@@ -119,7 +136,7 @@ public class SubProgramNode extends ProgramNode {
         }
         answer += variables.indentedToString( level + 1);
         answer += functions.indentedToString( level + 1);
-        answer += main.indentedToString( level + 1);
+        answer += getMain().indentedToString( level + 1);
         return answer;
     }
 }
@@ -3,6 +3,8 @@ package syntaxtree;
 import org.junit.Test;
 import scanner.TokenType;
 
+import java.util.ArrayList;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -151,4 +153,123 @@ public class SyntaxTreeTest {
         System.out.print(program2.indentedToString(1));
     }
 
-}
\ No newline at end of file
+    /**
+     * Tests that a FlatTree holds the same nodes, in the same order and with the same values, as the tree it was
+     * converted from
+     */
+    @Test
+    public void testFlatTree(){
+        ProgramNode program = new ProgramNode("flat");
+        DeclarationsNode declarations = new DeclarationsNode();
+        declarations.addVariable(new VariableNode("a", TokenType.INTEGER));
+        declarations.addVariable(new VariableNode("b", TokenType.REAL));
+        program.setVariables(declarations);
+
+        SubProgramDeclarationsNode functions = new SubProgramDeclarationsNode();
+        SubProgramNode function = new SubProgramNode("f");
+        ArrayList<VariableNode> arguments = new ArrayList<>();
+        arguments.add(new VariableNode("x", TokenType.INTEGER));
+        function.setArguments(arguments);
+        function.setVariables(new DeclarationsNode());
+        function.setFunctions(new SubProgramDeclarationsNode());
+        function.setMain(new CompoundStatementNode());
+        functions.addSubProgramDeclaration(function);
+        program.setFunctions(functions);
+
+        CompoundStatementNode main = new CompoundStatementNode();
+        AssignmentStatementNode assign = new AssignmentStatementNode();
+        VariableNode a = new VariableNode("a", TokenType.INTEGER);
+        a.setNameId(7);
+        assign.setLvalue(a);
+        OperationNode plus = new OperationNode(TokenType.PLUS);
+        plus.setLeft(new ValueNode("40000", 40000L));
+        plus.setRight(new VariableNode("a", TokenType.INTEGER));
+        assign.setExpression(plus);
+        main.addStatement(assign);
+        IfStatementNode ifStatement = new IfStatementNode();
+        OperationNode less = new OperationNode(TokenType.LTHAN);
+        less.setType(TokenType.INTEGER);
+        less.setLeft(new VariableNode("a", TokenType.INTEGER));
+        UnaryOperationNode minus = new UnaryOperationNode(TokenType.MINUS);
+        minus.setType(TokenType.REAL);
+        minus.setExpression(new ValueNode("2.5", 2.5));
+        less.setRight(minus);
+        ifStatement.setTest(less);
+        ifStatement.setThenStatement(new CompoundStatementNode());
+        main.addStatement(ifStatement);
+        ProcedureStatementNode call = new ProcedureStatementNode("p");
+        call.addArguments(new ValueNode("40000", 40000L));
+        main.addStatement(call);
+        program.setMain(main);
+
+        FlatTree tree = FlatTree.of(program);
+        String expected = "PROGRAM flat\n" +
+                " DECLARATIONS\n" +
+                "  VARIABLE a INTEGER 7\n" +
+                "  VARIABLE b REAL -1\n" +
+                " SUBPROGRAMS\n" +
+                "  SUBPROGRAM f\n" +
+                "   ARGUMENTS\n" +
+                "    VARIABLE x INTEGER -1\n" +
+                "   DECLARATIONS\n" +
+                "   SUBPROGRAMS\n" +
+                "   COMPOUND\n" +
+                " COMPOUND\n" +
+                "  ASSIGNMENT\n" +
+                "   VARIABLE a INTEGER 7\n" +
+                "   OPERATION PLUS\n" +
+                "    VALUE 40000 INTEGER 40000\n" +
+                "    VARIABLE a INTEGER 7\n" +
+                "  IF\n" +
+                "   OPERATION LTHAN INTEGER\n" +
+                "    VARIABLE a INTEGER 7\n" +
+                "    UNARY MINUS REAL\n" +
+                "     VALUE 2.5 REAL 2.5\n" +
+                "   COMPOUND\n" +
+                "   EMPTY\n" +
+                "  PROCEDURE_CALL p\n" +
+                "   VALUE 40000 INTEGER 40000\n";
+        StringBuilder actual = new StringBuilder();
+        describe(tree, tree.getRoot(), 0, actual);
+        assertEquals(expected, actual.toString());
+        assertEquals(26, tree.size());
+        int ifNode = tree.getChild(tree.getChild(tree.getRoot(), 2), 1);
+        assertEquals(FlatTree.IF, tree.getKind(ifNode));
+        assertEquals(FlatTree.EMPTY, tree.getKind(tree.getChild(ifNode, 2)));
+        assertEquals(FlatTree.NONE, tree.getChild(ifNode, 3));
+    }
+
+    private static final String[] KINDS = {"EMPTY", "PROGRAM", "DECLARATIONS", "SUBPROGRAMS", "SUBPROGRAM",
+            "ARGUMENTS", "COMPOUND", "ASSIGNMENT", "IF", "WHILE", "PROCEDURE_CALL", "OPERATION", "UNARY", "VALUE",
+            "VARIABLE"};
+
+    /**
+     * Writes a node of a FlatTree and everything under it, one node per line, indented by its depth
+     */
+    private static void describe(FlatTree tree, int node, int depth, StringBuilder text) {
+        for (int i = 0; i < depth; i++) {
+            text.append(' ');
+        }
+        int kind = tree.getKind(node);
+        text.append(KINDS[kind]);
+        if (tree.getOperator(node) != null) {
+            text.append(' ').append(tree.getOperator(node));
+        }
+        if (tree.getText(node) != null) {
+            text.append(' ').append(tree.getText(node));
+        }
+        if (tree.getType(node) != null) {
+            text.append(' ').append(tree.getType(node));
+        }
+        if (kind == FlatTree.VARIABLE) {
+            text.append(' ').append(tree.getNameId(node));
+        } else if (kind == FlatTree.VALUE) {
+            text.append(' ').append(tree.getType(node) == TokenType.REAL ? String.valueOf(tree.getRealValue(node))
+                    : String.valueOf(tree.getIntegerValue(node)));
+        }
+        text.append('\n');
+        for (int child = tree.getFirstChild(node); child != FlatTree.NONE; child = tree.getNextSibling(child)) {
+            describe(tree, child, depth + 1, text);
+        }
+    }
+}
@@ -5,14 +5,21 @@
  */
 package syntaxtree;
 
+import scanner.NumberLiterals;
+import scanner.TokenType;
+
 /**
  * Represents a value or number in an expression.
+ * Numbers keep the value the scanner decoded as a primitive next to their text, so later phases never parse it again.
  * @author Erik Steinmetz
  */
 public class ValueNode extends ExpressionNode {
     
     /** The attribute associated with this node. */
     String attribute;
+
+    private long integerValue;
+    private double realValue;
     
     /**
      * Creates a ValueNode with the given attribute.
@@ -21,6 +28,54 @@ public class ValueNode extends ExpressionNode {
     public ValueNode( String attr) {
         this.attribute = attr;
     }
+
+    /**
+     * Creates an integer ValueNode.
+     * @param attr The text of the number.
+     * @param value The decoded value, or NumberLiterals.TOO_LARGE.
+     */
+    public ValueNode( String attr, long value) {
+        super(TokenType.INTEGER);
+        this.attribute = attr;
+        this.integerValue = value;
+    }
+
+    /**
+     * Creates a real ValueNode.
+     * @param attr The text of the number.
+     * @param value The decoded value.
+     */
+    public ValueNode( String attr, double value) {
+        super(TokenType.REAL);
+        this.attribute = attr;
+        this.realValue = value;
+    }
+
+    /**
+     * @return The value of an INTEGER node.
+     */
+    public long getIntegerValue() { return( this.integerValue);}
+
+    /**
+     * @return The value of a REAL node.
+     */
+    public double getRealValue() { return( this.realValue);}
+
+    /**
+     * Checks that the value fits the target: a 32 bit word for an integer and a finite single precision float,
+     * which is not rounded to 0, for a real.
+     * @return true if the number cannot be represented.
+     */
+    public boolean isOutOfRange() {
+        if( this.type == TokenType.INTEGER) {
+            return integerValue == NumberLiterals.TOO_LARGE || integerValue > Integer.MAX_VALUE;
+        }
+        if( this.type == TokenType.REAL) {
+            float single = (float) realValue;
+            return Double.isNaN( realValue) || Float.isInfinite( single) || (single == 0 && realValue != 0);
+        }
+        return false;
+    }
     
     /** 
      * Returns the attribute of this node.
@@ -45,7 +100,11 @@ public class ValueNode extends ExpressionNode {
     @Override
     public String indentedToString( int level) {
         String answer = this.indentation(level);
-        answer += "Value: " + this.attribute + "\n";
+        answer += "Value: " + this.attribute;
+        if( this.type != null) {
+            answer += " Type: " + this.type;
+        }
+        answer += "\n";
         return answer;
     }
 
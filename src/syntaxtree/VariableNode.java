@@ -2,6 +2,7 @@
 package syntaxtree;
 
 import scanner.TokenType;
+import symboltable.SymbolTable;
 
 /**
  * Represents a variable in the syntax tree.
@@ -12,6 +13,12 @@ public class VariableNode extends ExpressionNode {
     /** The name of the variable associated with this node. */
     String name;
 
+    /** The NamePool id of the name, or -1 if the name has none. */
+    private int nameId = -1;
+
+    /** The symbol the name resolves to, or null until NameResolver has bound it. */
+    private SymbolTable.Symbol symbol;
+
     /**
      * Creates a ValueNode with the given attribute.
      * @param attr The name for this value node.
@@ -34,6 +41,30 @@ public class VariableNode extends ExpressionNode {
      * @return The name of this VariableNode.
      */
     public String getName() { return( this.name);}
+
+    /**
+     * Returns the NamePool id of the variable's name.
+     * @return The id of the name, or -1 if the node was built without one.
+     */
+    public int getNameId() { return( this.nameId);}
+
+    /**
+     * Sets the NamePool id of the variable's name.
+     * @param nameId The id of the name.
+     */
+    public void setNameId( int nameId) { this.nameId = nameId;}
+
+    /**
+     * Returns the symbol the variable's name resolves to.
+     * @return The symbol, or null if the name is not declared or has not been resolved.
+     */
+    public SymbolTable.Symbol getSymbol() { return( this.symbol);}
+
+    /**
+     * Binds the variable to the symbol its name resolves to.
+     * @param symbol The symbol of the name.
+     */
+    public void setSymbol( SymbolTable.Symbol symbol) { this.symbol = symbol;}
     
     /**
      * Returns the name of the variable as the description of this node.